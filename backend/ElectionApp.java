@@ -2,6 +2,7 @@ package backend;
 
 import backend.models.KeyValue;
 import backend.services.ElectionService;
+import backend.services.SeatCalculator;
 import backend.db.DatabaseConnector;
 import backend.server.ElectionServer;
 import java.io.IOException;
@@ -148,100 +149,50 @@ public class ElectionApp {
             validVotesPerParty[i] = Integer.parseInt(scanner.nextLine());
         }
 
-        // Disqualification calculations
-        int disqualifyPartyCount = 0;
-        int disqualifyVotes = 0;
-        int disqualifyThreshold = Math.round(totalValidVotes * 0.05f);
+        // Seat calculation (rules live in SeatCalculator, shared with the recalculation job)
+        SeatCalculator.Allocation allocation = SeatCalculator.allocate(totalSeatCount, totalValidVotes, validVotesPerParty);
+        int disqualifyPartyCount = allocation.disqualifyPartyCount;
+        int disqualifyVotes = allocation.disqualifyVotes;
+        int disqualifyThreshold = allocation.threshold;
         System.out.println("\nDisqualification Threshold: " + disqualifyThreshold + " votes (5% of total valid votes)");
-
-        for (int i = 0; i < partyCount; i++) {
-            if (validVotesPerParty[i] < disqualifyThreshold) {
-                disqualifyPartyCount++;
-                disqualifyVotes += validVotesPerParty[i];
-            }
-        }
         System.out.println("Disqualified Votes: " + disqualifyVotes);
-        int qualifyVotes = totalValidVotes - disqualifyVotes;
-        System.out.println("Qualified Votes: " + qualifyVotes);
-        int votesPerSeat = qualifyVotes / totalSeatCount;
-        System.out.println("Total Votes per Seat: " + votesPerSeat);
+        System.out.println("Qualified Votes: " + allocation.qualifyVotes);
+        System.out.println("Total Votes per Seat: " + allocation.votesPerSeat);
 
         // Bonus Round Allocation
         System.out.println("\nBonus Seat Allocation:");
-        int maxVotesIndex = 0;
-         int[] bonusRoundSeats = new int[partyCount];
-        for (int i = 1; i < partyCount; i++) {
-            if (validVotesPerParty[i] > validVotesPerParty[maxVotesIndex]) {
-                maxVotesIndex = i;
-            }
-
-        }
-        for (int i = 1; i < partyCount; i++) {
-            if (validVotesPerParty[i] == validVotesPerParty[maxVotesIndex]) {
-                bonusRoundSeats[i] = 1; // Assign bonus seat to all parties with max votes
-            } else {
-                bonusRoundSeats[i] = 0; // No bonus seat for others
-            }
-        }
-
-        System.out.println(politicalParty[maxVotesIndex].key + " receives the bonus seat.");
-        // String bonusround=politicalParty[maxVotesIndex].key;
+        int[] bonusRoundSeats = allocation.bonusRoundSeats;
+        System.out.println(politicalParty[allocation.bonusIndex].key + " receives the bonus seat.");
 
         // First Round Seat Allocation
         System.out.println("\nFirst Seat Allocation:");
-        int[] firstRoundSeats = new int[partyCount];
+        int[] firstRoundSeats = allocation.firstRoundSeats;
         for (int i = 0; i < partyCount; i++) {
-            if (validVotesPerParty[i] >= disqualifyThreshold) {
-                firstRoundSeats[i] = validVotesPerParty[i] / votesPerSeat;
-            }
             System.out.println(politicalParty[i].key + " => " + firstRoundSeats[i] + " seats.");
         }
-        
 
         // Second Round Seat Allocation
         System.out.println("\nSecond Seat Allocation:");
-        int allocatedSeats = Arrays.stream(firstRoundSeats).sum();
-        int remainingSeats = totalSeatCount - allocatedSeats - 1; // -1 for bonus seat
-
-        int[] secondRoundSeats = new int[partyCount];
-        if (remainingSeats > 0) {
-            // Create list of qualified parties only
-            List<Integer> qualifiedIndices = new ArrayList<>();
-            for (int i = 0; i < partyCount; i++) {
-                if (validVotesPerParty[i] >= disqualifyThreshold) {
-                    qualifiedIndices.add(i);
-                }
-            }
-
-            // Sort by remainder votes (highest first)
-            qualifiedIndices.sort((a, b) -> {
-                int remainderA = validVotesPerParty[a] % votesPerSeat;
-                int remainderB = validVotesPerParty[b] % votesPerSeat;
-                return Integer.compare(remainderB, remainderA);
-            });
-
-            // Distribute remaining seats
-            for (int i = 0; i < remainingSeats && i < qualifiedIndices.size(); i++) {
-                int partyIndex = qualifiedIndices.get(i);
-                secondRoundSeats[partyIndex]++;
-            }
-        }
-
+        int[] secondRoundSeats = allocation.secondRoundSeats;
         for (int i = 0; i < partyCount; i++) {
             System.out.println(politicalParty[i].key + " => " + secondRoundSeats[i] + " seats.");
         }
 
         // Final Seat Allocation
         System.out.println("\nFinal Seat Allocation:");
-        int[] finalSeats = new int[partyCount];
+        int[] finalSeats = allocation.finalSeats;
         for (int i = 0; i < partyCount; i++) {
-            finalSeats[i] = firstRoundSeats[i] + secondRoundSeats[i] + (i == maxVotesIndex ? 1 : 0);
             System.out.println(politicalParty[i].key + " => " + finalSeats[i] + " total seats.");
         }
 
+        // Optional submission ID (e.g. the result sheet number): entering the same ID again is a no-op
+        System.out.print("Enter submission ID (optional, press Enter to skip): ");
+        String submissionId = scanner.nextLine().trim();
+
         // Save results using ElectionService
         ElectionService electionService = new ElectionService();
-        electionService.saveResults(
+        int written = electionService.saveResults(
+                submissionId.isEmpty() ? null : submissionId,
                 selectedDistrict,
                 totalSeatCount,
                 year,
@@ -257,10 +208,12 @@ public class ElectionApp {
                 bonusRoundSeats,
                 firstRoundSeats,
                 secondRoundSeats
-                
         );
 
-        System.out.println("✅ Election results saved successfully.");
+        // saveResults reports what it wrote; only a failure needs saying here
+        if (written < 0) {
+            System.err.println("❌ Election results were not saved.");
+        }
         scanner.close();
     }
 }
\ No newline at end of file
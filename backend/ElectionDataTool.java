@@ -0,0 +1,76 @@
+package backend;
+
+import backend.archive.ElectionArchive;
+import backend.archive.ElectionArchiveStore;
+import backend.services.RecalculationService;
+import backend.services.YearTransferService;
+import backend.services.YearTransferService.Format;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Command line backup / migration of a whole election year
+//   java backend.ElectionDataTool export <year> <file.ndjson|file.csv>
+//   java backend.ElectionDataTool import <file.ndjson|file.csv> [--replace]
+//   java backend.ElectionDataTool archive <year>    (writes the mapped binary archive, see ElectionArchive)
+//   java backend.ElectionDataTool recalculate <year> (recomputes all seat allocations of the year)
+// The format is taken from the file extension.
+public class ElectionDataTool {
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage:");
+            System.out.println("  export <year> <file.ndjson|file.csv>");
+            System.out.println("  import <file.ndjson|file.csv> [--replace]");
+            System.out.println("  archive <year>");
+            System.out.println("  recalculate <year>");
+            return;
+        }
+        YearTransferService service = new YearTransferService();
+        try {
+            if (args[0].equalsIgnoreCase("export") && args.length >= 3) {
+                int year = Integer.parseInt(args[1]);
+                if (!service.yearExists(year)) {
+                    System.err.println("❌ Election for year " + year + " not found.");
+                    return;
+                }
+                long start = System.currentTimeMillis();
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(args[2]), StandardCharsets.UTF_8), 64 * 1024)) {
+                    long rows = service.exportYear(year, formatOf(args[2]), out);
+                    System.out.println("✅ Exported " + rows + " rows for " + year + " to " + args[2]
+                            + " in " + (System.currentTimeMillis() - start) + " ms.");
+                }
+            } else if (args[0].equalsIgnoreCase("import")) {
+                boolean replace = args.length > 2 && args[2].equals("--replace");
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(args[1]), StandardCharsets.UTF_8), 64 * 1024)) {
+                    YearTransferService.ImportResult result = service.importYear(in, formatOf(args[1]), replace);
+                    System.out.println("✅ Imported " + result.rows + " in " + result.elapsedMs + " ms.");
+                }
+            } else if (args[0].equalsIgnoreCase("archive")) {
+                long start = System.currentTimeMillis();
+                ElectionArchive archive = ElectionArchiveStore.archive(Integer.parseInt(args[1]));
+                System.out.println("✅ Archived " + archive.getYear() + " (" + archive.districtCount() + " districts, "
+                        + archive.partyCount() + " parties, " + archive.sizeBytes() + " bytes) to " + archive.getFile()
+                        + " in " + (System.currentTimeMillis() - start) + " ms.");
+            } else if (args[0].equalsIgnoreCase("recalculate")) {
+                RecalculationService.Job job = RecalculationService.runNow(Integer.parseInt(args[1]));
+                System.out.println(job.toJson());
+            } else {
+                System.err.println("❌ Unknown command: " + args[0]);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error: " + e.getMessage());
+        }
+    }
+
+    private static Format formatOf(String file) {
+        return file.toLowerCase().endsWith(".csv") ? Format.CSV : Format.NDJSON;
+    }
+}
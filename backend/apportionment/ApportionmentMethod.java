@@ -0,0 +1,59 @@
+package backend.apportionment;
+
+import backend.services.SeatCalculator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// A way of turning a district's party votes into seats. All methods apply the
+// same disqualification threshold first and return the familiar Allocation
+// (methods without a bonus or second round leave those arrays at zero).
+public interface ApportionmentMethod {
+
+    // Short name used in requests, e.g. ?method=dhondt
+    String name();
+
+    SeatCalculator.Allocation allocate(int seats, int totalValidVotes, int[] votes, int thresholdPercent);
+
+    // Registry, in the order the methods are listed to clients
+    Map<String, ApportionmentMethod> METHODS = registry(
+            new BonusSeatMethod(),
+            HighestAveragesMethod.dHondt(),
+            HighestAveragesMethod.sainteLague(),
+            LargestRemainderMethod.hare(),
+            LargestRemainderMethod.droop());
+
+    // null for an unknown name
+    static ApportionmentMethod forName(String name) {
+        return name == null ? null : METHODS.get(name.toLowerCase());
+    }
+
+    static List<ApportionmentMethod> all() {
+        return List.copyOf(METHODS.values());
+    }
+
+    private static Map<String, ApportionmentMethod> registry(ApportionmentMethod... methods) {
+        Map<String, ApportionmentMethod> map = new LinkedHashMap<>();
+        for (ApportionmentMethod m : methods) {
+            map.put(m.name(), m);
+        }
+        return map;
+    }
+
+    // Shared first step: threshold bookkeeping, plus empty seat arrays
+    static SeatCalculator.Allocation withThreshold(int totalValidVotes, int[] votes, int thresholdPercent) {
+        SeatCalculator.Allocation a = new SeatCalculator.Allocation();
+        int n = votes.length;
+        a.threshold = VoteMath.thresholdVotesInt(totalValidVotes, thresholdPercent);
+        a.disqualifyPartyCount = VoteMath.countBelow(votes, a.threshold);
+        a.disqualifyVotes = Math.toIntExact(VoteMath.sumBelow(votes, a.threshold));
+        a.qualifyVotes = Math.toIntExact((long) totalValidVotes - a.disqualifyVotes);
+        a.bonusIndex = -1;
+        a.bonusRoundSeats = new int[n];
+        a.firstRoundSeats = new int[n];
+        a.secondRoundSeats = new int[n];
+        a.finalSeats = new int[n];
+        return a;
+    }
+}
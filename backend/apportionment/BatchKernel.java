@@ -0,0 +1,41 @@
+package backend.apportionment;
+
+// Threshold and first-round quota evaluation over many scenarios at once, for
+// simulations (thousands of what-if vote splits of the same district).
+//
+// Layout: votes[party * scenarios + scenario], i.e. one column of consecutive
+// scenarios per party, so a SIMD register covers several scenarios of the same
+// party and the per-scenario thresholds / votes per seat load as vectors too.
+// The number of scenarios is the length of the thresholds array.
+//
+// Both kernels must give exactly the same results as SeatCalculator.
+public interface BatchKernel {
+
+    String name();
+
+    // out[s] = sum of the votes below thresholds[s], over all parties (fits an int like a district total)
+    void sumBelow(int[] votes, int parties, int[] thresholds, int[] out);
+
+    // First round for every (party, scenario):
+    //   qualified:    quota = votes / votesPerSeat, remainder = votes % votesPerSeat
+    //                 (votesPerSeat 0: quota 0, remainder = votes, like SeatCalculator)
+    //   disqualified: quota 0, remainder -1
+    void quotas(int[] votes, int parties, int[] thresholds, int[] votesPerSeat, int[] quota, int[] remainder);
+
+    // Threshold, votes per seat and first round for a batch, given each scenario's
+    // total valid votes and seat count. Thresholds and votes per seat are written
+    // to the given arrays (one entry per scenario).
+    default void firstRound(int[] votes, int parties, int[] totals, int[] seats, int thresholdPercent,
+                            int[] thresholds, int[] votesPerSeat, int[] quota, int[] remainder) {
+        int scenarios = totals.length;
+        for (int s = 0; s < scenarios; s++) {
+            thresholds[s] = VoteMath.thresholdVotesInt(totals[s], thresholdPercent);
+        }
+        int[] below = new int[scenarios];
+        sumBelow(votes, parties, thresholds, below);
+        for (int s = 0; s < scenarios; s++) {
+            votesPerSeat[s] = seats[s] > 0 ? (totals[s] - below[s]) / seats[s] : 0;
+        }
+        quotas(votes, parties, thresholds, votesPerSeat, quota, remainder);
+    }
+}
@@ -0,0 +1,100 @@
+package backend.apportionment;
+
+import backend.config.AppConfig;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Picks the BatchKernel once per JVM. election.batch.kernel:
+//   auto   (default) the vector kernel if it loads and agrees with the scalar one, else scalar
+//   vector same, but says so loudly when it has to fall back
+//   scalar always the plain loops
+public final class BatchKernels {
+    private static final String VECTOR_CLASS = "backend.apportionment.vector.VectorBatchKernel";
+    private static volatile BatchKernel selected;
+
+    private BatchKernels() {
+    }
+
+    public static BatchKernel get() {
+        BatchKernel k = selected;
+        if (k == null) {
+            synchronized (BatchKernels.class) {
+                if (selected == null) {
+                    selected = choose(AppConfig.get("election.batch.kernel", "auto"));
+                }
+                k = selected;
+            }
+        }
+        return k;
+    }
+
+    public static BatchKernel scalar() {
+        return new ScalarBatchKernel();
+    }
+
+    // null when the Vector API module isn't there (not compiled in, or no --add-modules)
+    public static BatchKernel vector() {
+        try {
+            return (BatchKernel) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static BatchKernel choose(String setting) {
+        if ("scalar".equalsIgnoreCase(setting)) {
+            return scalar();
+        }
+        BatchKernel vector = vector();
+        String problem = null;
+        if (vector == null) {
+            problem = "Vector API not available (run with --add-modules jdk.incubator.vector)";
+        } else if (!agrees(vector, scalar())) {
+            problem = "vector kernel disagrees with the scalar one";
+        }
+        if (problem == null) {
+            return vector;
+        }
+        if ("vector".equalsIgnoreCase(setting)) {
+            System.out.println("⚠️ Batch kernel: " + problem + ", using scalar loops.");
+        }
+        return scalar();
+    }
+
+    // Quick self-check on random data, including the awkward cases (zero votes per seat, tails)
+    static boolean agrees(BatchKernel a, BatchKernel b) {
+        Random random = new Random(7);
+        int parties = 7;
+        int scenarios = 37;
+        int[] votes = new int[parties * scenarios];
+        for (int i = 0; i < votes.length; i++) {
+            votes[i] = random.nextInt(300_000_000 / parties);
+        }
+        int[] totals = new int[scenarios];
+        int[] seats = new int[scenarios];
+        for (int s = 0; s < scenarios; s++) {
+            for (int p = 0; p < parties; p++) {
+                totals[s] += votes[p * scenarios + s];
+            }
+            seats[s] = s % 5 == 0 ? 0 : 1 + random.nextInt(20);
+        }
+        return Arrays.equals(run(a, votes, parties, totals, seats), run(b, votes, parties, totals, seats));
+    }
+
+    private static int[] run(BatchKernel k, int[] votes, int parties, int[] totals, int[] seats) {
+        int n = votes.length;
+        int scenarios = totals.length;
+        int[] out = new int[2 * scenarios + 2 * n];
+        int[] thresholds = new int[scenarios];
+        int[] perSeat = new int[scenarios];
+        int[] quota = new int[n];
+        int[] remainder = new int[n];
+        k.firstRound(votes, parties, totals, seats, 5, thresholds, perSeat, quota, remainder);
+        System.arraycopy(thresholds, 0, out, 0, scenarios);
+        System.arraycopy(perSeat, 0, out, scenarios, scenarios);
+        System.arraycopy(quota, 0, out, 2 * scenarios, n);
+        System.arraycopy(remainder, 0, out, 2 * scenarios + n, n);
+        return out;
+    }
+}
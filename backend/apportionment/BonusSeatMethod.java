@@ -0,0 +1,17 @@
+package backend.apportionment;
+
+import backend.services.SeatCalculator;
+
+// The current Sri Lankan district rule (bonus seat + quota + largest remainder), see SeatCalculator
+public class BonusSeatMethod implements ApportionmentMethod {
+
+    @Override
+    public String name() {
+        return "sri_lanka";
+    }
+
+    @Override
+    public SeatCalculator.Allocation allocate(int seats, int totalValidVotes, int[] votes, int thresholdPercent) {
+        return SeatCalculator.allocate(seats, totalValidVotes, votes, thresholdPercent);
+    }
+}
@@ -0,0 +1,94 @@
+package backend.apportionment;
+
+import backend.services.SeatCalculator;
+
+// Highest averages (divisor) methods. Seats are handed out one at a time to the
+// party with the largest quotient votes / divisor(seatsSoFar), using a binary
+// max-heap over int party indexes: O(parties + seats * log parties), no boxing.
+//
+// Quotients are compared exactly by cross-multiplying in long arithmetic
+// (votes_a * divisor_b vs votes_b * divisor_a), so there are no floating point
+// ties; an exact tie goes to the party listed first.
+public class HighestAveragesMethod implements ApportionmentMethod {
+    private final String name;
+    // divisor(s) = divisorStep * s + divisorBase
+    private final long divisorStep;
+    private final long divisorBase;
+
+    private HighestAveragesMethod(String name, long divisorStep, long divisorBase) {
+        this.name = name;
+        this.divisorStep = divisorStep;
+        this.divisorBase = divisorBase;
+    }
+
+    // Divisors 1, 2, 3, ...
+    public static HighestAveragesMethod dHondt() {
+        return new HighestAveragesMethod("dhondt", 1, 1);
+    }
+
+    // Divisors 1, 3, 5, ...
+    public static HighestAveragesMethod sainteLague() {
+        return new HighestAveragesMethod("sainte_lague", 2, 1);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public SeatCalculator.Allocation allocate(int seats, int totalValidVotes, int[] votes, int thresholdPercent) {
+        SeatCalculator.Allocation a = ApportionmentMethod.withThreshold(totalValidVotes, votes, thresholdPercent);
+        distribute(seats, votes, a.threshold, a.finalSeats);
+        System.arraycopy(a.finalSeats, 0, a.firstRoundSeats, 0, votes.length);
+        return a;
+    }
+
+    // The kernel: fills won[] for parties with votes >= threshold
+    void distribute(int seats, int[] votes, int threshold, int[] won) {
+        int[] heap = new int[votes.length];
+        int size = 0;
+        for (int i = 0; i < votes.length; i++) {
+            if (votes[i] >= threshold && votes[i] > 0) {
+                heap[size++] = i;
+            }
+        }
+        if (size == 0) {
+            return;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, votes, won);
+        }
+        for (int s = 0; s < seats; s++) {
+            // Winner's quotient only ever goes down, so it is pushed back from the root
+            won[heap[0]]++;
+            siftDown(heap, size, 0, votes, won);
+        }
+    }
+
+    private void siftDown(int[] heap, int size, int i, int[] votes, int[] won) {
+        int party = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && higher(heap[child + 1], heap[child], votes, won)) {
+                child++;
+            }
+            if (!higher(heap[child], party, votes, won)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = party;
+    }
+
+    // Does party a have a strictly larger quotient than party b (ties: lower index first)?
+    private boolean higher(int a, int b, int[] votes, int[] won) {
+        long lhs = votes[a] * (divisorStep * won[b] + divisorBase);
+        long rhs = votes[b] * (divisorStep * won[a] + divisorBase);
+        return lhs > rhs || (lhs == rhs && a < b);
+    }
+}
@@ -0,0 +1,73 @@
+package backend.apportionment;
+
+import backend.services.SeatCalculator;
+
+// Quota + largest remainder, over the qualified parties' votes.
+//   Hare:  quota = V / S       (exact: seats = floor(v * S / V), remainder = v * S mod V)
+//   Droop: quota = V / (S + 1) + 1
+// The remaining seats go one each to the largest remainders (ties: party listed first).
+public class LargestRemainderMethod implements ApportionmentMethod {
+    private final boolean droop;
+
+    private LargestRemainderMethod(boolean droop) {
+        this.droop = droop;
+    }
+
+    public static LargestRemainderMethod hare() {
+        return new LargestRemainderMethod(false);
+    }
+
+    public static LargestRemainderMethod droop() {
+        return new LargestRemainderMethod(true);
+    }
+
+    @Override
+    public String name() {
+        return droop ? "droop" : "hare";
+    }
+
+    @Override
+    public SeatCalculator.Allocation allocate(int seats, int totalValidVotes, int[] votes, int thresholdPercent) {
+        SeatCalculator.Allocation a = ApportionmentMethod.withThreshold(totalValidVotes, votes, thresholdPercent);
+        int n = votes.length;
+        long qualified = VoteMath.sum(votes) - VoteMath.sumBelow(votes, a.threshold);
+        if (qualified == 0 || seats <= 0) {
+            return a;
+        }
+
+        // Everything is compared as an integer numerator over a common denominator
+        long denominator = droop ? qualified / (seats + 1) + 1 : qualified;
+        long[] remainder = new long[n];
+        int allocated = 0;
+        for (int i = 0; i < n; i++) {
+            if (votes[i] < a.threshold) {
+                remainder[i] = -1;
+                continue;
+            }
+            long numerator = droop ? votes[i] : (long) votes[i] * seats;
+            a.firstRoundSeats[i] = (int) (numerator / denominator);
+            remainder[i] = numerator % denominator;
+            allocated += a.firstRoundSeats[i];
+        }
+        a.votesPerSeat = (int) Math.min(Integer.MAX_VALUE, droop ? denominator : qualified / seats);
+
+        // Selection of the top remainders, seats left is at most the number of parties
+        for (int left = seats - allocated; left > 0; left--) {
+            int best = -1;
+            for (int i = 0; i < n; i++) {
+                if (remainder[i] >= 0 && a.secondRoundSeats[i] == 0
+                        && (best < 0 || remainder[i] > remainder[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            a.secondRoundSeats[best] = 1;
+        }
+        for (int i = 0; i < n; i++) {
+            a.finalSeats[i] = a.firstRoundSeats[i] + a.secondRoundSeats[i];
+        }
+        return a;
+    }
+}
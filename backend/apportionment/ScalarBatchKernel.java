@@ -0,0 +1,51 @@
+package backend.apportionment;
+
+import java.util.Arrays;
+
+// Plain loops; the reference the vector kernel is checked against, and the
+// one used when the Vector API module isn't available.
+public class ScalarBatchKernel implements BatchKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void sumBelow(int[] votes, int parties, int[] thresholds, int[] out) {
+        int scenarios = thresholds.length;
+        Arrays.fill(out, 0, scenarios, 0);
+        for (int p = 0; p < parties; p++) {
+            int base = p * scenarios;
+            for (int s = 0; s < scenarios; s++) {
+                int v = votes[base + s];
+                if (v < thresholds[s]) {
+                    out[s] += v;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void quotas(int[] votes, int parties, int[] thresholds, int[] votesPerSeat, int[] quota, int[] remainder) {
+        int scenarios = thresholds.length;
+        for (int p = 0; p < parties; p++) {
+            int base = p * scenarios;
+            for (int s = 0; s < scenarios; s++) {
+                int i = base + s;
+                int v = votes[i];
+                int perSeat = votesPerSeat[s];
+                if (v < thresholds[s]) {
+                    quota[i] = 0;
+                    remainder[i] = -1;
+                } else if (perSeat > 0) {
+                    quota[i] = v / perSeat;
+                    remainder[i] = v % perSeat;
+                } else {
+                    quota[i] = 0;
+                    remainder[i] = v;
+                }
+            }
+        }
+    }
+}
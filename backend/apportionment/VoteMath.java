@@ -0,0 +1,111 @@
+package backend.apportionment;
+
+import java.math.BigInteger;
+
+// Integer-only vote arithmetic shared by the allocation code.
+// Everything that can exceed an int (sums over parties or districts,
+// products for quota comparisons) is done in long, and overflow of the
+// final results throws instead of wrapping. No floating point is used, so
+// results are identical on every run and every JVM.
+//
+// The loops are written without data-dependent branches so C2 can turn them
+// into SIMD code on large inputs.
+public final class VoteMath {
+
+    private VoteMath() {
+    }
+
+    // percent% of total, rounded half up: exact replacement for Math.round(total * 0.05f)
+    public static long thresholdVotes(long total, int percent) {
+        return (Math.multiplyExact(total, (long) percent) + 50) / 100;
+    }
+
+    public static int thresholdVotesInt(long total, int percent) {
+        return Math.toIntExact(thresholdVotes(total, percent));
+    }
+
+    public static long sum(int[] votes) {
+        long sum = 0;
+        for (int v : votes) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    // Sum of the votes of parties under the threshold
+    public static long sumBelow(int[] votes, long threshold) {
+        long sum = 0;
+        for (int v : votes) {
+            // all ones when v < threshold, else zero
+            long below = (v - threshold) >> 63;
+            sum += v & below;
+        }
+        return sum;
+    }
+
+    public static int countBelow(int[] votes, long threshold) {
+        int count = 0;
+        for (int v : votes) {
+            count += (int) ((v - threshold) >>> 63);
+        }
+        return count;
+    }
+
+    // 100 * part / whole in hundredths of a percent, rounded half up (0 when whole is 0).
+    // Falls back to BigInteger when the product doesn't fit in a long.
+    public static long percentHundredths(long part, long whole) {
+        if (whole == 0) {
+            return 0;
+        }
+        try {
+            return divideRounded(Math.multiplyExact(part, 10_000L), whole);
+        } catch (ArithmeticException overflow) {
+            return divideRounded(BigInteger.valueOf(part).multiply(BigInteger.valueOf(10_000L)),
+                    BigInteger.valueOf(whole));
+        }
+    }
+
+    // Swing in hundredths of a percentage point: 100 * (after / afterTotal - before / beforeTotal),
+    // computed as one fraction so it doesn't depend on how the two shares were rounded
+    public static long swingHundredths(long before, long beforeTotal, long after, long afterTotal) {
+        if (beforeTotal == 0 || afterTotal == 0) {
+            return percentHundredths(after, afterTotal) - percentHundredths(before, beforeTotal);
+        }
+        try {
+            long numerator = Math.subtractExact(Math.multiplyExact(after, beforeTotal),
+                    Math.multiplyExact(before, afterTotal));
+            return divideRounded(Math.multiplyExact(numerator, 10_000L), Math.multiplyExact(beforeTotal, afterTotal));
+        } catch (ArithmeticException overflow) {
+            BigInteger numerator = BigInteger.valueOf(after).multiply(BigInteger.valueOf(beforeTotal))
+                    .subtract(BigInteger.valueOf(before).multiply(BigInteger.valueOf(afterTotal)));
+            return divideRounded(numerator.multiply(BigInteger.valueOf(10_000L)),
+                    BigInteger.valueOf(beforeTotal).multiply(BigInteger.valueOf(afterTotal)));
+        }
+    }
+
+    // 1234 -> "12.34", -5 -> "-0.05"
+    public static String formatHundredths(long hundredths) {
+        long abs = Math.abs(hundredths);
+        long fraction = abs % 100;
+        return (hundredths < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    // n / d for d > 0, rounded half away from zero
+    static long divideRounded(long n, long d) {
+        long abs = Math.abs(n);
+        long q = abs / d;
+        if (abs % d >= d - abs % d) {
+            q++;
+        }
+        return n < 0 ? -q : q;
+    }
+
+    static long divideRounded(BigInteger n, BigInteger d) {
+        BigInteger[] qr = n.abs().divideAndRemainder(d);
+        BigInteger q = qr[0];
+        if (qr[1].shiftLeft(1).compareTo(d) >= 0) {
+            q = q.add(BigInteger.ONE);
+        }
+        return (n.signum() < 0 ? q.negate() : q).longValueExact();
+    }
+}
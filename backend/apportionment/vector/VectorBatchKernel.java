@@ -0,0 +1,125 @@
+package backend.apportionment.vector;
+
+import backend.apportionment.BatchKernel;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// BatchKernel on the incubating Vector API (JDK 17: jdk.incubator.vector).
+// Kept in its own package so the rest of the backend compiles without the
+// module; BatchKernels loads it by name and falls back to the scalar kernel.
+//
+// Compile and run with --add-modules jdk.incubator.vector.
+//
+// There is no SIMD integer division on x86, so a quota is first estimated with
+// a float division in same-width lanes, then corrected by one either way until
+// 0 <= votes - quota * votesPerSeat < votesPerSeat. That is enough for
+// quotients well below 2^22 (float error < 1); for the rare chunk where it isn't
+// (votes per seat of a few hundred or less) those lanes are redone with int
+// division, so the results are exactly the scalar kernel's.
+public class VectorBatchKernel implements BatchKernel {
+    private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+    private static final float MAGIC = 8388608f; // 2^23
+    private static final int MAGIC_BITS = Float.floatToRawIntBits(MAGIC);
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public void sumBelow(int[] votes, int parties, int[] thresholds, int[] out) {
+        int scenarios = thresholds.length;
+        int upper = INT.loopBound(scenarios);
+        Arrays.fill(out, 0, scenarios, 0);
+        for (int p = 0; p < parties; p++) {
+            int base = p * scenarios;
+            int s = 0;
+            for (; s < upper; s += INT.length()) {
+                IntVector v = IntVector.fromArray(INT, votes, base + s);
+                IntVector t = IntVector.fromArray(INT, thresholds, s);
+                IntVector.fromArray(INT, out, s)
+                        .add(v, v.compare(VectorOperators.LT, t))
+                        .intoArray(out, s);
+            }
+            for (; s < scenarios; s++) {
+                int v = votes[base + s];
+                if (v < thresholds[s]) {
+                    out[s] += v;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void quotas(int[] votes, int parties, int[] thresholds, int[] votesPerSeat, int[] quota, int[] remainder) {
+        int scenarios = thresholds.length;
+        int upper = INT.loopBound(scenarios);
+        IntVector zero = IntVector.zero(INT);
+        IntVector minusOne = IntVector.broadcast(INT, -1);
+        for (int p = 0; p < parties; p++) {
+            int base = p * scenarios;
+            int s = 0;
+            for (; s < upper; s += INT.length()) {
+                int i = base + s;
+                IntVector v = IntVector.fromArray(INT, votes, i);
+                IntVector perSeat = IntVector.fromArray(INT, votesPerSeat, s);
+                IntVector divisor = perSeat.max(1);
+
+                // Estimate in float lanes, then fix up by one in int lanes. F2I isn't
+                // intrinsified on JDK 17, so the estimate is turned back into an int by
+                // adding 2^23 and reading the mantissa bits (exact below 2^23)
+                FloatVector estimate = ((FloatVector) v.convert(VectorOperators.I2F, 0))
+                        .div((FloatVector) divisor.convert(VectorOperators.I2F, 0))
+                        .add(MAGIC);
+                IntVector q = estimate.reinterpretAsInts().sub(MAGIC_BITS);
+                IntVector r = v.sub(q.mul(divisor));
+                VectorMask<Integer> low = r.compare(VectorOperators.LT, 0);
+                q = q.sub(1, low);
+                r = r.add(divisor, low);
+                VectorMask<Integer> high = r.compare(VectorOperators.GE, divisor);
+                q = q.add(1, high);
+                r = r.sub(divisor, high);
+                if (r.compare(VectorOperators.LT, 0)
+                        .or(r.compare(VectorOperators.GE, divisor))
+                        .or(v.compare(VectorOperators.LT, 0))
+                        .anyTrue()) {
+                    // Huge quotient (tiny votes per seat) or negative votes: do these lanes exactly
+                    for (int k = 0; k < INT.length(); k++) {
+                        scalar(votes, thresholds, votesPerSeat, quota, remainder, i + k, s + k);
+                    }
+                    continue;
+                }
+
+                VectorMask<Integer> qualified = v.compare(VectorOperators.GE, IntVector.fromArray(INT, thresholds, s));
+                VectorMask<Integer> divides = qualified.and(perSeat.compare(VectorOperators.GT, 0));
+                zero.blend(q, divides).intoArray(quota, i);
+                // votesPerSeat 0: remainder is the votes; disqualified: -1
+                minusOne.blend(v.blend(r, divides), qualified).intoArray(remainder, i);
+            }
+            for (; s < scenarios; s++) {
+                scalar(votes, thresholds, votesPerSeat, quota, remainder, base + s, s);
+            }
+        }
+    }
+
+    private static void scalar(int[] votes, int[] thresholds, int[] votesPerSeat, int[] quota, int[] remainder,
+                               int i, int s) {
+        int v = votes[i];
+        int perSeat = votesPerSeat[s];
+        if (v < thresholds[s]) {
+            quota[i] = 0;
+            remainder[i] = -1;
+        } else if (perSeat > 0) {
+            quota[i] = v / perSeat;
+            remainder[i] = v % perSeat;
+        } else {
+            quota[i] = 0;
+            remainder[i] = v;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package backend.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// One election year in a compact, memory-mapped file (written by ElectionArchiveWriter).
+//
+// Layout, little-endian, all offsets are from the start of the file:
+//
+//   header (64 bytes)
+//     0  int   magic 'ELAR'
+//     4  short format version
+//     6  short reserved
+//     8  int   year
+//    12  int   district count D
+//    16  int   party count P
+//    20  int   row count R (one row per district x party)
+//    24  long  written at (epoch millis)
+//    32  int   offset of the district dictionary
+//    36  int   offset of the party dictionary
+//    40  int   offset of the district table
+//    44  int   offset of the row columns
+//    48  int   offset of the party totals
+//    52  int   offset of the CRC32 trailer
+//
+//   dictionary (districts, then parties)
+//     int[n]   database id
+//     int[n+1] start of each UTF-8 name within the blob, last entry = blob length
+//     byte[]   names blob, padded to 4 bytes
+//
+//   district table, DISTRICT_INTS ints per district
+//     valid votes, disqualified votes, disqualified party count, 5% threshold,
+//     seats, first row, row count, district_election_id
+//
+//   row columns, R ints each: party index, votes, bonus, first round, second round, final seats
+//
+//   party totals, P entries: long votes, int seats, int districts with a seat
+//
+//   long CRC32 of everything before the trailer
+//
+// Only the two name dictionaries are decoded onto the heap; every number is
+// read straight from the mapping.
+public class ElectionArchive {
+    static final int MAGIC = 0x52414C45; // "ELAR" as little-endian bytes
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int DISTRICT_INTS = 8;
+    static final int COLUMNS = 6;
+    static final int PARTY_TOTAL_BYTES = 16;
+
+    // Row columns
+    public static final int COL_PARTY = 0;
+    public static final int COL_VOTES = 1;
+    public static final int COL_BONUS = 2;
+    public static final int COL_FIRST_ROUND = 3;
+    public static final int COL_SECOND_ROUND = 4;
+    public static final int COL_FINAL = 5;
+
+    // District table fields
+    public static final int D_VALID_VOTES = 0;
+    public static final int D_DISQUALIFY_VOTES = 1;
+    public static final int D_DISQUALIFY_PARTY_COUNT = 2;
+    public static final int D_THRESHOLD = 3;
+    public static final int D_SEATS = 4;
+    static final int D_FIRST_ROW = 5;
+    static final int D_ROW_COUNT = 6;
+    public static final int D_DISTRICT_ELECTION_ID = 7;
+
+    private final Path file;
+    private final ByteBuffer buf;
+    private final int year;
+    private final int districts;
+    private final int parties;
+    private final int rows;
+    private final long writtenAt;
+    private final String[] districtNames;
+    private final String[] partyNames;
+    private final Map<String, Integer> partyIndex = new HashMap<>();
+    private final Map<String, Integer> districtIndex = new HashMap<>();
+    private final int districtTable;
+    private final int columns;
+    private final int partyTotals;
+
+    private ElectionArchive(Path file, ByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        if (buf.limit() < HEADER_BYTES + 8 || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not an election archive: " + file);
+        }
+        if (buf.getShort(4) != VERSION) {
+            throw new IOException("Unsupported archive version " + buf.getShort(4) + " in " + file);
+        }
+        int crcAt = buf.getInt(52);
+        if (crcAt != buf.limit() - 8) {
+            throw new IOException("Truncated election archive: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().position(0).limit(crcAt));
+        if (crc.getValue() != buf.getLong(crcAt)) {
+            throw new IOException("Archive checksum mismatch: " + file);
+        }
+        year = buf.getInt(8);
+        districts = buf.getInt(12);
+        parties = buf.getInt(16);
+        rows = buf.getInt(20);
+        writtenAt = buf.getLong(24);
+        districtNames = readNames(buf.getInt(32), districts);
+        partyNames = readNames(buf.getInt(36), parties);
+        districtTable = buf.getInt(40);
+        columns = buf.getInt(44);
+        partyTotals = buf.getInt(48);
+        for (int i = 0; i < parties; i++) {
+            partyIndex.put(partyNames[i], i);
+        }
+        for (int i = 0; i < districts; i++) {
+            districtIndex.put(districtNames[i], i);
+        }
+    }
+
+    public static ElectionArchive open(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        return new ElectionArchive(file, map);
+    }
+
+    private String[] readNames(int at, int n) {
+        String[] names = new String[n];
+        int starts = at + n * 4;
+        int blob = starts + (n + 1) * 4;
+        byte[] tmp = new byte[64];
+        for (int i = 0; i < n; i++) {
+            int from = buf.getInt(starts + i * 4);
+            int len = buf.getInt(starts + (i + 1) * 4) - from;
+            if (tmp.length < len) tmp = new byte[len];
+            buf.get(blob + from, tmp, 0, len);
+            names[i] = new String(tmp, 0, len, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    public Path getFile() { return file; }
+
+    public int getYear() { return year; }
+
+    public long getWrittenAt() { return writtenAt; }
+
+    public int districtCount() { return districts; }
+
+    public int partyCount() { return parties; }
+
+    public int rowCount() { return rows; }
+
+    public long sizeBytes() { return buf.limit(); }
+
+    public String districtName(int d) { return districtNames[d]; }
+
+    public String partyName(int p) { return partyNames[p]; }
+
+    // -1 if the party / district took no part that year
+    public int partyIndex(String name) {
+        return partyIndex.getOrDefault(name, -1);
+    }
+
+    public int districtIndex(String name) {
+        return districtIndex.getOrDefault(name, -1);
+    }
+
+    public int districtField(int d, int field) {
+        return buf.getInt(districtTable + (d * DISTRICT_INTS + field) * 4);
+    }
+
+    public int firstRow(int d) {
+        return districtField(d, D_FIRST_ROW);
+    }
+
+    public int rowCount(int d) {
+        return districtField(d, D_ROW_COUNT);
+    }
+
+    public int column(int col, int row) {
+        return buf.getInt(columns + (col * rows + row) * 4);
+    }
+
+    public long partyVotes(int p) {
+        return buf.getLong(partyTotals + p * PARTY_TOTAL_BYTES);
+    }
+
+    public int partySeats(int p) {
+        return buf.getInt(partyTotals + p * PARTY_TOTAL_BYTES + 8);
+    }
+
+    public int partyDistrictsWithSeats(int p) {
+        return buf.getInt(partyTotals + p * PARTY_TOTAL_BYTES + 12);
+    }
+
+    public long totalVotes() {
+        long total = 0;
+        for (int p = 0; p < parties; p++) {
+            total += partyVotes(p);
+        }
+        return total;
+    }
+
+    // Row of party p in district d, -1 if it didn't contest there
+    public int findRow(int d, int p) {
+        int from = firstRow(d);
+        int to = from + rowCount(d);
+        // Rows inside a district are sorted by party index
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            int midParty = column(COL_PARTY, mid);
+            if (midParty < p) {
+                from = mid + 1;
+            } else if (midParty > p) {
+                to = mid;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,119 @@
+package backend.archive;
+
+import backend.apportionment.VoteMath;
+import backend.config.AppConfig;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Directory of per-year archives (election.archive.dir, default "archives"),
+// opened lazily and kept mapped for the life of the process. Re-archiving a
+// year writes a new version of its file (see VersionedFiles).
+public class ElectionArchiveStore {
+    private static final Path DIR = Paths.get(AppConfig.get("election.archive.dir", "archives"));
+    private static final Map<Integer, ElectionArchive> OPEN = new ConcurrentHashMap<>();
+
+    // One year's numbers for a party, straight from the mapped archive
+    public static class PartyYear {
+        public final int year;
+        public final long votes;
+        public final long totalVotes;
+        public final int seats;
+        public final int totalSeats;
+        public final int districtsWithSeats;
+
+        PartyYear(int year, long votes, long totalVotes, int seats, int totalSeats, int districtsWithSeats) {
+            this.year = year;
+            this.votes = votes;
+            this.totalVotes = totalVotes;
+            this.seats = seats;
+            this.totalSeats = totalSeats;
+            this.districtsWithSeats = districtsWithSeats;
+        }
+
+        // Exact share in hundredths of a percent
+        public long voteShareHundredths() {
+            return VoteMath.percentHundredths(votes, totalVotes);
+        }
+    }
+
+    // Current archive file for a year, null if it hasn't been archived
+    public static Path fileFor(int year) throws IOException {
+        return VersionedFiles.latest(DIR, "election-" + year, ".elar");
+    }
+
+    // Writes (or rewrites) the archive for a year and returns it opened.
+    // Synchronized so two rewrites of a year can't pick the same new version.
+    public static synchronized ElectionArchive archive(int year) throws SQLException, IOException {
+        String stem = "election-" + year;
+        Path file = VersionedFiles.next(DIR, stem, ".elar");
+        new ElectionArchiveWriter().write(year, file);
+        ElectionArchive archive = ElectionArchive.open(file);
+        OPEN.put(year, archive);
+        VersionedFiles.deleteOlder(DIR, stem, ".elar", file);
+        return archive;
+    }
+
+    // null if the year hasn't been archived
+    public static ElectionArchive get(int year) throws IOException {
+        ElectionArchive archive = OPEN.get(year);
+        if (archive == null) {
+            Path file = fileFor(year);
+            if (file != null) {
+                archive = ElectionArchive.open(file);
+                OPEN.put(year, archive);
+            }
+        }
+        return archive;
+    }
+
+    public static List<Integer> years() throws IOException {
+        TreeSet<Integer> years = new TreeSet<>(OPEN.keySet());
+        if (Files.isDirectory(DIR)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(DIR, "election-*.elar")) {
+                for (Path f : files) {
+                    String name = f.getFileName().toString();
+                    String year = name.substring("election-".length(), name.length() - ".elar".length());
+                    int dash = year.indexOf('-');
+                    try {
+                        years.add(Integer.parseInt(dash < 0 ? year : year.substring(0, dash)));
+                    } catch (NumberFormatException e) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(years);
+    }
+
+    // National totals for a party over the archived years in [from, to].
+    // Years where the party didn't stand are reported with zero votes and seats.
+    public static List<PartyYear> partyTotals(String partyName, int from, int to) throws IOException {
+        List<PartyYear> result = new ArrayList<>();
+        for (int year : years()) {
+            if (year < from || year > to) {
+                continue;
+            }
+            ElectionArchive a = get(year);
+            int totalSeats = 0;
+            for (int d = 0; d < a.districtCount(); d++) {
+                totalSeats += a.districtField(d, ElectionArchive.D_SEATS);
+            }
+            int p = a.partyIndex(partyName);
+            result.add(new PartyYear(year,
+                    p < 0 ? 0 : a.partyVotes(p), a.totalVotes(),
+                    p < 0 ? 0 : a.partySeats(p), totalSeats,
+                    p < 0 ? 0 : a.partyDistrictsWithSeats(p)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,267 @@
+package backend.archive;
+
+import backend.db.DatabaseConnector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Reads one election year from the database and writes it in the ElectionArchive format
+public class ElectionArchiveWriter {
+
+    private static class District {
+        int districtElectionId;
+        int districtId;
+        String name;
+        int[] fields = new int[ElectionArchive.DISTRICT_INTS];
+        // party index -> {votes, bonus, first, second, final}
+        TreeMap<Integer, int[]> rows = new TreeMap<>();
+    }
+
+    // Returns the number of bytes written; IllegalArgumentException if the year has no results
+    public long write(int year, Path file) throws SQLException, IOException {
+        List<District> districts = new ArrayList<>();
+        Map<Integer, District> byDeId = new HashMap<>();
+        TreeMap<Integer, String> partyNamesById = new TreeMap<>();
+
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT de.district_election_id, d.district_id, d.district_name,
+                           de.total_valid_votes_for_seat, de.disqualify_votes, de.disqualify_party_count, de.threshold_5_percent
+                    FROM district_election de
+                    JOIN district d ON de.district_id = d.district_id
+                    JOIN election e ON de.election_id = e.election_id
+                    WHERE e.year = ?
+                    ORDER BY d.district_name
+                    """)) {
+                ps.setInt(1, year);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        District d = new District();
+                        d.districtElectionId = rs.getInt(1);
+                        d.districtId = rs.getInt(2);
+                        d.name = rs.getString(3);
+                        d.fields[ElectionArchive.D_VALID_VOTES] = rs.getInt(4);
+                        d.fields[ElectionArchive.D_DISQUALIFY_VOTES] = rs.getInt(5);
+                        d.fields[ElectionArchive.D_DISQUALIFY_PARTY_COUNT] = rs.getInt(6);
+                        d.fields[ElectionArchive.D_THRESHOLD] = rs.getInt(7);
+                        d.fields[ElectionArchive.D_DISTRICT_ELECTION_ID] = d.districtElectionId;
+                        districts.add(d);
+                        byDeId.put(d.districtElectionId, d);
+                    }
+                }
+            }
+            if (districts.isEmpty()) {
+                throw new IllegalArgumentException("No results for year " + year + ".");
+            }
+
+            // Per (district, party) values keyed by party_id for now, re-keyed to dictionary index below
+            Map<District, Map<Integer, int[]>> values = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT pv.district_election_id, p.party_id, p.party_name, SUM(pv.votes)
+                    FROM party_votes pv
+                    JOIN party p ON pv.party_id = p.party_id
+                    JOIN district_election de ON pv.district_election_id = de.district_election_id
+                    JOIN election e ON de.election_id = e.election_id
+                    WHERE e.year = ?
+                    GROUP BY pv.district_election_id, p.party_id, p.party_name
+                    """)) {
+                ps.setInt(1, year);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        District d = byDeId.get(rs.getInt(1));
+                        partyNamesById.put(rs.getInt(2), rs.getString(3));
+                        values.computeIfAbsent(d, k -> new HashMap<>())
+                              .computeIfAbsent(rs.getInt(2), k -> new int[5])[0] = Math.toIntExact(rs.getLong(4));
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT sa.district_election_id, p.party_id, p.party_name,
+                           SUM(sa.bonus_round), SUM(sa.first_round), SUM(sa.second_round), SUM(sa.final_allocation)
+                    FROM seat_allocation sa
+                    JOIN party p ON sa.party_id = p.party_id
+                    JOIN district_election de ON sa.district_election_id = de.district_election_id
+                    JOIN election e ON de.election_id = e.election_id
+                    WHERE e.year = ?
+                    GROUP BY sa.district_election_id, p.party_id, p.party_name
+                    """)) {
+                ps.setInt(1, year);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        District d = byDeId.get(rs.getInt(1));
+                        partyNamesById.put(rs.getInt(2), rs.getString(3));
+                        int[] v = values.computeIfAbsent(d, k -> new HashMap<>())
+                                        .computeIfAbsent(rs.getInt(2), k -> new int[5]);
+                        for (int i = 1; i <= 4; i++) {
+                            v[i] = Math.toIntExact(rs.getLong(3 + i));
+                        }
+                    }
+                }
+            }
+
+            Map<Integer, Integer> partyIndex = new HashMap<>();
+            for (int partyId : partyNamesById.keySet()) {
+                partyIndex.put(partyId, partyIndex.size());
+            }
+            for (Map.Entry<District, Map<Integer, int[]>> e : values.entrySet()) {
+                for (Map.Entry<Integer, int[]> row : e.getValue().entrySet()) {
+                    e.getKey().rows.put(partyIndex.get(row.getKey()), row.getValue());
+                }
+            }
+        }
+
+        byte[] bytes = encode(year, districts, partyNamesById);
+        writeAtomically(file, bytes);
+        return bytes.length;
+    }
+
+    private static byte[] encode(int year, List<District> districts, TreeMap<Integer, String> partyNamesById) {
+        int d = districts.size();
+        int p = partyNamesById.size();
+        int r = 0;
+        for (District district : districts) {
+            r += district.rows.size();
+        }
+
+        byte[][] districtNames = new byte[d][];
+        int[] districtIds = new int[d];
+        for (int i = 0; i < d; i++) {
+            districtNames[i] = districts.get(i).name.getBytes(StandardCharsets.UTF_8);
+            districtIds[i] = districts.get(i).districtId;
+        }
+        byte[][] partyNames = new byte[p][];
+        int[] partyIds = new int[p];
+        int i = 0;
+        for (Map.Entry<Integer, String> e : partyNamesById.entrySet()) {
+            partyIds[i] = e.getKey();
+            partyNames[i++] = e.getValue().getBytes(StandardCharsets.UTF_8);
+        }
+
+        int districtDict = ElectionArchive.HEADER_BYTES;
+        int partyDict = districtDict + dictionarySize(districtNames);
+        int districtTable = partyDict + dictionarySize(partyNames);
+        int columns = districtTable + d * ElectionArchive.DISTRICT_INTS * 4;
+        int partyTotals = columns + ElectionArchive.COLUMNS * r * 4;
+        int crcAt = partyTotals + p * ElectionArchive.PARTY_TOTAL_BYTES;
+
+        ByteBuffer out = ByteBuffer.allocate(crcAt + 8).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, ElectionArchive.MAGIC);
+        out.putShort(4, ElectionArchive.VERSION);
+        out.putInt(8, year);
+        out.putInt(12, d);
+        out.putInt(16, p);
+        out.putInt(20, r);
+        out.putLong(24, System.currentTimeMillis());
+        out.putInt(32, districtDict);
+        out.putInt(36, partyDict);
+        out.putInt(40, districtTable);
+        out.putInt(44, columns);
+        out.putInt(48, partyTotals);
+        out.putInt(52, crcAt);
+
+        putDictionary(out, districtDict, districtIds, districtNames);
+        putDictionary(out, partyDict, partyIds, partyNames);
+
+        long[] partyVotes = new long[p];
+        int[] partySeats = new int[p];
+        int[] partyDistricts = new int[p];
+        int row = 0;
+        for (int k = 0; k < d; k++) {
+            District district = districts.get(k);
+            int seats = 0;
+            int first = row;
+            for (Map.Entry<Integer, int[]> e : district.rows.entrySet()) {
+                int party = e.getKey();
+                int[] v = e.getValue();
+                putColumn(out, columns, r, ElectionArchive.COL_PARTY, row, party);
+                putColumn(out, columns, r, ElectionArchive.COL_VOTES, row, v[0]);
+                putColumn(out, columns, r, ElectionArchive.COL_BONUS, row, v[1]);
+                putColumn(out, columns, r, ElectionArchive.COL_FIRST_ROUND, row, v[2]);
+                putColumn(out, columns, r, ElectionArchive.COL_SECOND_ROUND, row, v[3]);
+                putColumn(out, columns, r, ElectionArchive.COL_FINAL, row, v[4]);
+                partyVotes[party] += v[0];
+                partySeats[party] += v[4];
+                if (v[4] > 0) partyDistricts[party]++;
+                seats += v[4];
+                row++;
+            }
+            district.fields[ElectionArchive.D_SEATS] = seats;
+            district.fields[ElectionArchive.D_FIRST_ROW] = first;
+            district.fields[ElectionArchive.D_ROW_COUNT] = row - first;
+            for (int f = 0; f < ElectionArchive.DISTRICT_INTS; f++) {
+                out.putInt(districtTable + (k * ElectionArchive.DISTRICT_INTS + f) * 4, district.fields[f]);
+            }
+        }
+        for (int k = 0; k < p; k++) {
+            int at = partyTotals + k * ElectionArchive.PARTY_TOTAL_BYTES;
+            out.putLong(at, partyVotes[k]);
+            out.putInt(at + 8, partySeats[k]);
+            out.putInt(at + 12, partyDistricts[k]);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, crcAt);
+        out.putLong(crcAt, crc.getValue());
+        return out.array();
+    }
+
+    private static int dictionarySize(byte[][] names) {
+        int blob = 0;
+        for (byte[] name : names) {
+            blob += name.length;
+        }
+        return names.length * 4 + (names.length + 1) * 4 + ((blob + 3) & ~3);
+    }
+
+    private static void putDictionary(ByteBuffer out, int at, int[] ids, byte[][] names) {
+        int n = names.length;
+        int starts = at + n * 4;
+        int blob = starts + (n + 1) * 4;
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            out.putInt(at + i * 4, ids[i]);
+            out.putInt(starts + i * 4, pos);
+            out.put(blob + pos, names[i]);
+            pos += names[i].length;
+        }
+        out.putInt(starts + n * 4, pos);
+    }
+
+    private static void putColumn(ByteBuffer out, int columns, int rows, int col, int row, int value) {
+        out.putInt(columns + (col * rows + row) * 4, value);
+    }
+
+    // file should be a new name (ElectionArchiveStore passes a new version):
+    // replacing a file that is still memory-mapped fails on Windows
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) {
+                ch.write(data);
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,76 @@
+package backend.archive;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Rewritable files that are memory-mapped while in use (archives, snapshots).
+// A mapped file can't be replaced or deleted on Windows, and Java has no way
+// to unmap one, so every rewrite goes to a new name ("<stem>-<version><ext>")
+// and readers switch to it; older versions are deleted once nothing maps them.
+// The unversioned "<stem><ext>" written by older builds counts as version 0.
+public class VersionedFiles {
+
+    // Newest version of stem in dir, or null if there is none
+    public static Path latest(Path dir, String stem, String ext) throws IOException {
+        Path best = null;
+        long bestVersion = -1;
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, stem + "*" + ext)) {
+                for (Path f : files) {
+                    long version = versionOf(f, stem, ext);
+                    if (version > bestVersion) {
+                        best = f;
+                        bestVersion = version;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // A name no existing version uses, newer than all of them
+    public static Path next(Path dir, String stem, String ext) throws IOException {
+        Path current = latest(dir, stem, ext);
+        long version = Math.max(System.currentTimeMillis(), current == null ? 0 : versionOf(current, stem, ext) + 1);
+        return dir.resolve(stem + "-" + version + ext);
+    }
+
+    // Best effort: a version still mapped by this or another process stays until a later rewrite
+    public static void deleteOlder(Path dir, String stem, String ext, Path keep) throws IOException {
+        long keepVersion = versionOf(keep, stem, ext);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, stem + "*" + ext)) {
+            for (Path f : files) {
+                long version = versionOf(f, stem, ext);
+                if (version >= 0 && version < keepVersion) {
+                    try {
+                        Files.deleteIfExists(f);
+                    } catch (IOException e) {
+                        // still mapped
+                    }
+                }
+            }
+        }
+    }
+
+    // -1 when the file isn't a version of stem (e.g. election-20245 for stem election-2024)
+    static long versionOf(Path file, String stem, String ext) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(stem) || !name.endsWith(ext) || name.length() < stem.length() + ext.length()) {
+            return -1;
+        }
+        String rest = name.substring(stem.length(), name.length() - ext.length());
+        if (rest.isEmpty()) {
+            return 0;
+        }
+        if (rest.length() < 2 || rest.charAt(0) != '-') {
+            return -1;
+        }
+        try {
+            return Long.parseLong(rest.substring(1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package backend.config;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+// Central place to read runtime settings.
+// Lookup order: -Delection.some.key=value, then ELECTION_SOME_KEY env var,
+// then election.properties in the working directory, then the given default.
+public class AppConfig {
+    private static final String CONFIG_FILE = "election.properties";
+    private static final Properties fileProps = new Properties();
+
+    static {
+        try (InputStream in = new FileInputStream(CONFIG_FILE)) {
+            fileProps.load(in);
+            System.out.println("✅ Loaded settings from " + CONFIG_FILE);
+        } catch (IOException e) {
+            // No config file is fine, defaults are used
+        }
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null) {
+            value = fileProps.getProperty(key);
+        }
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid number for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid number for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,250 @@
+package backend.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import backend.apportionment.ApportionmentMethod;
+import backend.db.DatabaseConnector;
+import backend.services.SeatCalculator;
+import backend.services.SwingService;
+import backend.services.TrendIndex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cross-year analytics, answered from in-memory indexes
+// GET /analytics/trend?party=A&from=2000&to=2024  => per-year national and per-district vote share and seats
+// GET /analytics/swing?from=2015&to=2020           => per-district and national swing / seat change between two years
+// GET /analytics/apportion?method=dhondt&seats=10&votes=A:600,B:400,C:10[&threshold=5][&total=1010]
+//     /analytics/apportion?method=all&year=2020&district=Colombo
+//                                                   => seats under one or every apportionment method
+public class AnalyticsHandler implements HttpHandler {
+    // A what-if allocates seat by seat, so seats is capped (a whole parliament still fits)
+    static final int MAX_SEATS = 1000;
+
+    private final SwingService swingService = new SwingService();
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+
+        if (!method.equals("GET")) {
+            exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            return;
+        }
+        try {
+            if (path.equals("/analytics/trend")) {
+                trend(exchange);
+            } else if (path.equals("/analytics/swing")) {
+                swing(exchange);
+            } else if (path.equals("/analytics/apportion")) {
+                apportion(exchange);
+            } else {
+                sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"Unknown analytics path.\"}");
+            }
+        } catch (Exception e) {
+            sendJson(exchange, 500, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        }
+    }
+
+    private void trend(HttpExchange exchange) throws Exception {
+        String query = exchange.getRequestURI().getRawQuery();
+        String party = ArchiveHandler.queryParam(query, "party");
+        if (party == null || party.isEmpty()) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Missing required parameter: party\"}");
+            return;
+        }
+        int from;
+        int to;
+        try {
+            from = Integer.parseInt(ArchiveHandler.queryParam(query, "from", "0"));
+            to = Integer.parseInt(ArchiveHandler.queryParam(query, "to", String.valueOf(Integer.MAX_VALUE)));
+        } catch (NumberFormatException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"from and to must be years\"}");
+            return;
+        }
+        if (from > to) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"from must not be after to\"}");
+            return;
+        }
+        sendJson(exchange, 200, TrendIndex.trendJson(party, from, to));
+    }
+
+    private void swing(HttpExchange exchange) throws Exception {
+        String query = exchange.getRequestURI().getRawQuery();
+        int from;
+        int to;
+        try {
+            from = Integer.parseInt(ArchiveHandler.queryParam(query, "from", ""));
+            to = Integer.parseInt(ArchiveHandler.queryParam(query, "to", ""));
+        } catch (NumberFormatException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Required parameters: from and to (years)\"}");
+            return;
+        }
+        String json = swingService.swingJson(from, to);
+        if (json == null) {
+            sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"No results for " + from + " or " + to + ".\"}");
+            return;
+        }
+        sendJson(exchange, 200, json);
+    }
+
+    private void apportion(HttpExchange exchange) throws Exception {
+        String query = exchange.getRequestURI().getRawQuery();
+        String methodName = ArchiveHandler.queryParam(query, "method", "sri_lanka");
+        List<ApportionmentMethod> methods;
+        if (methodName.equals("all")) {
+            methods = ApportionmentMethod.all();
+        } else if (ApportionmentMethod.forName(methodName) != null) {
+            methods = List.of(ApportionmentMethod.forName(methodName));
+        } else {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Unknown method; use one of "
+                    + ApportionmentMethod.METHODS.keySet() + " or all\"}");
+            return;
+        }
+
+        int seats;
+        int totalValidVotes;
+        int voteSum = 0;
+        int threshold;
+        List<String> parties = new ArrayList<>();
+        List<Integer> votes = new ArrayList<>();
+        try {
+            threshold = Integer.parseInt(ArchiveHandler.queryParam(query, "threshold", "5"));
+            String votesParam = ArchiveHandler.queryParam(query, "votes");
+            if (votesParam != null) {
+                // votes=A:600,B:400
+                for (String pair : votesParam.split(",")) {
+                    int colon = pair.lastIndexOf(':');
+                    parties.add(pair.substring(0, colon).trim());
+                    votes.add(Integer.parseInt(pair.substring(colon + 1).trim()));
+                }
+                seats = Integer.parseInt(ArchiveHandler.queryParam(query, "seats", ""));
+                voteSum = Math.toIntExact(votes.stream().mapToLong(Integer::longValue).sum()); // too many votes -> 400
+                totalValidVotes = Integer.parseInt(ArchiveHandler.queryParam(query, "total", String.valueOf(voteSum)));
+            } else {
+                int year = Integer.parseInt(ArchiveHandler.queryParam(query, "year", ""));
+                String district = ArchiveHandler.queryParam(query, "district", "");
+                int[] stored = loadDistrict(year, district, parties, votes);
+                if (stored == null) {
+                    sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"No results for " + district.replace("\"", "'") + " in " + year + ".\"}");
+                    return;
+                }
+                seats = stored[0];
+                totalValidVotes = stored[1];
+            }
+        } catch (RuntimeException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Give seats and votes=Party:votes,... or year and district\"}");
+            return;
+        }
+        String invalid = null;
+        if (seats < 1 || seats > MAX_SEATS) {
+            invalid = "seats must be between 1 and " + MAX_SEATS;
+        } else if (threshold < 0 || threshold > 100) {
+            invalid = "threshold must be between 0 and 100";
+        } else if (parties.isEmpty()) {
+            invalid = "votes must list at least one party";
+        } else if (totalValidVotes < 0 || votes.stream().anyMatch(v -> v < 0)) {
+            invalid = "votes can't be negative";
+        } else if (totalValidVotes < voteSum) {
+            invalid = "total can't be less than the sum of the party votes";
+        }
+        if (invalid != null) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"" + invalid + "\"}");
+            return;
+        }
+
+        int[] voteArray = votes.stream().mapToInt(Integer::intValue).toArray();
+        StringBuilder json = new StringBuilder();
+        json.append("{\"seats\":").append(seats)
+            .append(",\"total_valid_votes\":").append(totalValidVotes)
+            .append(",\"threshold_percent\":").append(threshold)
+            .append(",\"methods\":[");
+        for (int m = 0; m < methods.size(); m++) {
+            long start = System.nanoTime();
+            SeatCalculator.Allocation a = methods.get(m).allocate(seats, totalValidVotes, voteArray, threshold);
+            long micros = (System.nanoTime() - start) / 1000;
+            if (m > 0) json.append(",");
+            json.append("{\"method\":\"").append(methods.get(m).name())
+                .append("\",\"threshold_votes\":").append(a.threshold)
+                .append(",\"elapsed_us\":").append(micros)
+                .append(",\"parties\":[");
+            for (int i = 0; i < voteArray.length; i++) {
+                if (i > 0) json.append(",");
+                json.append("{\"party\":\"").append(parties.get(i).replace("\"", "\\\""))
+                    .append("\",\"votes\":").append(voteArray[i])
+                    .append(",\"bonus\":").append(a.bonusRoundSeats[i])
+                    .append(",\"first_round\":").append(a.firstRoundSeats[i])
+                    .append(",\"second_round\":").append(a.secondRoundSeats[i])
+                    .append(",\"seats\":").append(a.finalSeats[i])
+                    .append("}");
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    // Fills parties / votes for a stored district result; returns {seat_count, total_valid_votes} or null
+    private int[] loadDistrict(int year, String district, List<String> parties, List<Integer> votes) throws SQLException {
+        int[] result = null;
+        int districtElectionId = -1;
+        // Primary, like TrendIndex: a what-if right after a save must start from the saved result
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT de.district_election_id, d.seat_count, de.total_valid_votes_for_seat
+                    FROM district_election de
+                    JOIN district d ON de.district_id = d.district_id
+                    JOIN election e ON de.election_id = e.election_id
+                    WHERE e.year = ? AND LOWER(d.district_name) = LOWER(?)
+                    ORDER BY de.district_election_id
+                    """)) {
+                ps.setInt(1, year);
+                ps.setString(2, district);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        districtElectionId = rs.getInt(1);
+                        result = new int[] {rs.getInt(2), rs.getInt(3)};
+                    }
+                }
+            }
+            if (result == null) {
+                return null;
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT p.party_name, SUM(pv.votes)
+                    FROM party_votes pv
+                    JOIN party p ON pv.party_id = p.party_id
+                    WHERE pv.district_election_id = ?
+                    GROUP BY p.party_name
+                    ORDER BY MIN(pv.party_votes_id)
+                    """)) {
+                ps.setInt(1, districtElectionId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        parties.add(rs.getString(1));
+                        votes.add(rs.getInt(2));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package backend.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import backend.archive.ElectionArchive;
+import backend.archive.ElectionArchiveStore;
+import backend.apportionment.VoteMath;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Historical elections from the mapped archive files, no DB access on reads
+// GET  /archive                                            => archived years
+// POST /archive/{year}                                     => (re)build the archive for a year from the DB
+// GET  /archive/party-totals?party=A&from=1990&to=2024     => national votes / seats per archived year
+public class ArchiveHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+
+        try {
+            if (method.equals("GET") && path.equals("/archive")) {
+                sendJson(exchange, 200, "{\"years\":" + ElectionArchiveStore.years() + "}");
+            } else if (method.equals("GET") && path.equals("/archive/party-totals")) {
+                partyTotals(exchange);
+            } else if (method.equals("POST") && path.matches("/archive/\\d{1,9}")) {
+                int year = Integer.parseInt(path.substring("/archive/".length()));
+                ElectionArchive archive = ElectionArchiveStore.archive(year);
+                sendJson(exchange, 201, "{\"status\":\"success\",\"year\":" + year
+                        + ",\"districts\":" + archive.districtCount()
+                        + ",\"parties\":" + archive.partyCount()
+                        + ",\"rows\":" + archive.rowCount()
+                        + ",\"bytes\":" + archive.sizeBytes() + "}");
+            } else if (method.equals("GET") || method.equals("POST")) {
+                sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"Unknown archive path.\"}");
+            } else {
+                exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            }
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        } catch (Exception e) {
+            sendJson(exchange, 500, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        }
+    }
+
+    private void partyTotals(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String party = queryParam(query, "party");
+        if (party == null || party.isEmpty()) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Missing required parameter: party\"}");
+            return;
+        }
+        int from;
+        int to;
+        try {
+            from = Integer.parseInt(queryParam(query, "from", "0"));
+            to = Integer.parseInt(queryParam(query, "to", String.valueOf(Integer.MAX_VALUE)));
+        } catch (NumberFormatException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"from and to must be years\"}");
+            return;
+        }
+
+        List<ElectionArchiveStore.PartyYear> years = ElectionArchiveStore.partyTotals(party, from, to);
+        StringBuilder json = new StringBuilder();
+        json.append("{\"party\":\"").append(party.replace("\"", "\\\"")).append("\",\"years\":[");
+        for (int i = 0; i < years.size(); i++) {
+            ElectionArchiveStore.PartyYear y = years.get(i);
+            if (i > 0) json.append(",");
+            json.append("{\"year\":").append(y.year)
+                .append(",\"votes\":").append(y.votes)
+                .append(",\"total_votes\":").append(y.totalVotes)
+                .append(",\"vote_share\":").append(VoteMath.formatHundredths(y.voteShareHundredths()))
+                .append(",\"seats\":").append(y.seats)
+                .append(",\"total_seats\":").append(y.totalSeats)
+                .append(",\"districts_with_seats\":").append(y.districtsWithSeats)
+                .append("}");
+        }
+        json.append("]}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    static String queryParam(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    static String queryParam(String rawQuery, String name, String defaultValue) {
+        String value = queryParam(rawQuery, name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -3,12 +3,15 @@ package backend.controller;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import backend.db.DatabaseConnector;
+import backend.services.ResultSnapshot;
+import backend.services.ResultSnapshotService;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLIntegrityConstraintViolationException;
 
 public class DistrictElectionHandler implements HttpHandler {
    @Override
@@ -127,35 +130,22 @@ public void handle(HttpExchange exchange) throws IOException {
     }
     // GetAll District Elections
     private void getDistrictElections(HttpExchange exchange) throws IOException {
-        StringBuilder response = new StringBuilder();
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT de.district_election_id, d.district_name, e.year, " +
-                     "de.total_valid_votes_for_seat, de.disqualify_votes, de.disqualify_party_count, de.threshold_5_percent " +
-                     "FROM district_election de " +
-                     "JOIN district d ON de.district_id = d.district_id " +
-                     "JOIN election e ON de.election_id = e.election_id " +
-                     "ORDER BY e.year DESC, d.district_name");
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                response.append("ID: ").append(rs.getInt("district_election_id"))
+        StreamingResponse.sendTextRows(exchange,
+                "SELECT de.district_election_id, d.district_name, e.year, " +
+                "de.total_valid_votes_for_seat, de.disqualify_votes, de.disqualify_party_count, de.threshold_5_percent " +
+                "FROM district_election de " +
+                "JOIN district d ON de.district_id = d.district_id " +
+                "JOIN election e ON de.election_id = e.election_id " +
+                "ORDER BY e.year DESC, d.district_name",
+                null,
+                (rs, out) -> out.append("ID: ").append(String.valueOf(rs.getInt("district_election_id")))
                         .append(", District: ").append(rs.getString("district_name"))
-                        .append(", Year: ").append(rs.getInt("year"))
-                        .append(", Valid Votes: ").append(rs.getInt("total_valid_votes_for_seat"))
-                        .append(", Disqualify Votes: ").append(rs.getInt("disqualify_votes"))
-                        .append(", Disqualify Party Count: ").append(rs.getInt("disqualify_party_count"))
-                        .append(", Threshold 5%: ").append(rs.getInt("threshold_5_percent"))
-                        .append("\n");
-            }
-        } catch (Exception e) {
-            response.append("❌ Error: ").append(e.getMessage());
-        }
-        byte[] respBytes = response.toString().getBytes();
-        exchange.sendResponseHeaders(200, respBytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(respBytes);
-        }
+                        .append(", Year: ").append(String.valueOf(rs.getInt("year")))
+                        .append(", Valid Votes: ").append(String.valueOf(rs.getInt("total_valid_votes_for_seat")))
+                        .append(", Disqualify Votes: ").append(String.valueOf(rs.getInt("disqualify_votes")))
+                        .append(", Disqualify Party Count: ").append(String.valueOf(rs.getInt("disqualify_party_count")))
+                        .append(", Threshold 5%: ").append(String.valueOf(rs.getInt("threshold_5_percent")))
+                        .append("\n"));
     }
 
 // Create District Election
@@ -221,32 +211,42 @@ public void handle(HttpExchange exchange) throws IOException {
 
     String response;
     int statusCode;
-    try (Connection conn = DatabaseConnector.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO district_election (total_valid_votes_for_seat, disqualify_votes, disqualify_party_count, threshold_5_percent, district_id, election_id) " +
-                         "VALUES (?, ?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS)) {
-        stmt.setInt(1, totalValidVotes);
-        stmt.setInt(2, disqualifyVotes);
-        stmt.setInt(3, disqualifyPartyCount);
-        stmt.setInt(4, threshold5Percent);
-        stmt.setInt(5, districtId);
-        stmt.setInt(6, electionId);
-        int affectedRows = stmt.executeUpdate();
-        if (affectedRows > 0) {
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    int districtElectionId = rs.getInt(1);
-                    response = "{\"status\":\"success\",\"message\":\"District election created successfully\",\"district_election_id\":" + districtElectionId + "}";
-                    statusCode = 201;
-                } else {
-                    response = "{\"status\":\"success\",\"message\":\"District election created, but could not retrieve ID.\"}";
-                    statusCode = 201;
+    try (Connection conn = DatabaseConnector.getConnection()) {
+        conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+        ResultSnapshotService.requireOpenElection(conn, electionId);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO district_election (total_valid_votes_for_seat, disqualify_votes, disqualify_party_count, threshold_5_percent, district_id, election_id) " +
+                             "VALUES (?, ?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, totalValidVotes);
+            stmt.setInt(2, disqualifyVotes);
+            stmt.setInt(3, disqualifyPartyCount);
+            stmt.setInt(4, threshold5Percent);
+            stmt.setInt(5, districtId);
+            stmt.setInt(6, electionId);
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        int districtElectionId = rs.getInt(1);
+                        response = "{\"status\":\"success\",\"message\":\"District election created successfully\",\"district_election_id\":" + districtElectionId + "}";
+                        statusCode = 201;
+                    } else {
+                        response = "{\"status\":\"success\",\"message\":\"District election created, but could not retrieve ID.\"}";
+                        statusCode = 201;
+                    }
                 }
+            } else {
+                response = "{\"status\":\"error\",\"message\":\"Failed to create district election.\"}";
+                statusCode = 500;
             }
-        } else {
-            response = "{\"status\":\"error\",\"message\":\"Failed to create district election.\"}";
-            statusCode = 500;
         }
+        conn.commit();
+    } catch (IllegalStateException e) {
+        response = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+        statusCode = 409;
+    } catch (SQLIntegrityConstraintViolationException e) {
+        response = "{\"status\":\"error\",\"message\":\"The district already has results for this election.\"}";
+        statusCode = 409;
     } catch (Exception e) {
         response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
         statusCode = 500;
@@ -310,24 +310,36 @@ private void updateDistrictElection(HttpExchange exchange, int districtElectionI
 
     String response;
     int statusCode;
-    try (Connection conn = DatabaseConnector.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-                 "UPDATE district_election SET total_valid_votes_for_seat = ?, disqualify_votes = ?, disqualify_party_count = ?, threshold_5_percent = ?, district_id = ?, election_id = ? WHERE district_election_id = ?")) {
-        stmt.setInt(1, totalValidVotes);
-        stmt.setInt(2, disqualifyVotes);
-        stmt.setInt(3, disqualifyPartyCount);
-        stmt.setInt(4, threshold5Percent);
-        stmt.setInt(5, districtId);
-        stmt.setInt(6, electionId);
-        stmt.setInt(7, districtElectionId);
-        int affectedRows = stmt.executeUpdate();
-        if (affectedRows > 0) {
-            response = "{\"status\":\"success\",\"message\":\"District election updated successfully.\"}";
-            statusCode = 200;
-        } else {
-            response = "{\"status\":\"error\",\"message\":\"District election not found or not updated.\"}";
-            statusCode = 404;
+    try (Connection conn = DatabaseConnector.getConnection()) {
+        conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+        // Both the year the row is in now and the one it moves to must be open
+        ResultSnapshotService.requireOpenDistrictElection(conn, districtElectionId);
+        ResultSnapshotService.requireOpenElection(conn, electionId);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE district_election SET total_valid_votes_for_seat = ?, disqualify_votes = ?, disqualify_party_count = ?, threshold_5_percent = ?, district_id = ?, election_id = ? WHERE district_election_id = ?")) {
+            stmt.setInt(1, totalValidVotes);
+            stmt.setInt(2, disqualifyVotes);
+            stmt.setInt(3, disqualifyPartyCount);
+            stmt.setInt(4, threshold5Percent);
+            stmt.setInt(5, districtId);
+            stmt.setInt(6, electionId);
+            stmt.setInt(7, districtElectionId);
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                response = "{\"status\":\"success\",\"message\":\"District election updated successfully.\"}";
+                statusCode = 200;
+            } else {
+                response = "{\"status\":\"error\",\"message\":\"District election not found or not updated.\"}";
+                statusCode = 404;
+            }
         }
+        conn.commit();
+    } catch (IllegalStateException e) {
+        response = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+        statusCode = 409;
+    } catch (SQLIntegrityConstraintViolationException e) {
+        response = "{\"status\":\"error\",\"message\":\"The district already has results for this election.\"}";
+        statusCode = 409;
     } catch (Exception e) {
         response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
         statusCode = 500;
@@ -353,18 +365,25 @@ private void deleteDistrictElection(HttpExchange exchange, int districtElectionI
 
     String response;
     int statusCode;
-    try (Connection conn = DatabaseConnector.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-                 "DELETE FROM district_election WHERE district_election_id = ?")) {
-        stmt.setInt(1, districtElectionId);
-        int affectedRows = stmt.executeUpdate();
-        if (affectedRows > 0) {
-            response = "{\"status\":\"success\",\"message\":\"District election deleted successfully.\"}";
-            statusCode = 200;
-        } else {
-            response = "{\"status\":\"error\",\"message\":\"District election not found.\"}";
-            statusCode = 404;
+    try (Connection conn = DatabaseConnector.getConnection()) {
+        conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+        ResultSnapshotService.requireOpenDistrictElection(conn, districtElectionId);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM district_election WHERE district_election_id = ?")) {
+            stmt.setInt(1, districtElectionId);
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                response = "{\"status\":\"success\",\"message\":\"District election deleted successfully.\"}";
+                statusCode = 200;
+            } else {
+                response = "{\"status\":\"error\",\"message\":\"District election not found.\"}";
+                statusCode = 404;
+            }
         }
+        conn.commit();
+    } catch (IllegalStateException e) {
+        response = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+        statusCode = 409;
     } catch (Exception e) {
         response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
         statusCode = 500;
@@ -378,37 +397,32 @@ private void deleteDistrictElection(HttpExchange exchange, int districtElectionI
 
 // Get all district elections for all districts by year
     private void get_DistrictElection_AllDistrictByYear(HttpExchange exchange, int year) throws IOException {
-        StringBuilder response = new StringBuilder();
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT de.district_election_id, d.district_name, e.year, " +
-                     "de.total_valid_votes_for_seat, de.disqualify_votes, de.disqualify_party_count, de.threshold_5_percent " +
-                     "FROM district_election de " +
-                     "JOIN district d ON de.district_id = d.district_id " +
-                     "JOIN election e ON de.election_id = e.election_id " +
-                     "WHERE e.year = ? " +
-                     "ORDER BY d.district_name")) {
-            stmt.setInt(1, year);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    response.append("ID: ").append(rs.getInt("district_election_id"))
-                            .append(", District: ").append(rs.getString("district_name"))
-                            .append(", Year: ").append(rs.getInt("year"))
-                            .append(", Valid Votes: ").append(rs.getInt("total_valid_votes_for_seat"))
-                            .append(", Disqualify Votes: ").append(rs.getInt("disqualify_votes"))
-                            .append(", Disqualify Party Count: ").append(rs.getInt("disqualify_party_count"))
-                            .append(", Threshold 5%: ").append(rs.getInt("threshold_5_percent"))
-                            .append("\n");
-                }
+        ResultSnapshot snapshot = ResultSnapshotService.get(year);
+        if (snapshot != null) {
+            int length = snapshot.districtViewLength();
+            exchange.sendResponseHeaders(200, length == 0 ? -1 : length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                snapshot.writeDistrictView(os);
             }
-        } catch (Exception e) {
-            response.append("❌ Error: ").append(e.getMessage());
-        }
-        byte[] respBytes = response.toString().getBytes();
-        exchange.sendResponseHeaders(200, respBytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(respBytes);
+            return;
         }
+        StreamingResponse.sendTextRows(exchange,
+                "SELECT de.district_election_id, d.district_name, e.year, " +
+                "de.total_valid_votes_for_seat, de.disqualify_votes, de.disqualify_party_count, de.threshold_5_percent " +
+                "FROM district_election de " +
+                "JOIN district d ON de.district_id = d.district_id " +
+                "JOIN election e ON de.election_id = e.election_id " +
+                "WHERE e.year = ? " +
+                "ORDER BY d.district_name",
+                stmt -> stmt.setInt(1, year),
+                (rs, out) -> out.append("ID: ").append(String.valueOf(rs.getInt("district_election_id")))
+                        .append(", District: ").append(rs.getString("district_name"))
+                        .append(", Year: ").append(String.valueOf(rs.getInt("year")))
+                        .append(", Valid Votes: ").append(String.valueOf(rs.getInt("total_valid_votes_for_seat")))
+                        .append(", Disqualify Votes: ").append(String.valueOf(rs.getInt("disqualify_votes")))
+                        .append(", Disqualify Party Count: ").append(String.valueOf(rs.getInt("disqualify_party_count")))
+                        .append(", Threshold 5%: ").append(String.valueOf(rs.getInt("threshold_5_percent")))
+                        .append("\n"));
     }
 
 // Helper for basic JSON integer extraction
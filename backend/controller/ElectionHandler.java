@@ -3,6 +3,8 @@ package backend.controller;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import backend.db.DatabaseConnector;
+import backend.services.RecalculationService;
+import backend.services.ResultSnapshotService;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -29,6 +31,11 @@ public class ElectionHandler implements HttpHandler {
         switch (method) {
             
             case "GET":
+                // /election/{year}/recalculate => progress of the last recalculation job
+                if (parts.length == 4 && parts[3].equals("recalculate")) {
+                    recalculationStatus(exchange, parts[2]);
+                    return;
+                }
                 // Check if path is /election/{year}
                 if (parts.length == 3 && !parts[2].isEmpty()) {
                     try {
@@ -55,7 +62,15 @@ public class ElectionHandler implements HttpHandler {
                 break;
                 
             case "POST":
-                createElection(exchange);
+                // /election/{year}/finalize freezes the year and builds its result snapshot
+                if (parts.length == 4 && parts[3].equals("finalize")) {
+                    finalizeElection(exchange, parts[2]);
+                } else if (parts.length == 4 && parts[3].equals("recalculate")) {
+                    // /election/{year}/recalculate recomputes every district's seats in the background
+                    startRecalculation(exchange, parts[2]);
+                } else {
+                    createElection(exchange);
+                }
                 break;
             case "DELETE":
                 // Extract year from URL path and pass to deleteElection
@@ -251,6 +266,80 @@ public class ElectionHandler implements HttpHandler {
         }
     }
 
+    private void finalizeElection(HttpExchange exchange, String yearPart) throws IOException {
+        int year;
+        try {
+            year = Integer.parseInt(yearPart);
+        } catch (NumberFormatException e) {
+            year = -1;
+        }
+        String response;
+        int statusCode;
+        if (year <= 0) {
+            response = "{\"status\":\"error\",\"message\":\"Year must be a positive, non-zero value.\"}";
+            statusCode = 400;
+        } else {
+            try {
+                ResultSnapshotService.FinalizeResult result = new ResultSnapshotService().finalizeYear(year);
+                response = "{\"status\":\"success\",\"year\":" + year
+                        + ",\"already_finalized\":" + result.alreadyFinalized
+                        + ",\"snapshot_bytes\":" + result.snapshot.getSizeBytes() + "}";
+                statusCode = 200;
+            } catch (IllegalArgumentException e) {
+                response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
+                statusCode = 404;
+            } catch (Exception e) {
+                response = "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}";
+                statusCode = 500;
+            }
+        }
+        byte[] respBytes = response.getBytes();
+        exchange.sendResponseHeaders(statusCode, respBytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(respBytes);
+        }
+    }
+
+    private void startRecalculation(HttpExchange exchange, String yearPart) throws IOException {
+        int year = parseYear(yearPart);
+        if (year <= 0) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Year must be a positive, non-zero value.\"}");
+            return;
+        }
+        try {
+            RecalculationService.Job job = RecalculationService.start(year);
+            sendJson(exchange, 202, job.toJson());
+        } catch (IllegalStateException e) {
+            sendJson(exchange, 409, "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}");
+        }
+    }
+
+    private void recalculationStatus(HttpExchange exchange, String yearPart) throws IOException {
+        int year = parseYear(yearPart);
+        RecalculationService.Job job = year > 0 ? RecalculationService.getJob(year) : null;
+        if (job == null) {
+            sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"No recalculation has run for this year.\"}");
+            return;
+        }
+        sendJson(exchange, 200, job.toJson());
+    }
+
+    private int parseYear(String yearPart) {
+        try {
+            return Integer.parseInt(yearPart);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] respBytes = json.getBytes();
+        exchange.sendResponseHeaders(statusCode, respBytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(respBytes);
+        }
+    }
+
     // Fetch a particular election by year
     private void getElectionByYear(HttpExchange exchange, int year) throws IOException {
         StringBuilder response = new StringBuilder();
@@ -3,6 +3,8 @@ package backend.controller;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import backend.db.DatabaseConnector;
+import backend.services.ResultSnapshot;
+import backend.services.ResultSnapshotService;
 
 import java.io.IOException;
 // import java.io.InputStream;
@@ -391,6 +393,16 @@ private void deleteParty(HttpExchange exchange) throws IOException {
             return;
         }
 
+        ResultSnapshot snapshot = ResultSnapshotService.get(year);
+        if (snapshot != null) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, snapshot.partyViewLength());
+            try (OutputStream os = exchange.getResponseBody()) {
+                snapshot.writePartyView(os);
+            }
+            return;
+        }
+
         StringBuilder json = new StringBuilder();
         json.append("[");
         boolean first = true;
@@ -400,7 +412,8 @@ private void deleteParty(HttpExchange exchange) throws IOException {
             "JOIN party_votes pv ON p.party_id = pv.party_id " +
             "JOIN district_election de ON pv.district_election_id = de.district_election_id " +
             "JOIN election e ON de.election_id = e.election_id " +
-            "WHERE e.year = ?";
+            "WHERE e.year = ? " +
+            "ORDER BY p.party_id"; // same order as the finalized snapshot
         try (Connection conn = DatabaseConnector.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, year);
@@ -3,11 +3,14 @@ package backend.controller;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import backend.db.DatabaseConnector;
+import backend.services.ResultSnapshotService;
+import backend.services.VoteIngestService;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-// import java.io.InputStreamReader;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-// import java.nio.charset.StandardCharsets;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -28,7 +31,11 @@ public class PartyVotesHandler implements HttpHandler {
                 }
                 break;
             case "POST":
-                createPartyVotes(exchange);
+                if (path.endsWith("/parties_votes/bulk")) {
+                    bulkCreatePartyVotes(exchange);
+                } else {
+                    createPartyVotes(exchange);
+                }
                 break;
             default:
                 exchange.sendResponseHeaders(405, -1); // Method Not Allowed
@@ -37,31 +44,18 @@ public class PartyVotesHandler implements HttpHandler {
     }
 
     private void getPartyVotes(HttpExchange exchange) throws IOException {
-        StringBuilder response = new StringBuilder();
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT pv.party_votes_id, p.party_name, pv.votes, de.district_election_id " +
-                     "FROM party_votes pv " +
-                     "JOIN party p ON pv.party_id = p.party_id " +
-                     "JOIN district_election de ON pv.district_election_id = de.district_election_id " +
-                     "ORDER BY de.district_election_id, p.party_name");
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                response.append("PartyVotesID: ").append(rs.getInt("party_votes_id"))
+        StreamingResponse.sendTextRows(exchange,
+                "SELECT pv.party_votes_id, p.party_name, pv.votes, de.district_election_id " +
+                "FROM party_votes pv " +
+                "JOIN party p ON pv.party_id = p.party_id " +
+                "JOIN district_election de ON pv.district_election_id = de.district_election_id " +
+                "ORDER BY de.district_election_id, p.party_name",
+                null,
+                (rs, out) -> out.append("PartyVotesID: ").append(String.valueOf(rs.getInt("party_votes_id")))
                         .append(", Party: ").append(rs.getString("party_name"))
-                        .append(", Votes: ").append(rs.getInt("votes"))
-                        .append(", DistrictElectionID: ").append(rs.getInt("district_election_id"))
-                        .append("\n");
-            }
-        } catch (Exception e) {
-            response.append("❌ Error: ").append(e.getMessage());
-        }
-        byte[] respBytes = response.toString().getBytes();
-        exchange.sendResponseHeaders(200, respBytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(respBytes);
-        }
+                        .append(", Votes: ").append(String.valueOf(rs.getInt("votes")))
+                        .append(", DistrictElectionID: ").append(String.valueOf(rs.getInt("district_election_id")))
+                        .append("\n"));
     }
 
     private void createPartyVotes(HttpExchange exchange) throws IOException {
@@ -96,29 +90,36 @@ public class PartyVotesHandler implements HttpHandler {
         }
 
         String response;
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO party_votes (votes, district_election_id, party_id) VALUES (?, ?, ?)",
-                     PreparedStatement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, votes);
-            stmt.setInt(2, districtElectionId);
-            stmt.setInt(3, partyId);
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows > 0) {
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        int partyVotesId = rs.getInt(1);
-                        response = "Party votes created successfully with ID: " + partyVotesId;
-                        exchange.sendResponseHeaders(201, response.length());
-                    } else {
-                        response = "Party votes created, but could not retrieve ID.";
-                        exchange.sendResponseHeaders(201, response.length());
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+            ResultSnapshotService.requireOpenDistrictElection(conn, districtElectionId);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO party_votes (votes, district_election_id, party_id) VALUES (?, ?, ?)",
+                         PreparedStatement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, votes);
+                stmt.setInt(2, districtElectionId);
+                stmt.setInt(3, partyId);
+                int affectedRows = stmt.executeUpdate();
+                conn.commit();
+                if (affectedRows > 0) {
+                    try (ResultSet rs = stmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            int partyVotesId = rs.getInt(1);
+                            response = "Party votes created successfully with ID: " + partyVotesId;
+                            exchange.sendResponseHeaders(201, response.length());
+                        } else {
+                            response = "Party votes created, but could not retrieve ID.";
+                            exchange.sendResponseHeaders(201, response.length());
+                        }
                     }
+                } else {
+                    response = "Failed to create party votes.";
+                    exchange.sendResponseHeaders(500, response.length());
                 }
-            } else {
-                response = "Failed to create party votes.";
-                exchange.sendResponseHeaders(500, response.length());
             }
+        } catch (IllegalStateException e) {
+            response = "❌ " + e.getMessage();
+            exchange.sendResponseHeaders(409, response.getBytes().length);
         } catch (Exception e) {
             response = "❌ Error: " + e.getMessage();
             exchange.sendResponseHeaders(500, response.length());
@@ -128,6 +129,61 @@ public class PartyVotesHandler implements HttpHandler {
         }
     }
 
+    // Bulk insert: POST /parties_votes/bulk
+    // Body is CSV (Content-Type: text/csv or ?format=csv) with lines "district_election_id,party_id,votes",
+    // otherwise NDJSON with one {"district_election_id":1,"party_id":2,"votes":1234} per line.
+    // Rows are committed in chunks; if one fails the 500 body carries committed_through_line,
+    // and resending the same body with ?resume_after_line=<that> picks up where it stopped.
+    private void bulkCreatePartyVotes(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String query = exchange.getRequestURI().getQuery();
+        boolean csv = (contentType != null && contentType.toLowerCase().contains("csv"))
+                || (query != null && query.contains("format=csv"));
+
+        String response;
+        int statusCode;
+        long resumeAfterLine = resumeAfterLine(query);
+        if (resumeAfterLine < 0) {
+            response = "{\"status\":\"error\",\"message\":\"resume_after_line must be a line number.\"}";
+            statusCode = 400;
+        } else {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), 64 * 1024)) {
+                VoteIngestService.Result result = new VoteIngestService().ingest(reader, csv, resumeAfterLine);
+                response = result.toJson();
+                if (result.error != null) {
+                    statusCode = 500;
+                } else {
+                    statusCode = result.inserted > 0 || result.rejected == 0 ? 201 : 400;
+                }
+            } catch (Exception e) {
+                response = "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}";
+                statusCode = 500;
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response.getBytes());
+        }
+    }
+
+    // -1 when the parameter is not a line number
+    private static long resumeAfterLine(String query) {
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("resume_after_line=")) {
+                    try {
+                        return Math.max(-1, Long.parseLong(param.substring("resume_after_line=".length())));
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
     // Updated function to get total votes for a party in a district using JSON body
     private void totalVotesPartyDistrict(HttpExchange exchange, String path) throws IOException {
         // Extract party name from path: /parties_votes/total_votes/{party_name}
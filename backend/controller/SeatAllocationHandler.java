@@ -3,6 +3,8 @@ package backend.controller;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import backend.db.DatabaseConnector;
+import backend.services.ResultSnapshot;
+import backend.services.ResultSnapshotService;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -56,36 +58,23 @@ public class SeatAllocationHandler implements HttpHandler {
     }
 
     private void getSeatAllocations(HttpExchange exchange) throws IOException {
-        StringBuilder response = new StringBuilder();
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT sa.seat_allocation_id, d.district_name, p.party_name, " +
-                     "sa.bonus_round, sa.first_round, sa.second_round, sa.final_allocation " +
-                     "FROM seat_allocation sa " +
-                     "JOIN district_election de ON sa.district_election_id = de.district_election_id " +
-                     "JOIN district d ON de.district_id = d.district_id " +
-                     "JOIN party p ON sa.party_id = p.party_id " +
-                     "ORDER BY d.district_name, p.party_name");
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                response.append("ID: ").append(rs.getInt("seat_allocation_id"))
+        StreamingResponse.sendTextRows(exchange,
+                "SELECT sa.seat_allocation_id, d.district_name, p.party_name, " +
+                "sa.bonus_round, sa.first_round, sa.second_round, sa.final_allocation " +
+                "FROM seat_allocation sa " +
+                "JOIN district_election de ON sa.district_election_id = de.district_election_id " +
+                "JOIN district d ON de.district_id = d.district_id " +
+                "JOIN party p ON sa.party_id = p.party_id " +
+                "ORDER BY d.district_name, p.party_name",
+                null,
+                (rs, out) -> out.append("ID: ").append(String.valueOf(rs.getInt("seat_allocation_id")))
                         .append(", District: ").append(rs.getString("district_name"))
                         .append(", Party: ").append(rs.getString("party_name"))
-                        .append(", Bonus: ").append(rs.getInt("bonus_round"))
-                        .append(", First: ").append(rs.getInt("first_round"))
-                        .append(", Second: ").append(rs.getInt("second_round"))
-                        .append(", Final: ").append(rs.getInt("final_allocation"))
-                        .append("\n");
-            }
-        } catch (Exception e) {
-            response.append("❌ Error: ").append(e.getMessage());
-        }
-        byte[] respBytes = response.toString().getBytes();
-        exchange.sendResponseHeaders(200, respBytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(respBytes);
-        }
+                        .append(", Bonus: ").append(String.valueOf(rs.getInt("bonus_round")))
+                        .append(", First: ").append(String.valueOf(rs.getInt("first_round")))
+                        .append(", Second: ").append(String.valueOf(rs.getInt("second_round")))
+                        .append(", Final: ").append(String.valueOf(rs.getInt("final_allocation")))
+                        .append("\n"));
     }
 // Seat Allocation Creation Handler
 
@@ -112,32 +101,39 @@ public class SeatAllocationHandler implements HttpHandler {
 
     String response;
     int statusCode;
-    try (Connection conn = DatabaseConnector.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO seat_allocation (bonus_round, first_round, second_round, final_allocation, district_election_id, party_id) " +
-                         "VALUES (?, ?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS)) {
-        stmt.setInt(1, bonusRound);
-        stmt.setInt(2, firstRound);
-        stmt.setInt(3, secondRound);
-        stmt.setInt(4, finalAllocation);
-        stmt.setInt(5, districtElectionId);
-        stmt.setInt(6, partyId);
-        int affectedRows = stmt.executeUpdate();
-        if (affectedRows > 0) {
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    int seatAllocationId = rs.getInt(1);
-                    response = "{\"status\":\"success\",\"message\":\"Seat allocation created successfully\",\"seat_allocation_id\":" + seatAllocationId + "}";
-                    statusCode = 201;
-                } else {
-                    response = "{\"status\":\"success\",\"message\":\"Seat allocation created, but could not retrieve ID.\"}";
-                    statusCode = 201;
+    try (Connection conn = DatabaseConnector.getConnection()) {
+        conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+        ResultSnapshotService.requireOpenDistrictElection(conn, districtElectionId);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO seat_allocation (bonus_round, first_round, second_round, final_allocation, district_election_id, party_id) " +
+                             "VALUES (?, ?, ?, ?, ?, ?)", PreparedStatement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, bonusRound);
+            stmt.setInt(2, firstRound);
+            stmt.setInt(3, secondRound);
+            stmt.setInt(4, finalAllocation);
+            stmt.setInt(5, districtElectionId);
+            stmt.setInt(6, partyId);
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows > 0) {
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        int seatAllocationId = rs.getInt(1);
+                        response = "{\"status\":\"success\",\"message\":\"Seat allocation created successfully\",\"seat_allocation_id\":" + seatAllocationId + "}";
+                        statusCode = 201;
+                    } else {
+                        response = "{\"status\":\"success\",\"message\":\"Seat allocation created, but could not retrieve ID.\"}";
+                        statusCode = 201;
+                    }
                 }
+            } else {
+                response = "{\"status\":\"error\",\"message\":\"Failed to create seat allocation.\"}";
+                statusCode = 500;
             }
-        } else {
-            response = "{\"status\":\"error\",\"message\":\"Failed to create seat allocation.\"}";
-            statusCode = 500;
         }
+        conn.commit();
+    } catch (IllegalStateException e) {
+        response = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+        statusCode = 409;
     } catch (Exception e) {
         response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
         statusCode = 500;
@@ -155,11 +151,18 @@ private void totalSeatsAllocatedPartyAllDistricts(HttpExchange exchange) throws
     String partyName = getJsonString(requestBody, "party_name");
     String yearStr = getJsonString(requestBody, "year");
 
+    ResultSnapshot snapshot = yearStr != null && yearStr.matches("\\d{1,9}")
+            ? ResultSnapshotService.get(Integer.parseInt(yearStr)) : null;
+
     String response;
     int statusCode = 200;
     if (partyName == null || yearStr == null) {
         response = "{\"status\":\"error\",\"message\":\"Missing required parameters: party_name and year are required.\"}";
         statusCode = 400;
+    } else if (snapshot != null) {
+        // Finalized year: answer from the snapshot, no DB round trip
+        int totalSeats = snapshot.totalSeats(partyName);
+        response = "{\"status\":\"success\",\"party_name\":\"" + partyName + "\",\"year\":" + yearStr + ",\"total_seats\":" + totalSeats + "}";
     } else {
         try (Connection conn = DatabaseConnector.getConnection();
 
@@ -227,6 +230,10 @@ private void updateSeatAllocation(HttpExchange exchange) throws IOException {
         statusCode = 400;
     } else {
         try (Connection conn = DatabaseConnector.getConnection()) {
+            conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+            // Both the year the row is in now and the one it moves to must be open
+            ResultSnapshotService.requireOpenRow(conn, "seat_allocation", "seat_allocation_id", seatAllocationId);
+            ResultSnapshotService.requireOpenDistrictElection(conn, districtElectionId);
             // Get district_id and seat_count via district_election join with district
             int districtId = -1;
             int districtSeatCount = -1;
@@ -309,6 +316,10 @@ private void updateSeatAllocation(HttpExchange exchange) throws IOException {
                     }
                 }
             }
+            conn.commit();
+        } catch (IllegalStateException e) {
+            response = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+            statusCode = 409;
         } catch (Exception e) {
             response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
             statusCode = 500;
@@ -340,17 +351,24 @@ private void deleteSeatAllocation(HttpExchange exchange) throws IOException {
 
         String response;
         int statusCode = 200;
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "DELETE FROM seat_allocation WHERE seat_allocation_id = ?")) {
-            stmt.setInt(1, seatAllocationId);
-            int affected = stmt.executeUpdate();
-            if (affected > 0) {
-                response = "{\"status\":\"success\",\"message\":\"Seat allocation deleted successfully.\"}";
-            } else {
-                response = "{\"status\":\"error\",\"message\":\"Seat allocation not found.\"}";
-                statusCode = 404;
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            conn.setAutoCommit(false); // the year stays locked until commit, see ResultSnapshotService.lockYear
+            ResultSnapshotService.requireOpenRow(conn, "seat_allocation", "seat_allocation_id", seatAllocationId);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM seat_allocation WHERE seat_allocation_id = ?")) {
+                stmt.setInt(1, seatAllocationId);
+                int affected = stmt.executeUpdate();
+                if (affected > 0) {
+                    response = "{\"status\":\"success\",\"message\":\"Seat allocation deleted successfully.\"}";
+                } else {
+                    response = "{\"status\":\"error\",\"message\":\"Seat allocation not found.\"}";
+                    statusCode = 404;
+                }
             }
+            conn.commit();
+        } catch (IllegalStateException e) {
+            response = "{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}";
+            statusCode = 409;
         } catch (Exception e) {
             response = "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}";
             statusCode = 500;
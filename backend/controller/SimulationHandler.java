@@ -0,0 +1,79 @@
+package backend.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import backend.simulation.OffHeapArena;
+import backend.simulation.ScenarioSimulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+
+// Monte Carlo seat simulations on top of a stored year, matrices kept off-heap
+// POST /simulation?year=2020&scenarios=10000&noise=0.05&seed=1   => seat distribution per party and district
+// GET  /simulation/memory                                        => off-heap bytes in use / peak / budget
+public class SimulationHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+
+        try {
+            if (method.equals("POST") && path.equals("/simulation")) {
+                simulate(exchange);
+            } else if (method.equals("GET") && path.equals("/simulation/memory")) {
+                sendJson(exchange, 200, "{\"live_bytes\":" + OffHeapArena.liveBytes()
+                        + ",\"peak_bytes\":" + OffHeapArena.peakBytes()
+                        + ",\"budget_bytes\":" + ScenarioSimulator.budgetBytes() + "}");
+            } else if (method.equals("GET") || method.equals("POST")) {
+                sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"Unknown simulation path.\"}");
+            } else {
+                exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            }
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendJson(exchange, 503, "{\"status\":\"error\",\"message\":\"Database is busy, try again shortly.\"}");
+        } catch (IllegalStateException e) {
+            sendJson(exchange, 409, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        } catch (Exception e) {
+            sendJson(exchange, 500, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        }
+    }
+
+    private void simulate(HttpExchange exchange) throws Exception {
+        String query = exchange.getRequestURI().getRawQuery();
+        int year;
+        int scenarios;
+        double noise;
+        long seed;
+        try {
+            year = Integer.parseInt(ArchiveHandler.queryParam(query, "year", ""));
+            scenarios = Integer.parseInt(ArchiveHandler.queryParam(query, "scenarios", "10000"));
+            noise = Double.parseDouble(ArchiveHandler.queryParam(query, "noise", "0.05"));
+            seed = Long.parseLong(ArchiveHandler.queryParam(query, "seed", "1"));
+        } catch (NumberFormatException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"Give year, and optionally scenarios, noise and seed as numbers\"}");
+            return;
+        }
+        String json = ScenarioSimulator.run(year, scenarios, noise, seed);
+        if (json == null) {
+            sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"No results for " + year + ".\"}");
+            return;
+        }
+        sendJson(exchange, 200, json);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package backend.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import backend.db.StreamingQuery;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Sends a query result as it is read: rows go from the DB cursor straight into
+// a chunked response, so big list endpoints don't hold the whole table in heap.
+public class StreamingResponse {
+    public interface RowFormatter {
+        void write(ResultSet rs, Writer out) throws SQLException, IOException;
+    }
+
+    // Plain-text list, one formatted row after another. Query errors are reported
+    // the same way the list handlers always did: 200 with a "❌ Error:" body.
+    public static void sendTextRows(HttpExchange exchange, String sql, StreamingQuery.Binder binder,
+                                    RowFormatter formatter) throws IOException {
+        StreamingQuery query;
+        try {
+            query = StreamingQuery.open(sql, binder);
+        } catch (Exception e) {
+            byte[] respBytes = ("❌ Error: " + e.getMessage()).getBytes();
+            exchange.sendResponseHeaders(200, respBytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(respBytes);
+            }
+            return;
+        }
+
+        exchange.sendResponseHeaders(200, 0); // chunked
+        try (StreamingQuery q = query;
+             Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024)) {
+            ResultSet rs = q.rows();
+            try {
+                while (rs.next()) {
+                    formatter.write(rs, out);
+                }
+            } catch (SQLException e) {
+                out.write("❌ Error: " + e.getMessage());
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error closing streamed query: " + e.getMessage());
+        }
+    }
+}
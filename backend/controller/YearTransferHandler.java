@@ -0,0 +1,100 @@
+package backend.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import backend.services.YearTransferService;
+import backend.services.YearTransferService.Format;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Whole-year backup / migration
+// GET  /transfer/export/{year}?format=ndjson|csv  => streamed dump of the year
+// POST /transfer/import?format=ndjson|csv[&replace=true]  => load a dump
+public class YearTransferHandler implements HttpHandler {
+    private final YearTransferService service = new YearTransferService();
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        Format format = query != null && query.contains("format=csv") ? Format.CSV : Format.NDJSON;
+
+        switch (method) {
+            case "GET":
+                if (path.matches("/transfer/export/\\d+")) {
+                    String[] parts = path.split("/");
+                    exportYear(exchange, Integer.parseInt(parts[parts.length - 1]), format);
+                } else {
+                    sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"Use /transfer/export/{year}\"}");
+                }
+                break;
+            case "POST":
+                if (path.equals("/transfer/import")) {
+                    boolean replace = query != null && query.contains("replace=true");
+                    importYear(exchange, format, replace);
+                } else {
+                    sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"Use /transfer/import\"}");
+                }
+                break;
+            default:
+                exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+                break;
+        }
+    }
+
+    private void exportYear(HttpExchange exchange, int year, Format format) throws IOException {
+        try {
+            if (!service.yearExists(year)) {
+                sendJson(exchange, 404, "{\"status\":\"error\",\"message\":\"Election for year " + year + " not found.\"}");
+                return;
+            }
+        } catch (Exception e) {
+            sendJson(exchange, 500, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", format == Format.CSV ? "text/csv" : "application/x-ndjson");
+        exchange.getResponseHeaders().set("Content-Disposition",
+                "attachment; filename=\"election-" + year + (format == Format.CSV ? ".csv" : ".ndjson") + "\"");
+        // Length 0 = chunked, rows go out while the DB is still being read
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 64 * 1024)) {
+            service.exportYear(year, format, out);
+        } catch (Exception e) {
+            // Status is already sent; the truncated body (no final chunk) tells the client it failed
+            System.err.println("❌ Error exporting year " + year + ": " + e.getMessage());
+            exchange.close();
+        }
+    }
+
+    private void importYear(HttpExchange exchange, Format format, boolean replace) throws IOException {
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), 64 * 1024)) {
+            YearTransferService.ImportResult result = service.importYear(in, format, replace);
+            sendJson(exchange, 201, result.toJson());
+        } catch (IllegalStateException e) {
+            sendJson(exchange, 409, "{\"status\":\"error\",\"message\":\"" + e.getMessage().replace("\"", "'") + "\"}");
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        } catch (Exception e) {
+            sendJson(exchange, 500, "{\"status\":\"error\",\"message\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.getBytes().length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(json.getBytes());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package backend.db;
+
+// Supported database engines, selected with election.db.profile (mysql | h2)
+public enum DataSourceProfile {
+    // Default: local MySQL server, database is created on first start
+    MYSQL(
+        "com.mysql.cj.jdbc.Driver",
+        "jdbc:mysql://localhost:3306/",
+        "jdbc:mysql://localhost:3306/electionsystem?allowMultiQueries=true&rewriteBatchedStatements=true",
+        "root", "root", true, false
+    ),
+    // Embedded H2 in MySQL mode, in-memory and self-contained (h2 jar must be in backend/lib)
+    H2(
+        "org.h2.Driver",
+        null,
+        "jdbc:h2:mem:electionsystem;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE;DB_CLOSE_DELAY=-1",
+        "sa", "", false, true
+    );
+
+    public final String driverClass;
+    public final String serverUrl;       // used only to create the database, null if not needed
+    public final String defaultUrl;
+    public final String defaultUser;
+    public final String defaultPassword;
+    public final boolean createsDatabase;
+    public final boolean seedsByDefault;
+
+    DataSourceProfile(String driverClass, String serverUrl, String defaultUrl,
+                      String defaultUser, String defaultPassword,
+                      boolean createsDatabase, boolean seedsByDefault) {
+        this.driverClass = driverClass;
+        this.serverUrl = serverUrl;
+        this.defaultUrl = defaultUrl;
+        this.defaultUser = defaultUser;
+        this.defaultPassword = defaultPassword;
+        this.createsDatabase = createsDatabase;
+        this.seedsByDefault = seedsByDefault;
+    }
+
+    public static DataSourceProfile fromName(String name) {
+        for (DataSourceProfile p : values()) {
+            if (p.name().equalsIgnoreCase(name)) {
+                return p;
+            }
+        }
+        System.err.println("⚠️ Unknown database profile '" + name + "', falling back to MYSQL.");
+        return MYSQL;
+    }
+}
@@ -1,99 +1,290 @@
 package backend.db;
 
+import backend.config.AppConfig;
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DatabaseConnector {
     private static final String DB_NAME = "electionsystem";
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "root";
+    private static final DataSourceProfile PROFILE = DataSourceProfile.fromName(AppConfig.get("election.db.profile", "mysql"));
+    // 0 = Connector/J row-by-row streaming; > 0 = server-side cursor fetching that many rows per round trip
+    private static final int STREAM_FETCH_SIZE = AppConfig.getInt("election.db.stream_fetch_size", 0);
+    private static final String DB_URL = withCursorFetch(AppConfig.get("election.db.url", PROFILE.defaultUrl));
+    private static final String DB_USER = AppConfig.get("election.db.user", PROFILE.defaultUser);
+    private static final String DB_PASSWORD = AppConfig.get("election.db.password", PROFILE.defaultPassword);
+
+    // Optional read replicas (comma-separated JDBC URLs) used for GET requests, see ReadRouting
+    private static final String[] REPLICA_URLS = replicaUrls(AppConfig.get("election.db.replica_urls", ""));
+    private static final String REPLICA_USER = AppConfig.get("election.db.replica_user", DB_USER);
+    private static final String REPLICA_PASSWORD = AppConfig.get("election.db.replica_password", DB_PASSWORD);
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+
+    // Portable DDL: one statement per entry so it runs without allowMultiQueries,
+    // and only uses syntax that both MySQL and H2 (MySQL mode) accept
+    private static final String[] SCHEMA_STATEMENTS = {
+        """
+        CREATE TABLE IF NOT EXISTS province (
+            province_id INT PRIMARY KEY AUTO_INCREMENT,
+            province_name VARCHAR(100) UNIQUE NOT NULL
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS district (
+            district_id INT PRIMARY KEY AUTO_INCREMENT,
+            province_id INT,
+            district_name VARCHAR(100) UNIQUE NOT NULL,
+            seat_count INT NOT NULL,
+            FOREIGN KEY (province_id) REFERENCES province(province_id)
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS election (
+            election_id INT PRIMARY KEY AUTO_INCREMENT,
+            year INT NOT NULL
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS district_election (
+            district_election_id INT PRIMARY KEY AUTO_INCREMENT,
+            total_valid_votes_for_seat INT NOT NULL,
+            disqualify_votes INT NOT NULL,
+            disqualify_party_count INT NOT NULL,
+            threshold_5_percent INT NOT NULL,
+            district_id INT,
+            election_id INT,
+            CONSTRAINT uq_district_election UNIQUE (district_id, election_id),
+            FOREIGN KEY (district_id) REFERENCES district(district_id),
+            FOREIGN KEY (election_id) REFERENCES election(election_id)
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS party (
+            party_id INT PRIMARY KEY AUTO_INCREMENT,
+            party_name VARCHAR(100) UNIQUE NOT NULL
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS party_votes (
+            party_votes_id INT PRIMARY KEY AUTO_INCREMENT,
+            votes INT NOT NULL,
+            district_election_id INT,
+            party_id INT,
+            FOREIGN KEY (district_election_id) REFERENCES district_election(district_election_id),
+            FOREIGN KEY (party_id) REFERENCES party(party_id)
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS seat_allocation (
+            seat_allocation_id INT PRIMARY KEY AUTO_INCREMENT,
+            bonus_round INT DEFAULT 0,
+            first_round INT DEFAULT 0,
+            second_round INT DEFAULT 0,
+            final_allocation INT NOT NULL,
+            district_election_id INT,
+            party_id INT,
+            FOREIGN KEY (district_election_id) REFERENCES district_election(district_election_id),
+            FOREIGN KEY (party_id) REFERENCES party(party_id)
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS result_submission (
+            idempotency_key VARCHAR(100) PRIMARY KEY,
+            district_election_id INT,
+            submitted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+            FOREIGN KEY (district_election_id) REFERENCES district_election(district_election_id)
+        )
+        """,
+        """
+        CREATE TABLE IF NOT EXISTS election_finalized (
+            year INT PRIMARY KEY,
+            finalized_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+            snapshot_bytes BIGINT
+        )
+        """
+    };
+
+    // Brings tables created by older versions up to SCHEMA_STATEMENTS; each one
+    // fails harmlessly when it was already applied, any other failure stops startup
+    private static final String[] MIGRATION_STATEMENTS = {
+        "ALTER TABLE district_election ADD CONSTRAINT uq_district_election UNIQUE (district_id, election_id)"
+    };
+
+    // Same reference data as ToRun.txt, loaded into an empty database when seeding is on
+    private static final String[] SEED_STATEMENTS = {
+        """
+        INSERT INTO province (province_name) VALUES
+        ('Western Province'), ('Central Province'), ('Southern Province'),
+        ('Northern Province'), ('Eastern Province'), ('North Western Province'),
+        ('North Central Province'), ('Uva Province'), ('Sabaragamuwa Province')
+        """,
+        """
+        INSERT INTO district (province_id, district_name, seat_count) VALUES
+        (1, 'Colombo', 10), (1, 'Gampaha', 8), (1, 'Kalutara', 7),
+        (2, 'Kandy', 7), (2, 'Matale', 6), (2, 'Nuwara Eliya', 6),
+        (3, 'Galle', 5), (3, 'Matara', 6), (3, 'Hambantota', 6),
+        (4, 'Jaffna', 5), (4, 'Kilinochchi', 4), (4, 'Mannar', 4), (4, 'Mullaitivu', 3), (4, 'Vavuniya', 5),
+        (5, 'Trincomalee', 6), (5, 'Batticaloa', 5), (5, 'Ampara', 7),
+        (6, 'Kurunegala', 7), (6, 'Puttalam', 5),
+        (7, 'Anuradhapura', 6), (7, 'Polonnaruwa', 5),
+        (8, 'Badulla', 6), (8, 'Monaragala', 5),
+        (9, 'Ratnapura', 7), (9, 'Kegalle', 6)
+        """
+    };
 
     // JDBC driver is loaded and database is created if it doesn't exist
     static {
         // But many developers still include Class.forName(...) for compatibility, clarity, and control.
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            Class.forName(PROFILE.driverClass);
         } catch (ClassNotFoundException e) {
-            System.err.println("❌ JDBC Driver not found.");
+            System.err.println("❌ JDBC Driver not found: " + PROFILE.driverClass);
             e.printStackTrace();
         }
 
+        if (PROFILE.createsDatabase) {
+            try (Connection conn = DriverManager.getConnection(PROFILE.serverUrl, DB_USER, DB_PASSWORD);
+                 Statement stmt = conn.createStatement()) {
+
+                String createDbSQL = "CREATE DATABASE IF NOT EXISTS " + DB_NAME;
+                stmt.executeUpdate(createDbSQL);
+                System.out.println("✅ Database '" + DB_NAME + "' is ready.");
+            } catch (SQLException e) {
+                System.err.println("❌ Error creating database: " + e.getMessage());
+            }
+        }
+
         try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
              Statement stmt = conn.createStatement()) {
 
-            String createDbSQL = "CREATE DATABASE IF NOT EXISTS " + DB_NAME;
-            stmt.executeUpdate(createDbSQL);
-            System.out.println("✅ Database '" + DB_NAME + "' is ready.");
+            for (String ddl : SCHEMA_STATEMENTS) {
+                stmt.executeUpdate(ddl);
+            }
+            mergeDuplicateDistrictElections(conn);
+            for (String ddl : MIGRATION_STATEMENTS) {
+                migrate(stmt, ddl);
+            }
+            System.out.println("✅ Tables are updated and ready in '" + DB_NAME + "' DB (" + PROFILE + " profile).");
+
+            if (AppConfig.getBoolean("election.db.seed", PROFILE.seedsByDefault)) {
+                seedReferenceData(stmt);
+            }
         } catch (SQLException e) {
-            System.err.println("❌ Error creating database: " + e.getMessage());
+            System.err.println("❌ Error creating tables: " + e.getMessage());
         }
+    }
 
-        String fullDbUrl = DB_URL + DB_NAME + "?allowMultiQueries=true";
-        try (Connection conn = DriverManager.getConnection(fullDbUrl, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement()) {
+    private static void migrate(Statement stmt, String ddl) {
+        try {
+            stmt.executeUpdate(ddl);
+        } catch (SQLException e) {
+            // 1061 = MySQL duplicate key name, 90045 = H2 constraint already exists
+            if (e.getErrorCode() != 1061 && e.getErrorCode() != 90045) {
+                System.err.println("❌ Schema migration failed (" + e.getMessage() + "): " + ddl);
+                throw new IllegalStateException("Schema migration failed: " + ddl, e);
+            }
+        }
+    }
+
+    // Older versions could store the same (district, year) twice, which blocks uq_district_election.
+    // Folds each extra row into the oldest one, the row saveResults kept updating: its party rows win,
+    // parties only the extra row has are moved over, as are its idempotency keys.
+    private static void mergeDuplicateDistrictElections(Connection conn) throws SQLException {
+        String findDuplicates = """
+            SELECT de.district_election_id, k.keep_id
+            FROM district_election de
+            JOIN (SELECT district_id, election_id, MIN(district_election_id) AS keep_id
+                  FROM district_election
+                  GROUP BY district_id, election_id
+                  HAVING COUNT(*) > 1) k
+              ON de.district_id = k.district_id AND de.election_id = k.election_id
+            WHERE de.district_election_id <> k.keep_id
+            """;
+        List<int[]> merges = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(findDuplicates)) {
+            while (rs.next()) {
+                merges.add(new int[] {rs.getInt(1), rs.getInt(2)});
+            }
+        }
+        if (merges.isEmpty()) {
+            return;
+        }
 
-            stmt.executeUpdate("""
-                CREATE TABLE IF NOT EXISTS province (
-                    province_id INT PRIMARY KEY AUTO_INCREMENT,
-                    province_name VARCHAR(100) UNIQUE NOT NULL
-                );
-
-                CREATE TABLE IF NOT EXISTS district (
-                    district_id INT PRIMARY KEY AUTO_INCREMENT,
-                    province_id INT,
-                    district_name VARCHAR(100) UNIQUE NOT NULL,
-                    seat_count INT NOT NULL,
-                    FOREIGN KEY (province_id) REFERENCES province(province_id)
-                );
-
-                CREATE TABLE IF NOT EXISTS election (
-                    election_id INT PRIMARY KEY AUTO_INCREMENT,
-                    year INT NOT NULL
-                );
-
-                CREATE TABLE IF NOT EXISTS district_election (
-                    district_election_id INT PRIMARY KEY AUTO_INCREMENT,
-                    total_valid_votes INT NOT NULL,
-                    disqualify_votes INT NOT NULL,
-                    disqualify_party_count INT NOT NULL,
-                    threshold_5_percent INT NOT NULL,
-                    district_id INT,
-                    election_id INT,
-                    FOREIGN KEY (district_id) REFERENCES district(district_id),
-                    FOREIGN KEY (election_id) REFERENCES election(election_id)
-                );
-
-                CREATE TABLE IF NOT EXISTS party (
-                    party_id INT PRIMARY KEY AUTO_INCREMENT,
-                    party_name VARCHAR(100) UNIQUE NOT NULL
-                );
-
-                CREATE TABLE IF NOT EXISTS party_votes (
-                    party_votes_id INT PRIMARY KEY AUTO_INCREMENT,
-                    votes INT NOT NULL,
-                    district_election_id INT,
-                    party_id INT,
-                    FOREIGN KEY (district_election_id) REFERENCES district_election(district_election_id),
-                    FOREIGN KEY (party_id) REFERENCES party(party_id)
-                );
-
-                CREATE TABLE IF NOT EXISTS seat_allocation (
-                    seat_allocation_id INT PRIMARY KEY AUTO_INCREMENT,
-                    bonus_round INT DEFAULT 0,
-                    first_round INT DEFAULT 0,
-                    second_round INT DEFAULT 0,
-                    final_allocation INT NOT NULL,
-                    district_election_id INT,
-                    party_id INT,
-                    FOREIGN KEY (district_election_id) REFERENCES district_election(district_election_id),
-                    FOREIGN KEY (party_id) REFERENCES party(party_id)
-                );
-            """);
-
-            System.out.println("✅ Tables are updated and ready in '" + DB_NAME + "' DB.");
+        conn.setAutoCommit(false);
+        try {
+            for (int[] merge : merges) {
+                for (String table : new String[] {"party_votes", "seat_allocation"}) {
+                    // The derived table lets MySQL read the table it deletes from
+                    update(conn, "DELETE FROM " + table + " WHERE district_election_id = ? AND party_id IN " +
+                            "(SELECT party_id FROM (SELECT party_id FROM " + table +
+                            " WHERE district_election_id = ?) kept)", merge[0], merge[1]);
+                    update(conn, "UPDATE " + table + " SET district_election_id = ? WHERE district_election_id = ?",
+                            merge[1], merge[0]);
+                }
+                update(conn, "UPDATE result_submission SET district_election_id = ? WHERE district_election_id = ?",
+                        merge[1], merge[0]);
+                update(conn, "DELETE FROM district_election WHERE district_election_id = ?", merge[0]);
+            }
+            conn.commit();
         } catch (SQLException e) {
-            System.err.println("❌ Error creating tables: " + e.getMessage());
+            conn.rollback();
+            System.err.println("❌ Could not merge duplicate district_election rows: " + e.getMessage());
+            throw new IllegalStateException("Could not merge duplicate district_election rows", e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        System.out.println("⚠️ Merged " + merges.size() + " duplicate district_election row(s) from an older version.");
+    }
+
+    private static void update(Connection conn, String sql, int... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setInt(i + 1, params[i]);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private static void seedReferenceData(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM province")) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                return;
+            }
+        }
+        for (String sql : SEED_STATEMENTS) {
+            stmt.executeUpdate(sql);
+        }
+        System.out.println("✅ Seeded provinces and districts.");
+    }
+
+    // Forward-only, read-only statement that streams rows instead of buffering
+    // the whole result (Connector/J streams row by row with fetch size MIN_VALUE,
+    // or uses a server-side cursor when election.db.stream_fetch_size is set)
+    public static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (PROFILE == DataSourceProfile.MYSQL) {
+            stmt.setFetchSize(STREAM_FETCH_SIZE > 0 ? STREAM_FETCH_SIZE : Integer.MIN_VALUE);
+        } else {
+            stmt.setFetchSize(STREAM_FETCH_SIZE > 0 ? STREAM_FETCH_SIZE : 1000);
+        }
+        return stmt;
+    }
+
+    private static String withCursorFetch(String url) {
+        if (PROFILE != DataSourceProfile.MYSQL || STREAM_FETCH_SIZE <= 0 || url.contains("useCursorFetch")) {
+            return url;
         }
+        return url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+    }
+
+    public static DataSourceProfile getProfile() {
+        return PROFILE;
     }
 
     public static void initializeDatabase() {
@@ -121,7 +312,52 @@ public class DatabaseConnector {
         }
     }
 
+    // Replica for GET requests when replicas are configured, otherwise the primary
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL + DB_NAME + "?allowMultiQueries=true", DB_USER, DB_PASSWORD);
+        if (REPLICA_URLS.length > 0 && ReadRouting.isReadRequest()) {
+            return getReadConnection();
+        }
+        return getWriteConnection();
+    }
+
+    // Both open a db.connect span; statements are timed by SlowQueryLog and, for traced requests, by the trace
+    public static Connection getWriteConnection() throws SQLException {
+        try (Span span = Tracer.span("db.connect")) {
+            span.attr("target", "primary");
+            return Tracer.trace(SlowQueryLog.wrap(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)));
+        }
+    }
+
+    // Plain primary connection, not timed or traced (SlowQueryLog runs its EXPLAINs on it)
+    static Connection openUnlogged() throws SQLException {
+        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    }
+
+    // Round-robin over the replicas; falls back to the primary if none answers
+    public static Connection getReadConnection() throws SQLException {
+        try (Span span = Tracer.span("db.connect")) {
+            for (int attempt = 0; attempt < REPLICA_URLS.length; attempt++) {
+                int index = Math.floorMod(nextReplica.getAndIncrement(), REPLICA_URLS.length);
+                String url = REPLICA_URLS[index];
+                try {
+                    Connection conn = DriverManager.getConnection(url, REPLICA_USER, REPLICA_PASSWORD);
+                    conn.setReadOnly(true);
+                    span.attr("target", "replica-" + index);
+                    return Tracer.trace(SlowQueryLog.wrap(conn));
+                } catch (SQLException e) {
+                    System.err.println("⚠️ Replica unavailable (" + url + "): " + e.getMessage());
+                }
+            }
+            span.attr("target", "primary");
+            return Tracer.trace(SlowQueryLog.wrap(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)));
+        }
+    }
+
+    private static String[] replicaUrls(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(DatabaseConnector::withCursorFetch)
+                .toArray(String[]::new);
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package backend.db;
+
+import backend.config.AppConfig;
+import backend.scheduling.Priority;
+import backend.scheduling.PriorityExecutor;
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+// Bounded pool for blocking JDBC work. Request threads submit here and get a
+// CompletableFuture back instead of waiting on the database themselves, so a
+// slow query ties up one of these threads, not the server's request threads,
+// and the database never sees more statements from the API at once than this
+// pool has threads. Size it to what the database (or its connection pool)
+// should take. Work beyond election.db.jdbc_queue waiting tasks (per priority
+// class) is refused: the future fails with RejectedExecutionException (the
+// server answers 503).
+//
+// Work is queued by the caller's Priority: besides the election.db.jdbc_threads
+// shared threads, election.db.jdbc_reserved_ingest threads (default 4) only run
+// result submissions and election.db.jdbc_reserved_admin (default 2) only
+// submissions and other writes, so they always have connections left however
+// many reads are waiting. Work submitted outside a request counts as ADMIN.
+//
+// The caller's ReadRouting decision is carried over to the pool thread, so
+// reads still go to a replica and a request's writes to the primary. So is a
+// traced request's current span, with the wait for a thread as jdbc.queue.
+public class JdbcExecutor {
+    public static final int THREADS = AppConfig.getInt("election.db.jdbc_threads", 16);
+    public static final int RESERVED_INGEST = AppConfig.getInt("election.db.jdbc_reserved_ingest", 4);
+    public static final int RESERVED_ADMIN = AppConfig.getInt("election.db.jdbc_reserved_admin", 2);
+    public static final int QUEUE = AppConfig.getInt("election.db.jdbc_queue", 1000);
+
+    private static final PriorityExecutor POOL = new PriorityExecutor("jdbc", THREADS, RESERVED_INGEST, RESERVED_ADMIN,
+            Math.max(1, QUEUE), Priority.ADMIN, true);
+
+    public interface JdbcCall<T> {
+        T call() throws Exception;
+    }
+
+    public interface JdbcTask {
+        void run() throws Exception;
+    }
+
+    // Runs call on the JDBC pool; the future completes on that pool's thread
+    public static <T> CompletableFuture<T> supply(JdbcCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        boolean read = ReadRouting.isReadRequest();
+        Span span = Tracer.capture();
+        long submitted = span == null ? 0 : System.nanoTime();
+        try {
+            POOL.execute(() -> {
+                ReadRouting.restore(read);
+                Span previous = Tracer.restore(span);
+                if (span != null) {
+                    Tracer.record(span, "jdbc.queue", submitted, System.nanoTime());
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    ReadRouting.clear();
+                    Tracer.restore(previous);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public static CompletableFuture<Void> run(JdbcTask task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public static String statsJson() {
+        return "{\"threads\":" + POOL.threads()
+                + ",\"active\":" + POOL.activeCount()
+                + ",\"queued\":" + POOL.queued()
+                + ",\"queue_limit\":" + QUEUE
+                + ",\"completed\":" + POOL.completedCount()
+                + ",\"rejected\":" + POOL.rejectedCount()
+                + ",\"by_priority\":" + POOL.toJson() + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package backend.db;
+
+import backend.config.AppConfig;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Decides per request whether DatabaseConnector.getConnection() may use a replica.
+// The server layer marks each request as a read (GET/HEAD) or a write; reads go to
+// a replica unless the same client wrote something within the last sticky_ms, so
+// a client always sees its own writes. Code running outside a request (console,
+// CLI tools, ElectionService.saveResults) always gets the primary.
+public class ReadRouting {
+    private static final long STICKY_MS = AppConfig.getLong("election.db.sticky_ms", 5000);
+    private static final ThreadLocal<Boolean> READ_REQUEST = ThreadLocal.withInitial(() -> false);
+    private static final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+
+    public static void beginRequest(String method, String clientKey) {
+        boolean read = "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+        if (read) {
+            Long until = lastWrite.get(clientKey);
+            if (until != null && until > System.currentTimeMillis()) {
+                read = false; // read-your-writes: stay on the primary for a moment
+            }
+        }
+        READ_REQUEST.set(read);
+    }
+
+    public static void endRequest(String method, String clientKey) {
+        READ_REQUEST.remove();
+        if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method) && !"OPTIONS".equalsIgnoreCase(method)) {
+            long now = System.currentTimeMillis();
+            lastWrite.put(clientKey, now + STICKY_MS);
+            if (lastWrite.size() > 10_000) {
+                purge(now);
+            }
+        }
+    }
+
+    // Forces the primary for the rest of this thread's request (e.g. before a write)
+    public static void usePrimary() {
+        READ_REQUEST.set(false);
+    }
+
+    // true when this thread's request may be served from a replica
+    public static boolean isReadRequest() {
+        return READ_REQUEST.get();
+    }
+
+    // JdbcExecutor: the submitting request's decision, on the pool thread running its work
+    static void restore(boolean read) {
+        READ_REQUEST.set(read);
+    }
+
+    static void clear() {
+        READ_REQUEST.remove();
+    }
+
+    private static void purge(long now) {
+        Iterator<Map.Entry<String, Long>> it = lastWrite.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() <= now) {
+                it.remove();
+            }
+        }
+    }
+}
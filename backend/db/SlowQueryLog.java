@@ -0,0 +1,324 @@
+package backend.db;
+
+import backend.config.AppConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Times every statement run on a DatabaseConnector connection. Statements
+// slower than election.db.slow_query_ms (default 200, 0 turns it off) are
+// logged with their bound parameters and kept for GET /server/slow_queries
+// (the last election.db.slow_query_keep, default 100).
+//
+// The first time a given SQL text is slow, its plan is captured in the
+// background: EXPLAIN with the same parameters, on a separate primary
+// connection (the slow one may still be streaming rows). Plans that scan a
+// whole table are flagged, that is usually the missing index. Turn this off
+// with election.db.slow_query_explain=false.
+//
+// Only the execute call is timed. For streamed results (prepareStreaming)
+// that excludes reading the rows, which goes at the client's pace.
+public final class SlowQueryLog {
+    private static final long THRESHOLD_MS = AppConfig.getLong("election.db.slow_query_ms", 200);
+    private static final boolean EXPLAIN = AppConfig.getBoolean("election.db.slow_query_explain", true);
+    private static final int KEEP = Math.max(1, AppConfig.getInt("election.db.slow_query_keep", 100));
+    private static final int MAX_PLANS = 1000;
+    private static final int MAX_PARAM_CHARS = 100;
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("([\\w.]+)\\.tableScan");
+
+    private static final ArrayDeque<Entry> recent = new ArrayDeque<>();
+    // SQL text -> plan; "" while the EXPLAIN is pending or when it couldn't be run
+    private static final Map<String, String> plans = new ConcurrentHashMap<>();
+    private static final ThreadPoolExecutor EXPLAINER = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(100), r -> {
+                Thread t = new Thread(r, "slow-query-explain");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+    private static final AtomicLong statements = new AtomicLong();
+    private static final AtomicLong slow = new AtomicLong();
+    private static final AtomicLong explained = new AtomicLong();
+
+    private SlowQueryLog() {
+    }
+
+    static boolean isEnabled() {
+        return THRESHOLD_MS > 0;
+    }
+
+    static Connection wrap(Connection conn) {
+        if (!isEnabled()) {
+            return conn;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void finished(String sql, Map<Integer, Object> params, long nanos, int batchSize) {
+        statements.incrementAndGet();
+        long ms = nanos / 1_000_000;
+        if (sql == null || ms < THRESHOLD_MS) {
+            return;
+        }
+        slow.incrementAndGet();
+        String text = sql.replaceAll("\\s+", " ").trim();
+        List<String> shown = new ArrayList<>();
+        boolean simple = true;
+        for (Map.Entry<Integer, Object> e : params.entrySet()) {
+            shown.add(e.getKey() + "=" + render(e.getValue()));
+            simple &= e.getValue() == null || e.getValue() instanceof Number || e.getValue() instanceof String
+                    || e.getValue() instanceof Boolean || e.getValue() instanceof java.util.Date;
+        }
+        System.err.println("⚠️ Slow query (" + ms + " ms): " + text
+                + (shown.isEmpty() ? "" : " params " + shown)
+                + (batchSize > 0 ? " (batch of " + batchSize + ")" : ""));
+        synchronized (recent) {
+            recent.addFirst(new Entry(System.currentTimeMillis(), ms, text, shown, batchSize));
+            while (recent.size() > KEEP) {
+                recent.removeLast();
+            }
+        }
+        if (EXPLAIN && simple && explainable(text) && plans.size() < MAX_PLANS && plans.putIfAbsent(text, "") == null) {
+            Map<Integer, Object> values = new TreeMap<>(params);
+            try {
+                EXPLAINER.execute(() -> explain(text, values));
+            } catch (RejectedExecutionException e) {
+                plans.remove(text); // try again next time it is slow
+            }
+        }
+    }
+
+    private static boolean explainable(String sql) {
+        String head = sql.toLowerCase(Locale.ROOT);
+        return head.startsWith("select") || head.startsWith("with") || head.startsWith("update")
+                || head.startsWith("delete") || head.startsWith("insert");
+    }
+
+    private static void explain(String sql, Map<Integer, Object> params) {
+        StringBuilder plan = new StringBuilder();
+        List<String> fullScans = new ArrayList<>();
+        try (Connection conn = DatabaseConnector.openUnlogged();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (Map.Entry<Integer, Object> e : params.entrySet()) {
+                stmt.setObject(e.getKey(), e.getValue());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        String value = rs.getString(i);
+                        if (value != null) {
+                            row.append(row.length() == 0 ? "" : " ").append(meta.getColumnLabel(i).toLowerCase(Locale.ROOT))
+                                    .append('=').append(value);
+                        }
+                    }
+                    plan.append(plan.length() == 0 ? "" : "\n").append(row);
+                    // MySQL's tabular EXPLAIN: type=ALL is a full table scan; H2 marks them /* table.tableScan */
+                    if (hasColumn(meta, "type") && "ALL".equalsIgnoreCase(rs.getString("type"))) {
+                        fullScans.add(hasColumn(meta, "table") ? rs.getString("table") : "?");
+                    }
+                    Matcher h2Scan = H2_TABLE_SCAN.matcher(row);
+                    while (h2Scan.find()) {
+                        fullScans.add(h2Scan.group(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plan.setLength(0);
+            plan.append("EXPLAIN failed: ").append(e.getMessage());
+        }
+        plans.put(sql, plan.toString());
+        explained.incrementAndGet();
+        System.out.println("ℹ️ EXPLAIN " + sql + "\n" + plan);
+        if (!fullScans.isEmpty()) {
+            System.err.println("⚠️ Full table scan on " + String.join(", ", fullScans) + " - check the indexes for: " + sql);
+        }
+    }
+
+    private static boolean hasColumn(ResultSetMetaData meta, String name) throws SQLException {
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            if (meta.getColumnLabel(i).equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String render(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof String || value instanceof java.util.Date) {
+            String text = value.toString();
+            return "'" + (text.length() > MAX_PARAM_CHARS ? text.substring(0, MAX_PARAM_CHARS) + "..." : text) + "'";
+        }
+        return "<" + value.getClass().getSimpleName() + ">";
+    }
+
+    // GET /server/slow_queries: most recent first, each with the plan of its SQL text
+    public static String toJson() {
+        List<Entry> entries;
+        synchronized (recent) {
+            entries = new ArrayList<>(recent);
+        }
+        StringBuilder json = new StringBuilder("{\"threshold_ms\":").append(THRESHOLD_MS)
+                .append(",\"statements\":").append(statements.get())
+                .append(",\"slow\":").append(slow.get())
+                .append(",\"explained\":").append(explained.get())
+                .append(",\"queries\":[");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            String plan = plans.get(entry.sql);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"at\":").append(entry.at)
+                    .append(",\"ms\":").append(entry.ms)
+                    .append(",\"sql\":\"").append(escape(entry.sql)).append('"')
+                    .append(",\"params\":[");
+            for (int p = 0; p < entry.params.size(); p++) {
+                json.append(p == 0 ? "" : ",").append('"').append(escape(entry.params.get(p))).append('"');
+            }
+            json.append(']');
+            if (entry.batchSize > 0) {
+                json.append(",\"batch\":").append(entry.batchSize);
+            }
+            json.append(",\"plan\":").append(plan == null || plan.isEmpty() ? "null" : "\"" + escape(plan) + "\"").append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    public static String statsJson() {
+        return "{\"threshold_ms\":" + THRESHOLD_MS
+                + ",\"statements\":" + statements.get()
+                + ",\"slow\":" + slow.get()
+                + ",\"explained\":" + explained.get() + "}";
+    }
+
+    private static String escape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static final class Entry {
+        final long at;
+        final long ms;
+        final String sql;
+        final List<String> params;
+        final int batchSize;
+
+        Entry(long at, long ms, String sql, List<String> params, int batchSize) {
+            this.at = at;
+            this.ms = ms;
+            this.sql = sql;
+            this.params = params;
+            this.batchSize = batchSize;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("unwrap") && args != null && args[0] == Connection.class) {
+                return conn;
+            }
+            Object result = SlowQueryLog.invoke(conn, method, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> type = method.getReturnType().isInterface() ? method.getReturnType() : Statement.class;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    // Remembers the bound parameters (setInt, setString, ...) and times execute*
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Map<Integer, Object> params = new TreeMap<>();
+        private int batchSize;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && method.getDeclaringClass() != Statement.class) {
+                params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                params.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.startsWith("execute")) {
+                String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                long start = System.nanoTime();
+                try {
+                    return SlowQueryLog.invoke(statement, method, args);
+                } finally {
+                    finished(text, params, System.nanoTime() - start, name.equals("executeBatch") ? batchSize : 0);
+                    if (name.equals("executeBatch")) {
+                        batchSize = 0;
+                    }
+                }
+            }
+            return SlowQueryLog.invoke(statement, method, args);
+        }
+    }
+}
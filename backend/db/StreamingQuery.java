@@ -0,0 +1,56 @@
+package backend.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Read path for large result sets: a forward-only, read-only statement whose rows
+// are fetched from the server as they are consumed instead of all at once.
+// The query runs in open(), so errors surface before any response is sent;
+// rows are then read one by one with next() and the caller writes them out.
+public class StreamingQuery implements AutoCloseable {
+    public interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+
+    private StreamingQuery(Connection conn, PreparedStatement stmt, ResultSet rs) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+    }
+
+    public static StreamingQuery open(String sql, Binder binder) throws SQLException {
+        Connection conn = DatabaseConnector.getConnection();
+        PreparedStatement stmt = null;
+        try {
+            stmt = DatabaseConnector.prepareStreaming(conn, sql);
+            if (binder != null) {
+                binder.bind(stmt);
+            }
+            return new StreamingQuery(conn, stmt, stmt.executeQuery());
+        } catch (SQLException e) {
+            if (stmt != null) stmt.close();
+            conn.close();
+            throw e;
+        }
+    }
+
+    public ResultSet rows() {
+        return rs;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            rs.close();
+            stmt.close();
+        } finally {
+            conn.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package backend.loadtest;
+
+import backend.config.AppConfig;
+import backend.server.ElectionServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// Checks the parameter validation of GET /analytics/apportion: seats over the
+// cap and a total below the sum of the party votes are answered with 400,
+// while the valid neighbours of those cases still get 200. Needs no stored data.
+//
+// Run: java -cp ... backend.loadtest.ApportionCheck --embedded
+// Exits with status 1 when any answer has the wrong status.
+public class ApportionCheck {
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                String[] pair = arg.substring(2).split("=", 2);
+                System.setProperty("election.loadtest." + pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+        }
+
+        boolean embedded = AppConfig.getBoolean("election.loadtest.embedded", false);
+        ElectionServer server = null;
+        String target = AppConfig.get("election.loadtest.target", "http://localhost:8080");
+        if (embedded) {
+            server = new ElectionServer();
+            server.server();
+            target = "http://localhost:" + server.getPort();
+        }
+
+        int failures;
+        try {
+            failures = run(target);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    static int run(String target) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        // {expected status, query}; the votes sum to 1010
+        String[][] cases = {
+                {"200", "method=dhondt&seats=10&votes=A:600,B:400,C:10"},
+                {"200", "method=dhondt&seats=1000&votes=A:600,B:400,C:10"},
+                {"400", "method=dhondt&seats=1001&votes=A:600,B:400,C:10"},
+                {"400", "method=all&seats=2000000000&votes=A:600,B:400,C:10"},
+                {"400", "method=dhondt&seats=0&votes=A:600,B:400,C:10"},
+                {"200", "method=dhondt&seats=10&votes=A:600,B:400,C:10&total=1010"},
+                {"200", "method=sri_lanka&seats=10&votes=A:600,B:400,C:10&total=1200"},
+                {"400", "method=dhondt&seats=10&votes=A:600,B:400,C:10&total=1009"},
+                {"400", "method=all&seats=10&votes=A:600,B:400,C:10&total=0"}
+        };
+        int failures = 0;
+        for (String[] c : cases) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/analytics/apportion?" + c[1]))
+                    .timeout(Duration.ofSeconds(10))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != Integer.parseInt(c[0])) {
+                failures++;
+                System.err.println("❌ " + c[1] + " => " + response.statusCode() + " (expected " + c[0] + "): " + response.body());
+            }
+        }
+        if (failures == 0) {
+            System.out.println("✅ " + cases.length + " apportion requests answered with the expected status.");
+        } else {
+            System.err.println("❌ " + failures + " of " + cases.length + " apportion requests had the wrong status.");
+        }
+        return failures;
+    }
+}
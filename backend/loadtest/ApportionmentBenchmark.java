@@ -0,0 +1,111 @@
+package backend.loadtest;
+
+import backend.apportionment.ApportionmentMethod;
+import backend.config.AppConfig;
+import backend.services.SeatCalculator;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Micro benchmark of the apportionment methods on random districts.
+// Reports the average time per district allocation after a warm-up.
+//
+// Run: java -cp ... backend.loadtest.ApportionmentBenchmark --parties=20 --seats=20 --districts=10000 --rounds=20
+// Every --key=value is the same as -Delection.bench.key=value.
+// --verify=true also checks that a sequential and a parallel pass give bit-identical allocations.
+public class ApportionmentBenchmark {
+
+    public static void main(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                String[] pair = arg.substring(2).split("=", 2);
+                System.setProperty("election.bench." + pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+        }
+        int parties = AppConfig.getInt("election.bench.parties", 20);
+        int seats = AppConfig.getInt("election.bench.seats", 20);
+        int districts = AppConfig.getInt("election.bench.districts", 10_000);
+        int rounds = AppConfig.getInt("election.bench.rounds", 20);
+        int warmup = AppConfig.getInt("election.bench.warmup", 5);
+
+        Random random = new Random(42); // same districts every run
+        int[][] votes = new int[districts][parties];
+        int[] totals = new int[districts];
+        for (int d = 0; d < districts; d++) {
+            for (int p = 0; p < parties; p++) {
+                // Skewed like real results: a few big parties, a long tail
+                votes[d][p] = (int) (500_000 * Math.pow(random.nextDouble(), 3));
+                totals[d] += votes[d][p];
+            }
+        }
+
+        if (AppConfig.getBoolean("election.bench.verify", false) && !verify(votes, totals, seats)) {
+            System.exit(1);
+        }
+
+        System.out.println("Apportionment benchmark: " + districts + " districts x " + parties
+                + " parties, " + seats + " seats, " + rounds + " rounds");
+        for (ApportionmentMethod method : ApportionmentMethod.all()) {
+            long checksum = 0;
+            for (int r = 0; r < warmup; r++) {
+                checksum += runRound(method, votes, totals, seats);
+            }
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                checksum += runRound(method, votes, totals, seats);
+            }
+            double nsPerDistrict = (System.nanoTime() - start) / (double) rounds / districts;
+            System.out.printf("  %-13s %10.1f ns/district   (checksum %d)%n", method.name(), nsPerDistrict, checksum);
+        }
+    }
+
+    private static boolean verify(int[][] votes, int[] totals, int seats) {
+        boolean ok = true;
+        for (ApportionmentMethod method : ApportionmentMethod.all()) {
+            long sequential = 0;
+            for (int d = 0; d < votes.length; d++) {
+                sequential = 31 * sequential + digest(method.allocate(seats, totals[d], votes[d], 5));
+            }
+            long[] perDistrict = IntStream.range(0, votes.length).parallel()
+                    .mapToLong(d -> digest(method.allocate(seats, totals[d], votes[d], 5)))
+                    .toArray();
+            long parallel = 0;
+            for (long h : perDistrict) {
+                parallel = 31 * parallel + h;
+            }
+            if (sequential == parallel) {
+                System.out.println("✅ " + method.name() + " is deterministic (digest " + Long.toHexString(sequential) + ")");
+            } else {
+                System.out.println("❌ " + method.name() + " differs between runs: "
+                        + Long.toHexString(sequential) + " vs " + Long.toHexString(parallel));
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    private static long digest(SeatCalculator.Allocation a) {
+        long h = a.threshold;
+        h = 31 * h + a.disqualifyPartyCount;
+        h = 31 * h + a.disqualifyVotes;
+        h = 31 * h + a.qualifyVotes;
+        h = 31 * h + a.votesPerSeat;
+        h = 31 * h + a.bonusIndex;
+        h = 31 * h + Arrays.hashCode(a.bonusRoundSeats);
+        h = 31 * h + Arrays.hashCode(a.firstRoundSeats);
+        h = 31 * h + Arrays.hashCode(a.secondRoundSeats);
+        h = 31 * h + Arrays.hashCode(a.finalSeats);
+        return h;
+    }
+
+    // The checksum keeps the JIT from dropping the work
+    private static long runRound(ApportionmentMethod method, int[][] votes, int[] totals, int seats) {
+        long sum = 0;
+        for (int d = 0; d < votes.length; d++) {
+            SeatCalculator.Allocation a = method.allocate(seats, totals[d], votes[d], 5);
+            sum += a.finalSeats[0];
+        }
+        return sum;
+    }
+}
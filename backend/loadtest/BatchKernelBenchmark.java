@@ -0,0 +1,94 @@
+package backend.loadtest;
+
+import backend.apportionment.BatchKernel;
+import backend.apportionment.BatchKernels;
+import backend.config.AppConfig;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Scalar vs Vector API first-round evaluation (threshold, votes per seat, quotas
+// and remainders) over a batch of random scenarios. Checks both kernels give the
+// same arrays, then reports the average time per batch after a warm-up.
+//
+// Run: java --add-modules jdk.incubator.vector -cp ... backend.loadtest.BatchKernelBenchmark --scenarios=1000000 --parties=20
+// Without --add-modules only the scalar kernel is measured.
+public class BatchKernelBenchmark {
+
+    public static void main(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                String[] pair = arg.substring(2).split("=", 2);
+                System.setProperty("election.bench." + pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+        }
+        int scenarios = AppConfig.getInt("election.bench.scenarios", 1_000_000);
+        int parties = AppConfig.getInt("election.bench.parties", 20);
+        int rounds = AppConfig.getInt("election.bench.rounds", 10);
+        int warmup = AppConfig.getInt("election.bench.warmup", 5);
+
+        Random random = new Random(42); // same scenarios every run
+        int[] votes = new int[scenarios * parties];
+        int[] totals = new int[scenarios];
+        int[] seats = new int[scenarios];
+        for (int p = 0; p < parties; p++) {
+            for (int s = 0; s < scenarios; s++) {
+                // Skewed like real results: a few big parties, a long tail
+                int v = (int) (500_000 * Math.pow(random.nextDouble(), 3));
+                votes[p * scenarios + s] = v;
+                totals[s] += v;
+            }
+        }
+        for (int s = 0; s < scenarios; s++) {
+            seats[s] = 3 + random.nextInt(18);
+        }
+
+        System.out.println("Batch kernel benchmark: " + scenarios + " scenarios x " + parties + " parties, "
+                + rounds + " rounds");
+        BatchKernel scalar = BatchKernels.scalar();
+        BatchKernel vector = BatchKernels.vector();
+        int[] expected = null;
+        double scalarMs = 0;
+        for (BatchKernel kernel : vector == null ? new BatchKernel[]{scalar} : new BatchKernel[]{scalar, vector}) {
+            int[] thresholds = new int[scenarios];
+            int[] perSeat = new int[scenarios];
+            int[] quota = new int[votes.length];
+            int[] remainder = new int[votes.length];
+            for (int r = 0; r < warmup; r++) {
+                kernel.firstRound(votes, parties, totals, seats, 5, thresholds, perSeat, quota, remainder);
+            }
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                kernel.firstRound(votes, parties, totals, seats, 5, thresholds, perSeat, quota, remainder);
+            }
+            double ms = (System.nanoTime() - start) / 1e6 / rounds;
+
+            int[] result = concat(thresholds, perSeat, quota, remainder);
+            if (expected == null) {
+                expected = result;
+                scalarMs = ms;
+                System.out.printf("  %-7s %10.2f ms/batch%n", kernel.name(), ms);
+            } else if (!Arrays.equals(expected, result)) {
+                System.out.println("❌ " + kernel.name() + " kernel gives different results than scalar");
+                System.exit(1);
+            } else {
+                System.out.printf("  %-7s %10.2f ms/batch   (%.2fx, identical results)%n", kernel.name(), ms, scalarMs / ms);
+            }
+        }
+        if (vector == null) {
+            System.out.println("ℹ️ Vector API not available, run with --add-modules jdk.incubator.vector to compare.");
+        }
+    }
+
+    private static int[] concat(int[]... arrays) {
+        int length = 0;
+        for (int[] a : arrays) length += a.length;
+        int[] out = new int[length];
+        int at = 0;
+        for (int[] a : arrays) {
+            System.arraycopy(a, 0, out, at, a.length);
+            at += a.length;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,95 @@
+package backend.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// One kind of request in the traffic mix. Paths and bodies may contain
+// {party}, {year} and {n} which are filled in for every request.
+public class LoadRoute {
+    public final String name;
+    public final String method;
+    public final String pathTemplate;
+    public final String bodyTemplate;
+    public final String contentType;
+    public final int weight;
+
+    public LoadRoute(String name, String method, String pathTemplate, String bodyTemplate, String contentType, int weight) {
+        this.name = name;
+        this.method = method;
+        this.pathTemplate = pathTemplate;
+        this.bodyTemplate = bodyTemplate;
+        this.contentType = contentType;
+        this.weight = weight;
+    }
+
+    public LoadRoute withWeight(int newWeight) {
+        return new LoadRoute(name, method, pathTemplate, bodyTemplate, contentType, newWeight);
+    }
+
+    public String path(String party, int year, long n) {
+        return fill(pathTemplate, party, year, n);
+    }
+
+    public String body(String party, int year, long n) {
+        return bodyTemplate == null ? null : fill(bodyTemplate, party, year, n);
+    }
+
+    private static String fill(String template, String party, int year, long n) {
+        return template.replace("{party}", party)
+                       .replace("{year}", String.valueOf(year))
+                       .replace("{n}", String.valueOf(n));
+    }
+
+    // The routes dashboards hit on results night, with their default share of traffic
+    public static Map<String, LoadRoute> defaults() {
+        Map<String, LoadRoute> routes = new LinkedHashMap<>();
+        routes.put("seat_total", new LoadRoute("seat_total", "GET", "/seat_allocation/total",
+                "{\"party_name\":\"{party}\",\"year\":\"{year}\"}", "application/json", 30));
+        routes.put("party_votes_total", new LoadRoute("party_votes_total", "GET", "/parties_votes/total_votes/{party}",
+                null, null, 25));
+        routes.put("party_year", new LoadRoute("party_year", "GET", "/party/year/{year}",
+                null, null, 20));
+        routes.put("dist_election_year", new LoadRoute("dist_election_year", "GET", "/dist_election/all-by-year/{year}",
+                null, null, 20));
+        routes.put("seat_allocation_post", new LoadRoute("seat_allocation_post", "POST", "/seat_allocation",
+                "{\"district_election_id\":1,\"party_id\":1,\"bonus_round\":0,\"first_round\":1,\"second_round\":0,\"final_allocation\":1}",
+                "application/json", 5));
+        return routes;
+    }
+
+    // Parses "seat_total:30,party_year:20" into weighted routes; unknown names are skipped
+    public static List<LoadRoute> parseMix(String mix) {
+        Map<String, LoadRoute> known = defaults();
+        if (mix == null || mix.isBlank()) {
+            return new ArrayList<>(known.values());
+        }
+        List<LoadRoute> routes = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":");
+            LoadRoute route = known.get(pair[0].trim());
+            if (route == null) {
+                System.err.println("⚠️ Unknown route in mix: " + pair[0]);
+                continue;
+            }
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : route.weight;
+            if (weight > 0) {
+                routes.add(route.withWeight(weight));
+            }
+        }
+        return routes;
+    }
+
+    public static LoadRoute pick(List<LoadRoute> routes, int totalWeight) {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (LoadRoute route : routes) {
+            r -= route.weight;
+            if (r < 0) {
+                return route;
+            }
+        }
+        return routes.get(routes.size() - 1);
+    }
+}
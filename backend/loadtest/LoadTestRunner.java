@@ -0,0 +1,222 @@
+package backend.loadtest;
+
+import backend.config.AppConfig;
+import backend.server.ElectionServer;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Replays a results-night style mix of API calls at a fixed request rate.
+// Latency is measured from the time a request was *scheduled* (open loop),
+// so a stalled server shows up in the percentiles instead of hiding it.
+//
+// Run: java -cp ... backend.loadtest.LoadTestRunner --rps=200 --duration=60 --embedded
+// Every --key=value is the same as -Delection.loadtest.key=value.
+public class LoadTestRunner {
+
+    // Per-route results
+    static class RouteStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                String[] pair = arg.substring(2).split("=", 2);
+                System.setProperty("election.loadtest." + pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+        }
+
+        boolean embedded = AppConfig.getBoolean("election.loadtest.embedded", false);
+        ElectionServer server = null;
+        String target = AppConfig.get("election.loadtest.target", "http://localhost:8080");
+        if (embedded) {
+            server = new ElectionServer();
+            server.server();
+            target = "http://localhost:" + server.getPort();
+        }
+
+        try {
+            new LoadTestRunner().run(target);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    public void run(String target) throws InterruptedException {
+        int rps = AppConfig.getInt("election.loadtest.rps", 100);
+        int durationSec = AppConfig.getInt("election.loadtest.duration", 30);
+        int warmupSec = AppConfig.getInt("election.loadtest.warmup", 5);
+        int maxInFlight = AppConfig.getInt("election.loadtest.max_in_flight", 1000);
+        int timeoutMs = AppConfig.getInt("election.loadtest.timeout_ms", 5000);
+        String[] parties = AppConfig.get("election.loadtest.parties", "b1,b2").split(",");
+        String[] yearValues = AppConfig.get("election.loadtest.years", "2024").split(",");
+        int[] years = new int[yearValues.length];
+        for (int i = 0; i < yearValues.length; i++) {
+            years[i] = Integer.parseInt(yearValues[i].trim());
+        }
+
+        List<LoadRoute> routes = LoadRoute.parseMix(AppConfig.get("election.loadtest.mix", null));
+        if (routes.isEmpty()) {
+            System.err.println("❌ Route mix is empty, nothing to run.");
+            return;
+        }
+        int totalWeight = routes.stream().mapToInt(r -> r.weight).sum();
+        Map<String, RouteStats> stats = new LinkedHashMap<>();
+        for (LoadRoute route : routes) {
+            stats.put(route.name, new RouteStats());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .executor(pool)
+                .build();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        System.out.println("▶ Load test against " + target + ": " + rps + " rps for " + durationSec
+                + "s (+" + warmupSec + "s warmup), routes " + stats.keySet());
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rps);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSec);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSec);
+        long sent = 0;
+
+        for (long intended = start; intended < end; intended = start + (++sent) * intervalNanos) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadRoute route = LoadRoute.pick(routes, totalWeight);
+            String party = parties[ThreadLocalRandom.current().nextInt(parties.length)].trim();
+            int year = years[ThreadLocalRandom.current().nextInt(years.length)];
+            HttpRequest request = buildRequest(target, route, party, year, sent, timeoutMs);
+            boolean measured = intended >= measureFrom;
+            RouteStats routeStats = stats.get(route.name);
+            long scheduledAt = intended;
+
+            inFlight.acquire();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                  .whenComplete((response, error) -> {
+                      inFlight.release();
+                      if (!measured) {
+                          return;
+                      }
+                      routeStats.latency.record((System.nanoTime() - scheduledAt) / 1000);
+                      if (error != null || response.statusCode() >= 400) {
+                          routeStats.errors.incrementAndGet();
+                      } else {
+                          routeStats.bytes.addAndGet(response.body().length);
+                      }
+                  });
+        }
+
+        // Wait for the tail of outstanding requests
+        inFlight.tryAcquire(maxInFlight, timeoutMs * 2L, TimeUnit.MILLISECONDS);
+        pool.shutdownNow();
+
+        report(stats, durationSec);
+    }
+
+    private HttpRequest buildRequest(String target, LoadRoute route, String party, int year, long n, int timeoutMs) {
+        String body = route.body(party, year, n);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target + route.path(party, year, n)))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .method(route.method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (route.contentType != null) {
+            builder.header("Content-Type", route.contentType);
+        }
+        return builder.build();
+    }
+
+    private void report(Map<String, RouteStats> stats, int durationSec) {
+        LatencyHistogram all = new LatencyHistogram();
+        long errors = 0;
+        long bytes = 0;
+
+        System.out.println();
+        System.out.printf("%-22s %8s %7s %9s %9s %9s %9s %9s%n",
+                "route", "count", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (Map.Entry<String, RouteStats> e : stats.entrySet()) {
+            RouteStats s = e.getValue();
+            printRow(e.getKey(), s.latency, s.errors.get());
+            all.add(s.latency);
+            errors += s.errors.get();
+            bytes += s.bytes.get();
+        }
+        printRow("TOTAL", all, errors);
+
+        double throughput = (double) all.count() / Math.max(1, durationSec);
+        System.out.printf("%nThroughput: %.1f req/s, %.1f KB/s, error rate %.2f%%%n",
+                throughput, bytes / 1024.0 / Math.max(1, durationSec),
+                all.count() == 0 ? 0 : 100.0 * errors / all.count());
+
+        String reportFile = AppConfig.get("election.loadtest.report", null);
+        if (reportFile != null) {
+            appendJsonLine(reportFile, stats, all, errors, throughput);
+        }
+    }
+
+    private void printRow(String name, LatencyHistogram h, long errors) {
+        System.out.printf("%-22s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, h.count(), errors,
+                h.percentile(50) / 1000.0, h.percentile(90) / 1000.0, h.percentile(99) / 1000.0,
+                h.percentile(99.9) / 1000.0, h.max() / 1000.0);
+    }
+
+    // One JSON object per run, appended, so runs can be compared over time
+    private void appendJsonLine(String file, Map<String, RouteStats> stats, LatencyHistogram all, long errors, double throughput) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"timestamp\":").append(System.currentTimeMillis())
+          .append(",\"throughput\":").append(String.format("%.1f", throughput))
+          .append(",\"errors\":").append(errors)
+          .append(",\"total\":").append(histogramJson(all))
+          .append(",\"routes\":{");
+        boolean first = true;
+        for (Map.Entry<String, RouteStats> e : stats.entrySet()) {
+            if (!first) sb.append(",");
+            sb.append("\"").append(e.getKey()).append("\":").append(histogramJson(e.getValue().latency));
+            first = false;
+        }
+        sb.append("}}");
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            out.println(sb);
+            System.out.println("✅ Report appended to " + file);
+        } catch (IOException e) {
+            System.err.println("❌ Error writing report: " + e.getMessage());
+        }
+    }
+
+    private String histogramJson(LatencyHistogram h) {
+        return "{\"count\":" + h.count()
+                + ",\"p50_us\":" + h.percentile(50)
+                + ",\"p90_us\":" + h.percentile(90)
+                + ",\"p99_us\":" + h.percentile(99)
+                + ",\"p999_us\":" + h.percentile(99.9)
+                + ",\"max_us\":" + h.max() + "}";
+    }
+}
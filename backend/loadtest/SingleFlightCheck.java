@@ -0,0 +1,129 @@
+package backend.loadtest;
+
+import backend.config.AppConfig;
+import backend.server.ElectionServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Checks that request coalescing (SingleFlightHandler) never hands one
+// client's answer to another: fires concurrent GET /seat_allocation/total
+// requests whose JSON bodies alternate between two parties and compares each
+// response with the answer to the same body asked on its own.
+//
+// Run: java -cp ... backend.loadtest.SingleFlightCheck --parties=b1,b2 --year=2024 --requests=60 --embedded
+// Exits with status 1 when any response belongs to the other body.
+public class SingleFlightCheck {
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                String[] pair = arg.substring(2).split("=", 2);
+                System.setProperty("election.loadtest." + pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+        }
+
+        boolean embedded = AppConfig.getBoolean("election.loadtest.embedded", false);
+        ElectionServer server = null;
+        String target = AppConfig.get("election.loadtest.target", "http://localhost:8080");
+        if (embedded) {
+            server = new ElectionServer();
+            server.server();
+            target = "http://localhost:" + server.getPort();
+        }
+
+        int mismatches;
+        try {
+            mismatches = run(target);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    static int run(String target) throws Exception {
+        String[] parties = AppConfig.get("election.loadtest.parties", "b1,b2").split(",");
+        int year = AppConfig.getInt("election.loadtest.year", 2024);
+        int requests = AppConfig.getInt("election.loadtest.requests", 60);
+        if (parties.length < 2) {
+            System.err.println("❌ Need two parties (--parties=a,b).");
+            return 1;
+        }
+        String[] bodies = {
+                "{\"party_name\":\"" + parties[0].trim() + "\",\"year\":\"" + year + "\"}",
+                "{\"party_name\":\"" + parties[1].trim() + "\",\"year\":\"" + year + "\"}"
+        };
+
+        // One blocked thread per request, so they really are all in flight at once; the client has its own pool
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        try {
+            // The answer to each body on its own
+            String[] expected = new String[2];
+            for (int i = 0; i < 2; i++) {
+                expected[i] = client.send(request(target, bodies[i]), HttpResponse.BodyHandlers.ofString()).body();
+            }
+            if (expected[0].equals(expected[1])) {
+                System.out.println("⚠️ Both parties get the same answer, pick two with different totals: " + expected[0]);
+            }
+
+            CountDownLatch go = new CountDownLatch(1);
+            AtomicInteger mismatches = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            List<CompletableFuture<Void>> calls = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                int which = i % 2;
+                calls.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        go.await();
+                        HttpResponse<String> response = client.send(request(target, bodies[which]),
+                                HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        } else if (!response.body().equals(expected[which])) {
+                            mismatches.incrementAndGet();
+                            System.err.println("❌ " + bodies[which] + " got " + response.body());
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }, pool));
+            }
+            go.countDown();
+            CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).join();
+
+            if (mismatches.get() == 0) {
+                System.out.println("✅ " + requests + " concurrent requests, every response matched its own body"
+                        + (failures.get() > 0 ? " (" + failures.get() + " failed or were shed)" : "") + ".");
+            } else {
+                System.err.println("❌ " + mismatches.get() + " of " + requests + " responses belonged to the other body.");
+            }
+            return mismatches.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static HttpRequest request(String target, String body) {
+        return HttpRequest.newBuilder(URI.create(target + "/seat_allocation/total"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .method("GET", HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
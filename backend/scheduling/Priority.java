@@ -0,0 +1,25 @@
+package backend.scheduling;
+
+// Work classes, most urgent first. On election night official results
+// (INGEST) must never wait behind dashboards (READ); ADMIN is everything else
+// that changes data (CRUD edits, imports, recalculation requests).
+// The server layer sets the class of the request a thread is working on;
+// PriorityExecutor and JdbcExecutor queue work by it.
+public enum Priority {
+    INGEST, ADMIN, READ;
+
+    private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<>();
+
+    // null outside a request
+    public static Priority current() {
+        return CURRENT.get();
+    }
+
+    public static void set(Priority priority) {
+        CURRENT.set(priority);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
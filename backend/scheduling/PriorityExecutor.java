@@ -0,0 +1,195 @@
+package backend.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fixed thread pool with one queue per Priority. Shared workers always take
+// the most urgent queued task; on top of those, reserved workers only take
+// INGEST work (reservedIngest) or INGEST/ADMIN work (reservedAdmin), so a
+// backlog of reads can occupy every shared worker and results still start
+// right away. Each queue has its own bound, a full READ queue never turns
+// away an INGEST task.
+//
+// execute(Runnable) uses the submitting thread's Priority, or
+// defaultPriority when it has none.
+public class PriorityExecutor implements Executor {
+    private static final Priority[] CLASSES = Priority.values();
+
+    private final String name;
+    private final Priority defaultPriority;
+    private final int queueLimit;
+    private final List<ArrayDeque<Runnable>> queues = new ArrayList<>(CLASSES.length);
+    private final int[] active = new int[CLASSES.length];
+    private final AtomicLong[] completed = new AtomicLong[CLASSES.length];
+    private final AtomicLong[] rejected = new AtomicLong[CLASSES.length];
+    private final Thread[] workers;
+    private boolean shutdown;
+
+    public PriorityExecutor(String name, int sharedThreads, int reservedIngest, int reservedAdmin,
+                            int queueLimit, Priority defaultPriority, boolean daemon) {
+        this.name = name;
+        this.defaultPriority = defaultPriority;
+        this.queueLimit = queueLimit;
+        for (int i = 0; i < CLASSES.length; i++) {
+            queues.add(new ArrayDeque<>());
+            completed[i] = new AtomicLong();
+            rejected[i] = new AtomicLong();
+        }
+        int shared = Math.max(1, sharedThreads);
+        workers = new Thread[shared + Math.max(0, reservedIngest) + Math.max(0, reservedAdmin)];
+        int n = 0;
+        for (int i = 0; i < shared; i++, n++) {
+            workers[n] = worker(Priority.READ, name + "-" + (n + 1), daemon);
+        }
+        for (int i = 0; i < reservedIngest; i++, n++) {
+            workers[n] = worker(Priority.INGEST, name + "-ingest-" + (i + 1), daemon);
+        }
+        for (int i = 0; i < reservedAdmin; i++, n++) {
+            workers[n] = worker(Priority.ADMIN, name + "-admin-" + (i + 1), daemon);
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    private Thread worker(Priority lowest, String threadName, boolean daemon) {
+        Thread t = new Thread(() -> work(lowest), threadName);
+        t.setDaemon(daemon);
+        return t;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Priority current = Priority.current();
+        execute(current == null ? defaultPriority : current, task);
+    }
+
+    public void execute(Priority priority, Runnable task) {
+        int index = priority.ordinal();
+        synchronized (this) {
+            if (shutdown || queues.get(index).size() >= queueLimit) {
+                rejected[index].incrementAndGet();
+                throw new RejectedExecutionException(name + ": " + priority + " queue is full");
+            }
+            queues.get(index).add(task);
+            notifyAll();
+        }
+    }
+
+    // Runs tasks of class lowest or more urgent until shut down and drained
+    private void work(Priority lowest) {
+        while (true) {
+            Runnable task = null;
+            int index = -1;
+            synchronized (this) {
+                while (task == null) {
+                    for (int i = 0; i <= lowest.ordinal() && task == null; i++) {
+                        if (!queues.get(i).isEmpty()) {
+                            task = queues.get(i).poll();
+                            index = i;
+                        }
+                    }
+                    if (task == null) {
+                        if (shutdown) {
+                            return;
+                        }
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+                active[index]++;
+            }
+            try {
+                Priority.set(CLASSES[index]);
+                task.run();
+            } catch (RuntimeException | Error e) {
+                System.err.println("❌ Uncaught error in " + Thread.currentThread().getName() + ": " + e);
+            } finally {
+                Priority.clear();
+                completed[index].incrementAndGet();
+                synchronized (this) {
+                    active[index]--;
+                }
+            }
+        }
+    }
+
+    // Like ExecutorService.shutdown: queued work still runs, nothing new is accepted
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return false;
+            }
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int threads() {
+        return workers.length;
+    }
+
+    public synchronized int activeCount() {
+        int total = 0;
+        for (int count : active) {
+            total += count;
+        }
+        return total;
+    }
+
+    public synchronized int queued() {
+        int total = 0;
+        for (ArrayDeque<Runnable> queue : queues) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    public long completedCount() {
+        long total = 0;
+        for (AtomicLong count : completed) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public long rejectedCount() {
+        long total = 0;
+        for (AtomicLong count : rejected) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\"threads\":").append(workers.length).append(",\"classes\":{");
+        for (int i = 0; i < CLASSES.length; i++) {
+            json.append(i == 0 ? "" : ",").append('"').append(CLASSES[i].name().toLowerCase()).append("\":{")
+                    .append("\"queued\":").append(queues.get(i).size())
+                    .append(",\"active\":").append(active[i])
+                    .append(",\"completed\":").append(completed[i].get())
+                    .append(",\"rejected\":").append(rejected[i].get()).append('}');
+        }
+        return json.append("}}").toString();
+    }
+}
@@ -0,0 +1,86 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+// Runs an AsyncHandler inside the normal (blocking) handler chain. The request
+// body is read here, on the request thread, so the JDBC pool never waits on a
+// slow sender; then the handler starts its work and this thread returns. The
+// outer layers finish through AsyncCompletion when the future completes.
+//
+// Uploads that are parsed as they stream in (election.server.streamed_bodies,
+// default POST /parties_votes/bulk and /transfer/import) are not buffered:
+// the JDBC thread reads them itself. A slow sender is still cut off by the
+// body timeout in LimitsHandler, which also frees that thread.
+public class AsyncBridgeHandler implements HttpHandler {
+    private static final List<String> STREAMED = Arrays.asList(
+            AppConfig.get("election.server.streamed_bodies", "/parties_votes/bulk,/transfer/import").split("\\s*,\\s*"));
+
+    private final AsyncHandler handler;
+
+    public AsyncBridgeHandler(AsyncHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!isStreamed(exchange)) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            exchange.setStreams(new ByteArrayInputStream(body), null);
+        }
+        if (exchange instanceof BufferedExchange) {
+            ((BufferedExchange) exchange).deferFinish();
+        }
+
+        CompletableFuture<?> future = handler.handleAsync(exchange);
+        AsyncCompletion pending = AsyncCompletion.detach();
+        future.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                fail(exchange, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+            pending.complete();
+        }, AsyncCompletion.executor());
+    }
+
+    private static boolean isStreamed(HttpExchange exchange) {
+        return "POST".equals(exchange.getRequestMethod()) && STREAMED.contains(exchange.getRequestURI().getPath());
+    }
+
+    private static void fail(HttpExchange exchange, Throwable error) {
+        if (exchange.getResponseCode() != -1) {
+            // Part of the response is out already: all that can be done is drop the connection
+            System.err.println("❌ Request failed after the response started: " + error.getMessage());
+            exchange.close();
+            return;
+        }
+        boolean busy = error instanceof RejectedExecutionException;
+        if (!busy) {
+            System.err.println("❌ Request failed: " + error);
+        }
+        String json = busy
+                ? "{\"status\":\"error\",\"message\":\"Database is busy, try again shortly.\"}"
+                : "{\"status\":\"error\",\"message\":\"Internal server error\"}";
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (busy) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            exchange.sendResponseHeaders(busy ? 503 : 500, json.getBytes().length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(json.getBytes());
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+}
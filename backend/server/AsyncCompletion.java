@@ -0,0 +1,108 @@
+package backend.server;
+
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+// Lets the layers around a handler (limits, read routing, compression, the NIO
+// server) finish their part after an AsyncHandler's future completes rather
+// than when handle() returns. Each layer calls whenDone(...) where it used to
+// finish inline: for an ordinary handler the action runs right away, for a
+// detached one it is queued and run, in the same inner-to-outer order, once the
+// response is complete.
+//
+// Everything runs on the request thread until the bridge detaches, so the
+// pending request is tracked per thread; begin() resets it for a new request.
+// A traced request's span is kept with it, so the queued actions (compression,
+// the socket write) still land in its trace.
+public final class AsyncCompletion {
+    private static final ThreadLocal<AsyncCompletion> CURRENT = new ThreadLocal<>();
+    private static volatile Executor completions = ForkJoinPool.commonPool();
+
+    public interface Action {
+        void run() throws IOException;
+    }
+
+    private final List<Action> actions = new ArrayList<>();
+    private final Span span = Tracer.capture();
+    private boolean completed;
+    private boolean draining;
+
+    private AsyncCompletion() {
+    }
+
+    // Where completions of detached requests run; ElectionServer passes its worker pool
+    public static void setExecutor(Executor executor) {
+        completions = executor;
+    }
+
+    static Executor executor() {
+        return completions;
+    }
+
+    static void begin() {
+        CURRENT.remove();
+    }
+
+    // Called by AsyncBridgeHandler once the handler has gone asynchronous
+    static AsyncCompletion detach() {
+        AsyncCompletion pending = new AsyncCompletion();
+        CURRENT.set(pending);
+        return pending;
+    }
+
+    static void whenDone(Action action) throws IOException {
+        AsyncCompletion pending = CURRENT.get();
+        if (pending == null) {
+            action.run();
+            return;
+        }
+        synchronized (pending) {
+            if (!pending.completed || pending.draining) {
+                pending.actions.add(action);
+                return;
+            }
+        }
+        runQuietly(action);
+    }
+
+    // Runs the queued actions in order; ones queued while this runs are picked up too
+    void complete() {
+        synchronized (this) {
+            completed = true;
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        Span previous = Tracer.restore(span);
+        try {
+            while (true) {
+                Action next;
+                synchronized (this) {
+                    if (actions.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    next = actions.remove(0);
+                }
+                runQuietly(next);
+            }
+        } finally {
+            Tracer.restore(previous);
+        }
+    }
+
+    private static void runQuietly(Action action) {
+        try {
+            action.run();
+        } catch (IOException | RuntimeException e) {
+            // client went away, nothing more to do
+        }
+    }
+}
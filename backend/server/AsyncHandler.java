@@ -0,0 +1,33 @@
+package backend.server;
+
+import backend.db.JdbcExecutor;
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+// Handler contract for database-backed endpoints: handleAsync starts the work
+// (normally on JdbcExecutor) and returns at once; the work writes the response,
+// and the exchange is finished when the returned future completes. Wrapped in
+// an AsyncBridgeHandler, the request thread is free again as soon as
+// handleAsync returns. A future that fails before anything was sent becomes a
+// 500 (503 when the JDBC queue is full).
+@FunctionalInterface
+public interface AsyncHandler {
+    CompletableFuture<?> handleAsync(HttpExchange exchange) throws IOException;
+
+    // The existing blocking controllers, run as a whole on the JDBC pool
+    static AsyncHandler offload(HttpHandler handler) {
+        return exchange -> JdbcExecutor.run(() -> {
+            Span span = Tracer.span("handler"); // closed by hand: nothing in the block uses it
+            try {
+                handler.handle(exchange);
+            } finally {
+                span.close();
+            }
+        });
+    }
+}
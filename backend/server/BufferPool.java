@@ -0,0 +1,54 @@
+package backend.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fixed-size direct buffers for socket I/O, reused instead of allocated per
+// read or per response. Direct buffers are what the channel would copy into
+// anyway, and keeping them pooled avoids both the copy and the slow
+// allocate/free of direct memory. At most maxPooled idle buffers are kept.
+class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final AtomicLong allocated = new AtomicLong();
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    // Only buffers that came from this pool go back in; anything else is ignored
+    void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    String toJson() {
+        return "{\"buffer_bytes\":" + bufferSize + ",\"pooled\":" + pooled.get()
+                + ",\"allocated\":" + allocated.get() + "}";
+    }
+}
@@ -0,0 +1,190 @@
+package backend.server;
+
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+// Wraps the real exchange and holds back the status line and body until the
+// handler closes the response, so the server layer can rewrite the body
+// (compression etc.) and send the correct Content-Length afterwards.
+// Handlers don't notice: they still call sendResponseHeaders + getResponseBody.
+// A handler that asks for a chunked response (length 0) is streaming on purpose,
+// so that body is passed straight through instead of being buffered.
+public class BufferedExchange extends HttpExchange {
+    protected final HttpExchange delegate;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final OutputStream body = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            if (stream != null) {
+                stream.write(b);
+            } else {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (stream != null) {
+                stream.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (stream != null) {
+                stream.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            } else if (!deferred) {
+                finish();
+            }
+        }
+    };
+    private OutputStream stream;
+    private int statusCode = -1;
+    private boolean headersSent;
+    private boolean finished;
+    // Set for async handlers: the buffered body is sent when the request completes, not on close
+    private volatile boolean deferred;
+
+    public BufferedExchange(HttpExchange delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        statusCode = rCode;
+        if (responseLength == -1) {
+            // No body at all, nothing to buffer
+            headersSent = true;
+            finished = true;
+            delegate.sendResponseHeaders(rCode, -1);
+        } else if (responseLength == 0) {
+            headersSent = true;
+            finished = true;
+            stream = startStreaming(rCode);
+        }
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return body;
+    }
+
+    // So a pool thread finishing an async handler doesn't also do the compression and socket write
+    void deferFinish() {
+        deferred = true;
+    }
+
+    // Sends whatever the handler produced; safe to call more than once
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (statusCode == -1) {
+            return; // handler never answered, let the server deal with it
+        }
+        byte[] bytes = buffer.toByteArray();
+        headersSent = true;
+        writeResponse(statusCode, bytes);
+    }
+
+    // Override to transform the body; default just sends it as-is
+    protected void writeResponse(int code, byte[] bytes) throws IOException {
+        send(code, bytes);
+    }
+
+    // Final status and body to the wrapped exchange, timed as http.write when that is the connection itself
+    protected void send(int code, byte[] bytes) throws IOException {
+        try (Span span = delegate instanceof BufferedExchange ? Span.NOOP : Tracer.span("http.write")) {
+            span.attr("bytes", bytes.length);
+            delegate.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                try (OutputStream os = delegate.getResponseBody()) {
+                    os.write(bytes);
+                }
+            }
+        }
+    }
+
+    // Override to wrap streamed (chunked) bodies; default passes them through
+    protected OutputStream startStreaming(int code) throws IOException {
+        delegate.sendResponseHeaders(code, 0);
+        return delegate.getResponseBody();
+    }
+
+    public boolean isHeadersSent() {
+        return headersSent;
+    }
+
+    @Override
+    public void close() {
+        try {
+            finish();
+        } catch (IOException e) {
+            // client went away, nothing more to do
+        }
+        delegate.close();
+    }
+
+    @Override
+    public Headers getRequestHeaders() { return delegate.getRequestHeaders(); }
+
+    @Override
+    public Headers getResponseHeaders() { return delegate.getResponseHeaders(); }
+
+    @Override
+    public URI getRequestURI() { return delegate.getRequestURI(); }
+
+    @Override
+    public String getRequestMethod() { return delegate.getRequestMethod(); }
+
+    @Override
+    public HttpContext getHttpContext() { return delegate.getHttpContext(); }
+
+    @Override
+    public InputStream getRequestBody() { return delegate.getRequestBody(); }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() { return delegate.getRemoteAddress(); }
+
+    @Override
+    public int getResponseCode() { return statusCode; }
+
+    @Override
+    public InetSocketAddress getLocalAddress() { return delegate.getLocalAddress(); }
+
+    @Override
+    public String getProtocol() { return delegate.getProtocol(); }
+
+    @Override
+    public Object getAttribute(String name) { return delegate.getAttribute(name); }
+
+    @Override
+    public void setAttribute(String name, Object value) { delegate.setAttribute(name, value); }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) { delegate.setStreams(i, o); }
+
+    @Override
+    public HttpPrincipal getPrincipal() { return delegate.getPrincipal(); }
+}
@@ -0,0 +1,111 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Compresses responses for clients that send Accept-Encoding: gzip / deflate.
+// Small bodies are sent as-is, compression doesn't pay off below the threshold.
+public class CompressionHandler implements HttpHandler {
+    private static final boolean ENABLED = AppConfig.getBoolean("election.http.compression.enabled", true);
+    private static final int MIN_BYTES = AppConfig.getInt("election.http.compression.min_bytes", 1024);
+    private static final DeflaterPool POOL = new DeflaterPool(AppConfig.getInt("election.http.compression.level", 6));
+
+    private final HttpHandler next;
+
+    public CompressionHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (ENABLED) {
+            // Whether or not this response ends up compressed, another Accept-Encoding could get a different one
+            varyOnAcceptEncoding(exchange.getResponseHeaders());
+        }
+        String encoding = encodingFor(exchange);
+        if (encoding == null) {
+            next.handle(exchange);
+            return;
+        }
+
+        BufferedExchange buffered = new BufferedExchange(exchange) {
+            @Override
+            protected void writeResponse(int code, byte[] bytes) throws IOException {
+                if (bytes.length < MIN_BYTES || getResponseHeaders().containsKey("Content-Encoding")) {
+                    super.writeResponse(code, bytes);
+                    return;
+                }
+                byte[] compressed;
+                try (Span span = Tracer.span("http.compress")) {
+                    compressed = POOL.compress(bytes, bytes.length, "gzip".equals(encoding));
+                    span.attr("bytes_in", bytes.length).attr("bytes_out", compressed.length);
+                }
+                getResponseHeaders().set("Content-Encoding", encoding);
+                send(code, compressed);
+            }
+
+            @Override
+            protected OutputStream startStreaming(int code) throws IOException {
+                if (getResponseHeaders().containsKey("Content-Encoding")) {
+                    return super.startStreaming(code);
+                }
+                getResponseHeaders().set("Content-Encoding", encoding);
+                delegate.sendResponseHeaders(code, 0);
+                OutputStream raw = delegate.getResponseBody();
+                return "gzip".equals(encoding)
+                        ? new GZIPOutputStream(raw, 8192, true)
+                        : new DeflaterOutputStream(raw, true);
+            }
+        };
+        next.handle(buffered);
+        AsyncCompletion.whenDone(buffered::finish);
+    }
+
+    private static void varyOnAcceptEncoding(Headers headers) {
+        List<String> vary = headers.get("Vary");
+        if (vary == null || vary.stream().noneMatch(v -> v.toLowerCase().contains("accept-encoding"))) {
+            headers.add("Vary", "Accept-Encoding");
+        }
+    }
+
+    // The encoding this request's response will get, null for none
+    static String encodingFor(HttpExchange exchange) {
+        if (!ENABLED || "HEAD".equalsIgnoreCase(exchange.getRequestMethod())) {
+            return null;
+        }
+        return chooseEncoding(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    // Picks gzip, then deflate, honouring q=0; null means send identity
+    static String chooseEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String part : acceptEncoding.toLowerCase().split(",")) {
+            String[] tokens = part.trim().split(";");
+            String name = tokens[0].trim();
+            boolean refused = tokens.length > 1 && tokens[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+            if (refused) {
+                continue;
+            }
+            if (name.equals("gzip") || name.equals("*")) {
+                gzip = true;
+            } else if (name.equals("deflate")) {
+                deflate = true;
+            }
+        }
+        return gzip ? "gzip" : (deflate ? "deflate" : null);
+    }
+}
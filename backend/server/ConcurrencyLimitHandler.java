@@ -0,0 +1,117 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Adaptive limit on requests being worked on at once, shared by all routes.
+// The limit follows latency (gradient method): it is compared with a slow
+// moving average of response times, and when recent requests take longer than
+// tolerance x that baseline the limit shrinks, otherwise it grows by about
+// sqrt(limit) per update. Requests over the limit get a 503 straight away,
+// before any database work, instead of queueing behind slow queries.
+//
+// Writes are preferred: reads may only use read_share of the limit, so there
+// is always room left for POST/PUT/DELETE when reads are being shed.
+//
+// Settings: election.concurrency.adaptive (default true), election.concurrency.initial (64),
+// election.concurrency.min (8), election.concurrency.max (1000),
+// election.concurrency.read_share (0.8), election.concurrency.tolerance (1.5)
+public class ConcurrencyLimitHandler implements HttpHandler {
+    private static final boolean ENABLED = AppConfig.getBoolean("election.concurrency.adaptive", true);
+    private static final int MIN_LIMIT = AppConfig.getInt("election.concurrency.min", 8);
+    private static final int MAX_LIMIT = AppConfig.getInt("election.concurrency.max", 1000);
+    private static final double READ_SHARE = Double.parseDouble(AppConfig.get("election.concurrency.read_share", "0.8"));
+    private static final double TOLERANCE = Double.parseDouble(AppConfig.get("election.concurrency.tolerance", "1.5"));
+    private static final double SMOOTHING = 0.2;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicLong shedReads = new AtomicLong();
+    private static final AtomicLong shedWrites = new AtomicLong();
+    private static volatile double limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT,
+            AppConfig.getInt("election.concurrency.initial", 64)));
+    // Response time averages in nanoseconds: recent (~10 requests) and baseline (~500 requests)
+    private static double shortRtt;
+    private static double longRtt;
+
+    private final HttpHandler next;
+
+    public ConcurrencyLimitHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!ENABLED) {
+            next.handle(exchange);
+            return;
+        }
+        boolean read = RateLimitHandler.isRead(exchange.getRequestMethod());
+        if (!tryAcquire(read)) {
+            (read ? shedReads : shedWrites).incrementAndGet();
+            RateLimitHandler.reject(exchange, 503, "Server is busy, try again shortly.");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            next.handle(exchange);
+        } finally {
+            AsyncCompletion.whenDone(() -> release(System.nanoTime() - start));
+        }
+    }
+
+    private static boolean tryAcquire(boolean read) {
+        int cap = read ? Math.max(1, (int) (limit * READ_SHARE)) : (int) limit;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static void release(long rtt) {
+        int current = inFlight.getAndDecrement();
+        update(rtt, current);
+    }
+
+    private static synchronized void update(long rtt, int inFlightAtEnd) {
+        shortRtt = shortRtt == 0 ? rtt : shortRtt * 0.9 + rtt * 0.1;
+        longRtt = longRtt == 0 ? rtt : longRtt * 0.998 + rtt * 0.002;
+        // After a slow spell the baseline is too high to notice the next one: let it come down faster
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+        // Nowhere near the limit: latency says nothing about it, leave it alone
+        if (inFlightAtEnd < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    public static String statsJson() {
+        double shortMs;
+        double longMs;
+        synchronized (ConcurrencyLimitHandler.class) {
+            shortMs = shortRtt / 1e6;
+            longMs = longRtt / 1e6;
+        }
+        return "{\"enabled\":" + ENABLED
+                + ",\"limit\":" + (int) limit
+                + ",\"read_limit\":" + Math.max(1, (int) (limit * READ_SHARE))
+                + ",\"in_flight\":" + inFlight.get()
+                + ",\"shed_reads\":" + shedReads.get()
+                + ",\"shed_writes\":" + shedWrites.get()
+                + ",\"recent_ms\":" + String.format(java.util.Locale.ROOT, "%.2f", shortMs)
+                + ",\"baseline_ms\":" + String.format(java.util.Locale.ROOT, "%.2f", longMs) + "}";
+    }
+}
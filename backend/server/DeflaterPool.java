@@ -0,0 +1,64 @@
+package backend.server;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Reuses Deflater instances between responses (each one holds native zlib memory,
+// creating one per response is slow and leans on finalization to free it).
+public class DeflaterPool {
+    private static final int MAX_POOLED = 64;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int level;
+    private final ConcurrentLinkedQueue<Deflater> rawPool = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Deflater> zlibPool = new ConcurrentLinkedQueue<>();
+
+    public DeflaterPool(int level) {
+        this.level = level;
+    }
+
+    // gzip = true gives a gzip stream, false gives zlib ("deflate" content-coding)
+    public byte[] compress(byte[] data, int length, boolean gzip) {
+        ConcurrentLinkedQueue<Deflater> pool = gzip ? rawPool : zlibPool;
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, gzip);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+            if (gzip) {
+                out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buf);
+                out.write(buf, 0, n);
+            }
+            if (gzip) {
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, length);
+                writeIntLE(out, (int) crc.getValue());
+                writeIntLE(out, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            if (pool.size() < MAX_POOLED) {
+                pool.offer(deflater);
+            } else {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int v) {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+        out.write((v >>> 16) & 0xff);
+        out.write((v >>> 24) & 0xff);
+    }
+}
@@ -1,9 +1,13 @@
 package backend.server;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 
+import backend.config.AppConfig;
+import backend.controller.AnalyticsHandler;
+import backend.controller.ArchiveHandler;
 import backend.controller.DistrictElectionHandler;
 import backend.controller.DistrictHandler;
 import backend.controller.ProvinceController;
@@ -11,26 +15,115 @@ import backend.controller.ElectionHandler;
 import backend.controller.PartyHandler;
 import backend.controller.PartyVotesHandler;
 import backend.controller.SeatAllocationHandler;
+import backend.controller.SimulationHandler;
+import backend.controller.YearTransferHandler;
+import backend.scheduling.Priority;
+import backend.scheduling.PriorityExecutor;
+import backend.services.TrendIndex;
 
 public class ElectionServer {
+    private static final boolean ASYNC_JDBC = AppConfig.getBoolean("election.db.async", true);
+
+    private HttpServer server;
+    private NioHttpServer nioServer;
+    private PriorityExecutor executor;
+
     public  void server() throws IOException {
-        int port = 8080;
+        int port = AppConfig.getInt("election.server.port", 8080);
         // Create HTTP server on specified port
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        if (ServerLimits.BACKEND.equals("nio")) {
+            nioServer = new NioHttpServer(new InetSocketAddress(port), ServerLimits.BACKLOG);
+        } else {
+            ServerLimits.applyJdkSettings();
+            server = HttpServer.create(new InetSocketAddress(port), ServerLimits.BACKLOG);
+        }
 
         // Register API handlers
         // ElectionServer.java
-        server.createContext("/province", new ProvinceController());
-        server.createContext("/districts", new DistrictHandler());
-        server.createContext("/election", new ElectionHandler());
-        server.createContext("/party", new PartyHandler());
-        server.createContext("/parties_votes", new PartyVotesHandler());
-        server.createContext("/seat_allocation", new SeatAllocationHandler());
-        server.createContext("/dist_election", new DistrictElectionHandler());
-
-
-        server.setExecutor(null); // Default executor
-        server.start();
-        System.out.println("✅ Election Server started on port " + port);
+        // Handlers that do JDBC run on the JDBC pool (see JdbcExecutor), the rest on the worker pool
+        registerJdbc("/province", new ProvinceController());
+        registerJdbc("/districts", invalidatesTrends(new DistrictHandler()));
+        registerJdbc("/election", invalidatesTrends(new ElectionHandler()));
+        registerJdbc("/party", invalidatesTrends(new PartyHandler()));
+        registerJdbc("/parties_votes", invalidatesTrends(new PartyVotesHandler()));
+        registerJdbc("/seat_allocation", invalidatesTrends(new SeatAllocationHandler()));
+        registerJdbc("/dist_election", invalidatesTrends(new DistrictElectionHandler()));
+        registerJdbc("/analytics", new AnalyticsHandler());
+        registerJdbc("/transfer", new YearTransferHandler());
+        registerJdbc("/archive", new ArchiveHandler());
+        register("/simulation", new SimulationHandler()); // only its query goes to the JDBC pool, see ScenarioSimulator
+        register("/server/stats", new ServerStatsHandler());
+        register("/server/traces", new TracesHandler());
+        register("/server/slow_queries", new SlowQueriesHandler());
+
+        // Worker pool, so a slow request can't hold up the single dispatcher thread. Some workers are kept for
+        // result submissions and other writes. The JDK server hands over connections before the request is
+        // read, so those tasks count as INGEST; the class applies to the JDBC work and the response.
+        executor = new PriorityExecutor("http", ServerLimits.THREADS, ServerLimits.RESERVED_INGEST_THREADS,
+                ServerLimits.RESERVED_ADMIN_THREADS, Integer.MAX_VALUE, Priority.INGEST, false);
+        AsyncCompletion.setExecutor(executor);
+        ServerLimits.workers = executor;
+        if (nioServer != null) {
+            nioServer.setExecutor(executor);
+            nioServer.start();
+        } else {
+            server.setExecutor(executor);
+            server.start();
+        }
+        System.out.println("✅ Election Server started on port " + port + " (" + ServerLimits.BACKEND + " backend)");
+    }
+
+    // Every handler goes through the shared response layer. Rate limits come before coalescing (they are per
+    // client), the concurrency limit after it, so requests that share another's response don't count against it.
+    private void register(String path, HttpHandler handler) {
+        HttpHandler inner = handler instanceof AsyncBridgeHandler ? handler : TracingHandler.timed(handler);
+        HttpHandler chain = new LimitsHandler(new TracingHandler(path, new PriorityHandler(new RateLimitHandler(path,
+                new ReadRoutingHandler(new SingleFlightHandler(new ConcurrencyLimitHandler(new CompressionHandler(inner))))))));
+        if (nioServer != null) {
+            nioServer.createContext(path, chain);
+        } else {
+            server.createContext(path, chain);
+        }
+    }
+
+    // With election.db.async=false the JDBC handlers block the worker thread as before
+    private void registerJdbc(String path, HttpHandler handler) {
+        register(path, ASYNC_JDBC ? new AsyncBridgeHandler(AsyncHandler.offload(handler)) : handler);
+    }
+
+    // Direct edits through the CRUD endpoints drop the trend index so it is rebuilt on the next query
+    private static HttpHandler invalidatesTrends(HttpHandler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            } finally {
+                String method = exchange.getRequestMethod();
+                if (!method.equals("GET") && !method.equals("HEAD") && !method.equals("OPTIONS")) {
+                    TrendIndex.invalidate();
+                }
+            }
+        };
+    }
+
+    public int getPort() {
+        if (nioServer != null) {
+            return nioServer.getAddress().getPort();
+        }
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    // Used by in-process runs (load tests) to shut the server down again
+    public void stop(int delaySeconds) {
+        if (server != null || nioServer != null) {
+            if (nioServer != null) {
+                nioServer.stop(delaySeconds);
+                nioServer = null;
+            } else {
+                server.stop(delaySeconds);
+                server = null;
+            }
+            executor.shutdown();
+            System.out.println("✅ Election Server stopped.");
+        }
     }
 }
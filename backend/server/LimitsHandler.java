@@ -0,0 +1,140 @@
+package backend.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// First stop for every request: enforces the limits in ServerLimits before any
+// handler (and any database work) runs.
+public class LimitsHandler implements HttpHandler {
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "body-timeout-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final HttpHandler next;
+
+    public LimitsHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        AsyncCompletion.begin();
+        if (ServerLimits.inFlight.incrementAndGet() > ServerLimits.MAX_IN_FLIGHT) {
+            ServerLimits.inFlight.decrementAndGet();
+            ServerLimits.rejectedOverCapacity.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            reject(exchange, 503, "Server is busy, try again shortly.");
+            return;
+        }
+        try {
+            long declared = contentLength(exchange);
+            if (declared > ServerLimits.MAX_BODY_BYTES) {
+                ServerLimits.rejectedBodyTooLarge.incrementAndGet();
+                reject(exchange, 413, "Request body too large (max " + ServerLimits.MAX_BODY_BYTES + " bytes).");
+                return;
+            }
+
+            boolean hasBody = declared > 0 || "chunked".equalsIgnoreCase(
+                    exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+            if (!hasBody) {
+                next.handle(exchange);
+                return;
+            }
+
+            LimitedBody body = new LimitedBody(exchange.getRequestBody());
+            exchange.setStreams(body, null);
+            ScheduledFuture<?> timeout = WATCHDOG.schedule(() -> {
+                if (!body.done) {
+                    // Slow sender: drop the connection, which also unblocks the reading thread
+                    ServerLimits.bodyReadTimeouts.incrementAndGet();
+                    exchange.close();
+                }
+            }, ServerLimits.BODY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            try {
+                next.handle(exchange);
+            } finally {
+                // Not before the response is done: a streamed upload is read after an async handler returns
+                AsyncCompletion.whenDone(() -> timeout.cancel(false));
+            }
+        } finally {
+            AsyncCompletion.whenDone(ServerLimits.inFlight::decrementAndGet);
+        }
+    }
+
+    private static long contentLength(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void reject(HttpExchange exchange, int status, String message) throws IOException {
+        String json = "{\"status\":\"error\",\"message\":\"" + message + "\"}";
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(status, json.getBytes().length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(json.getBytes());
+        }
+    }
+
+    // Counts body bytes (chunked bodies have no Content-Length to check up front)
+    // and tells the watchdog when the body has been read completely.
+    private static class LimitedBody extends FilterInputStream {
+        private long count;
+        private volatile boolean done;
+
+        LimitedBody(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            track(b == -1 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            track(n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            done = true;
+            super.close();
+        }
+
+        private void track(int n) throws IOException {
+            if (n == -1) {
+                done = true;
+                return;
+            }
+            count += n;
+            if (count > ServerLimits.MAX_BODY_BYTES) {
+                ServerLimits.rejectedBodyTooLarge.incrementAndGet();
+                done = true;
+                throw new IOException("Request body too large (max " + ServerLimits.MAX_BODY_BYTES + " bytes)");
+            }
+        }
+    }
+}
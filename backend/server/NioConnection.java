@@ -0,0 +1,418 @@
+package backend.server;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// One client socket of the NIO server. Everything here runs on the owning
+// event loop, except enqueue/responseDone which the worker thread running the
+// handler calls; those hand their work to the loop.
+//
+// Request bytes are read through a pooled direct buffer and only copied into a
+// per-connection array while a request is incomplete, so idle keep-alive
+// connections hold no buffers.
+final class NioConnection {
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    final NioHttpServer.EventLoop loop;
+    final SocketChannel channel;
+    SelectionKey key;
+
+    // Unparsed request bytes (pipelined requests stay here until their turn)
+    private byte[] pending;
+    private int pendingLength;
+    private long requestStarted;
+    private long lastActive = System.currentTimeMillis();
+
+    // Head of the request whose body is still arriving
+    private int headLength = -1;
+    private String method;
+    private String target;
+    private String protocol;
+    private Headers headers;
+    private long contentLength;
+    private boolean continueSent;
+
+    private boolean inFlight;
+    private boolean responseComplete;
+    private boolean closeAfterResponse;
+    private volatile boolean closed;
+
+    private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+    // Written by workers, drained by the loop; workers wait on this object when it is over the limit
+    private long queuedBytes;
+    // Last time the socket took response bytes (or bytes were queued onto an empty queue)
+    private volatile long lastDrained;
+
+    NioConnection(NioHttpServer.EventLoop loop, SocketChannel channel) {
+        this.loop = loop;
+        this.channel = channel;
+    }
+
+    void onReadable() throws IOException {
+        ByteBuffer buffer = loop.pool().acquire();
+        int n;
+        try {
+            while ((n = channel.read(buffer)) > 0) {
+                buffer.flip();
+                append(buffer);
+                buffer.clear();
+            }
+        } finally {
+            loop.pool().release(buffer);
+        }
+        if (n < 0) {
+            close();
+            return;
+        }
+        lastActive = System.currentTimeMillis();
+        processPending();
+    }
+
+    private void append(ByteBuffer buffer) {
+        int n = buffer.remaining();
+        if (pending == null) {
+            pending = new byte[Math.max(n, 1024)];
+            if (requestStarted == 0) {
+                requestStarted = System.currentTimeMillis();
+            }
+        } else if (pendingLength + n > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingLength + n, pending.length * 2));
+        }
+        buffer.get(pending, pendingLength, n);
+        pendingLength += n;
+    }
+
+    // Parses and dispatches the next request if it is complete and nothing is in flight
+    private void processPending() throws IOException {
+        if (inFlight || closed || pendingLength == 0) {
+            return;
+        }
+        if (headLength < 0) {
+            int end = headerEnd();
+            if (end < 0) {
+                if (pendingLength > NioHttpServer.MAX_HEADER_BYTES) {
+                    sendError(431, "Request headers too large.");
+                }
+                return;
+            }
+            if (!parseHead(end)) {
+                return;
+            }
+        }
+        if (pendingLength - headLength < contentLength) {
+            if (!continueSent && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+                continueSent = true;
+                out.add(ByteBuffer.wrap(CONTINUE));
+                flush();
+            }
+            return;
+        }
+
+        byte[] body = Arrays.copyOfRange(pending, headLength, headLength + (int) contentLength);
+        consume(headLength + (int) contentLength);
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            resetHead();
+            sendError(400, "Bad request target.");
+            return;
+        }
+        String connection = headers.getFirst("Connection");
+        boolean keepAlive = "HTTP/1.1".equals(protocol)
+                ? connection == null || !connection.toLowerCase().contains("close")
+                : connection != null && connection.toLowerCase().contains("keep-alive");
+        NioExchange exchange = new NioExchange(this, method, uri, protocol, headers, body, keepAlive);
+        resetHead();
+
+        inFlight = true;
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        loop.server().dispatch(exchange);
+    }
+
+    private int headerEnd() {
+        for (int i = 3; i < pendingLength; i++) {
+            if (pending[i] == '\n' && pending[i - 1] == '\r' && pending[i - 2] == '\n' && pending[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // false when the request was rejected (error already queued)
+    private boolean parseHead(int end) throws IOException {
+        String head = new String(pending, 0, end, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            sendError(400, "Bad request line.");
+            return false;
+        }
+        Headers parsed = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                parsed.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+        }
+        if (parsed.containsKey("Transfer-Encoding")) {
+            sendError(411, "Chunked request bodies are not supported, send Content-Length.");
+            return false;
+        }
+        long length = 0;
+        String declared = parsed.getFirst("Content-Length");
+        if (declared != null) {
+            try {
+                length = Long.parseLong(declared.trim());
+            } catch (NumberFormatException e) {
+                length = -1;
+            }
+            if (length < 0) {
+                sendError(400, "Bad Content-Length.");
+                return false;
+            }
+        }
+        if (length > ServerLimits.MAX_BODY_BYTES) {
+            ServerLimits.rejectedBodyTooLarge.incrementAndGet();
+            sendError(413, "Request body too large (max " + ServerLimits.MAX_BODY_BYTES + " bytes).");
+            return false;
+        }
+        headLength = end;
+        method = requestLine[0];
+        target = requestLine[1];
+        protocol = requestLine[2];
+        headers = parsed;
+        contentLength = length;
+        return true;
+    }
+
+    private void resetHead() {
+        headLength = -1;
+        headers = null;
+        continueSent = false;
+    }
+
+    private void consume(int n) {
+        pendingLength -= n;
+        if (pendingLength == 0) {
+            pending = null; // nothing buffered between requests
+            requestStarted = 0;
+        } else {
+            System.arraycopy(pending, n, pending, 0, pendingLength);
+            requestStarted = System.currentTimeMillis();
+        }
+    }
+
+    // Protocol errors found on the loop: answer and close
+    private void sendError(int status, String message) throws IOException {
+        byte[] body = ("{\"status\":\"error\",\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + NioExchange.reason(status) + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        inFlight = true;
+        lastDrained = System.currentTimeMillis();
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        out.add(ByteBuffer.wrap(head.getBytes(StandardCharsets.US_ASCII)));
+        out.add(ByteBuffer.wrap(body));
+        responseComplete = true;
+        closeAfterResponse = true;
+        flush();
+    }
+
+    // Worker side: queue response bytes, waiting while too much is already queued;
+    // gives up when the client has read nothing for election.nio.write_timeout_ms
+    void enqueue(ByteBuffer buffer) throws IOException {
+        synchronized (this) {
+            while (queuedBytes > NioHttpServer.WRITE_QUEUE_BYTES && !closed) {
+                if (System.currentTimeMillis() - lastDrained > NioHttpServer.WRITE_TIMEOUT_MS) {
+                    loop.pool().release(buffer);
+                    loop.execute(this::writeTimedOut);
+                    throw new IOException("Client stopped reading, response write timed out");
+                }
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing the response");
+                }
+            }
+            if (closed) {
+                loop.pool().release(buffer);
+                throw new IOException("Connection closed by client");
+            }
+            if (queuedBytes == 0) {
+                lastDrained = System.currentTimeMillis();
+            }
+            queuedBytes += buffer.remaining();
+        }
+        loop.execute(() -> {
+            if (closed) {
+                loop.pool().release(buffer);
+                return;
+            }
+            out.add(buffer);
+            try {
+                flush();
+            } catch (IOException e) {
+                close();
+            }
+        });
+    }
+
+    // Worker side: the response is complete, after the queued bytes are written
+    void responseDone(boolean close) {
+        loop.execute(() -> {
+            responseComplete = true;
+            closeAfterResponse |= close;
+            try {
+                flush();
+            } catch (IOException e) {
+                close();
+            }
+        });
+    }
+
+    void onWritable() throws IOException {
+        flush();
+    }
+
+    private void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        while (!out.isEmpty()) {
+            ByteBuffer[] batch = new ByteBuffer[Math.min(out.size(), 16)];
+            Iterator<ByteBuffer> queued = out.iterator();
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = queued.next();
+            }
+            long written = channel.write(batch);
+            while (!out.isEmpty() && !out.peek().hasRemaining()) {
+                loop.pool().release(out.poll());
+            }
+            if (written > 0) {
+                drained(written);
+            }
+            if (!out.isEmpty() && out.peek().hasRemaining()) {
+                // Socket buffer full: wait for OP_WRITE
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (responseComplete) {
+            responseComplete = false;
+            inFlight = false;
+            lastActive = System.currentTimeMillis();
+            if (closeAfterResponse) {
+                close();
+                return;
+            }
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            processPending();
+        }
+    }
+
+    private synchronized void drained(long bytes) {
+        lastDrained = System.currentTimeMillis();
+        queuedBytes = Math.max(0, queuedBytes - bytes);
+        if (queuedBytes <= NioHttpServer.WRITE_QUEUE_BYTES) {
+            notifyAll();
+        }
+    }
+
+    private synchronized boolean writePending() {
+        return queuedBytes > 0 || !out.isEmpty();
+    }
+
+    // Idle keep-alive, slow senders and clients that stop reading, checked by the loop about once a second.
+    // A request still being handled with nothing to write is left to the handler (and its query timeouts).
+    void checkTimeouts(long now) {
+        if (inFlight) {
+            if (writePending() && now - lastDrained > NioHttpServer.WRITE_TIMEOUT_MS) {
+                writeTimedOut();
+            }
+            return;
+        }
+        if (requestStarted > 0) {
+            long limit = headLength < 0 ? ServerLimits.HEADER_TIMEOUT_SEC * 1000L : ServerLimits.BODY_TIMEOUT_MS;
+            if (now - requestStarted > limit) {
+                if (headLength >= 0) {
+                    ServerLimits.bodyReadTimeouts.incrementAndGet();
+                }
+                close();
+            }
+        } else if (now - lastActive > ServerLimits.IDLE_TIMEOUT_SEC * 1000L) {
+            close();
+        }
+    }
+
+    InetSocketAddress remoteAddress() {
+        try {
+            return (InetSocketAddress) channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    InetSocketAddress localAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    BufferPool pool() {
+        return loop.pool();
+    }
+
+    // Loop side; workers use abort()
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+        while (!out.isEmpty()) {
+            loop.pool().release(out.poll());
+        }
+        pending = null;
+        loop.closed(this);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    // Loop side: wakes a worker blocked in enqueue, which then fails with "connection closed"
+    private void writeTimedOut() {
+        if (!closed) {
+            NioHttpServer.writeTimeouts.incrementAndGet();
+            close();
+        }
+    }
+
+    // Worker side: drop the connection (e.g. the handler failed after sending headers)
+    void abort() {
+        loop.execute(this::close);
+    }
+}
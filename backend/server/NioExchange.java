@@ -0,0 +1,375 @@
+package backend.server;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The HttpExchange the NIO server hands to the handlers. Same contract as the
+// JDK one: sendResponseHeaders(code, length) with -1 for no body, 0 for a
+// chunked (streamed) body, otherwise the exact length; then write and close
+// getResponseBody(). The body is written into pooled direct buffers, and small
+// responses go out as one buffer holding both headers and body.
+final class NioExchange extends HttpExchange {
+    private static final Map<Integer, String> REASONS = new HashMap<>();
+    private static volatile long dateSecond;
+    private static volatile String dateValue;
+
+    static {
+        REASONS.put(100, "Continue");
+        REASONS.put(200, "OK");
+        REASONS.put(201, "Created");
+        REASONS.put(202, "Accepted");
+        REASONS.put(204, "No Content");
+        REASONS.put(206, "Partial Content");
+        REASONS.put(304, "Not Modified");
+        REASONS.put(400, "Bad Request");
+        REASONS.put(401, "Unauthorized");
+        REASONS.put(403, "Forbidden");
+        REASONS.put(404, "Not Found");
+        REASONS.put(405, "Method Not Allowed");
+        REASONS.put(409, "Conflict");
+        REASONS.put(411, "Length Required");
+        REASONS.put(413, "Payload Too Large");
+        REASONS.put(429, "Too Many Requests");
+        REASONS.put(431, "Request Header Fields Too Large");
+        REASONS.put(500, "Internal Server Error");
+        REASONS.put(503, "Service Unavailable");
+    }
+
+    private final NioConnection connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final boolean keepAlive;
+    private InputStream requestBody;
+    private OutputStream wrappedBody;
+    private final ResponseBody responseBody = new ResponseBody();
+    private int responseCode = -1;
+    private boolean closed;
+
+    NioExchange(NioConnection connection, String method, URI uri, String protocol, Headers requestHeaders,
+                byte[] body, boolean keepAlive) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.keepAlive = keepAlive;
+    }
+
+    static String reason(int code) {
+        return REASONS.getOrDefault(code, "");
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode != -1) {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+        boolean noBody = responseLength == -1 || "HEAD".equals(method) || rCode == 204 || rCode == 304;
+        boolean chunked = !noBody && responseLength == 0;
+        boolean close = !keepAlive || hasToken(responseHeaders.getFirst("Connection"), "close");
+
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(reason(rCode)).append("\r\n");
+        responseHeaders.set("Date", httpDate());
+        if (chunked) {
+            responseHeaders.set("Transfer-Encoding", "chunked");
+            responseHeaders.remove("Content-Length");
+        } else if (rCode != 204 && rCode != 304) {
+            responseHeaders.set("Content-Length", String.valueOf(responseLength > 0 ? responseLength : 0));
+        }
+        if (close) {
+            responseHeaders.set("Connection", "close");
+        } else if (!"HTTP/1.1".equals(protocol)) {
+            responseHeaders.set("Connection", "keep-alive");
+        }
+        for (Map.Entry<String, List<String>> e : responseHeaders.entrySet()) {
+            for (String value : e.getValue()) {
+                head.append(e.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        responseBody.start(head.toString().getBytes(StandardCharsets.ISO_8859_1), noBody, chunked,
+                responseLength > 0 && !noBody ? responseLength : -1, close);
+    }
+
+    private static boolean hasToken(String value, String token) {
+        return value != null && value.toLowerCase().contains(token);
+    }
+
+    private static String httpDate() {
+        long second = System.currentTimeMillis() / 1000;
+        String value = dateValue;
+        if (value == null || second != dateSecond) {
+            value = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            dateValue = value;
+            dateSecond = second;
+        }
+        return value;
+    }
+
+    // Handler threw: answer 500 if nothing was sent yet, otherwise drop the connection
+    void fail(Throwable t) {
+        if (responseCode == -1) {
+            try {
+                byte[] body = "{\"status\":\"error\",\"message\":\"Internal server error\"}".getBytes(StandardCharsets.UTF_8);
+                responseHeaders.set("Content-Type", "application/json");
+                responseHeaders.set("Connection", "close");
+                sendResponseHeaders(500, body.length);
+                responseBody.write(body);
+                return;
+            } catch (IOException e) {
+                // fall through to abort
+            }
+        }
+        responseBody.abort();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (wrappedBody != null) {
+                wrappedBody.close();
+            }
+            responseBody.close();
+        } catch (IOException e) {
+            responseBody.abort();
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() { return requestHeaders; }
+
+    @Override
+    public Headers getResponseHeaders() { return responseHeaders; }
+
+    @Override
+    public URI getRequestURI() { return uri; }
+
+    @Override
+    public String getRequestMethod() { return method; }
+
+    @Override
+    public HttpContext getHttpContext() { return CONTEXT; }
+
+    @Override
+    public InputStream getRequestBody() { return requestBody; }
+
+    @Override
+    public OutputStream getResponseBody() { return wrappedBody != null ? wrappedBody : responseBody; }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() { return connection.remoteAddress(); }
+
+    @Override
+    public int getResponseCode() { return responseCode; }
+
+    @Override
+    public InetSocketAddress getLocalAddress() { return connection.localAddress(); }
+
+    @Override
+    public String getProtocol() { return protocol; }
+
+    @Override
+    public Object getAttribute(String name) { return attributes.get(name); }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            wrappedBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() { return null; }
+
+    // Response body into pooled direct buffers, handed to the connection as they fill
+    private final class ResponseBody extends OutputStream {
+        private ByteBuffer buffer;
+        private boolean started;
+        private boolean noBody;
+        private boolean chunked;
+        private long remaining;
+        private boolean closeConnection;
+        private boolean done;
+
+        void start(byte[] head, boolean noBody, boolean chunked, long length, boolean close) throws IOException {
+            this.started = true;
+            this.noBody = noBody;
+            this.chunked = chunked;
+            this.remaining = length;
+            this.closeConnection = close;
+            BufferPool pool = connection.pool();
+            if (head.length <= pool.bufferSize() && !chunked) {
+                // headers and (the start of) the body share one buffer
+                buffer = pool.acquire();
+                buffer.put(head);
+            } else {
+                connection.enqueue(ByteBuffer.wrap(head));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!started || done) {
+                throw new IOException(done ? "response already closed" : "sendResponseHeaders not called");
+            }
+            if (noBody) {
+                return;
+            }
+            if (remaining >= 0) {
+                if (len > remaining) {
+                    throw new IOException("too many bytes to write to stream");
+                }
+                remaining -= len;
+            }
+            while (len > 0) {
+                if (buffer == null) {
+                    buffer = connection.pool().acquire();
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                if (!buffer.hasRemaining()) {
+                    send();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (started && !done && buffer != null && buffer.position() > 0) {
+                send();
+            }
+        }
+
+        private void send() throws IOException {
+            ByteBuffer full = buffer;
+            buffer = null;
+            full.flip();
+            if (chunked) {
+                connection.enqueue(ByteBuffer.wrap((Integer.toHexString(full.remaining()) + "\r\n")
+                        .getBytes(StandardCharsets.US_ASCII)));
+                connection.enqueue(full);
+                connection.enqueue(ByteBuffer.wrap(CRLF));
+            } else {
+                connection.enqueue(full);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (done) {
+                return;
+            }
+            if (!started) {
+                // No response at all: nothing sensible to send, drop the connection
+                done = true;
+                connection.responseDone(true);
+                return;
+            }
+            if (buffer != null && buffer.position() > 0) {
+                send();
+            } else if (buffer != null) {
+                connection.pool().release(buffer);
+                buffer = null;
+            }
+            done = true;
+            if (chunked) {
+                connection.enqueue(ByteBuffer.wrap(LAST_CHUNK));
+            }
+            // A short fixed-length body leaves the client waiting for the rest: close instead
+            connection.responseDone(closeConnection || remaining > 0);
+        }
+
+        void abort() {
+            done = true;
+            if (buffer != null) {
+                connection.pool().release(buffer);
+                buffer = null;
+            }
+            connection.abort();
+        }
+    }
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // getHttpContext() is part of the contract but nothing here routes through it
+    private static final HttpContext CONTEXT = new HttpContext() {
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+        @Override
+        public HttpHandler getHandler() { return null; }
+
+        @Override
+        public void setHandler(HttpHandler handler) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public String getPath() { return "/"; }
+
+        @Override
+        public HttpServer getServer() { return null; }
+
+        @Override
+        public Map<String, Object> getAttributes() { return attributes; }
+
+        @Override
+        public List<Filter> getFilters() { return List.of(); }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Authenticator getAuthenticator() { return null; }
+    };
+}
@@ -0,0 +1,326 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import backend.scheduling.PriorityExecutor;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// HTTP/1.1 server on plain NIO selectors, an alternative to com.sun.net.httpserver
+// selected with election.server.backend=nio. It runs the same HttpHandler chain:
+// each request is handed to the handlers as an HttpExchange (NioExchange), so
+// LimitsHandler, CompressionHandler and the controllers work unchanged.
+//
+//   - one acceptor thread, and election.nio.loops event loops (default: one per
+//     core) that own the sockets; connections are spread round-robin
+//   - reads and response bodies go through pooled direct buffers (BufferPool);
+//     an idle keep-alive connection holds no buffer at all, so tens of thousands
+//     of them cost little more than the socket
+//   - parsing happens on the loop, handlers run on the worker pool (they block on
+//     JDBC); pipelined requests are answered in order, one at a time
+//   - responses are queued per connection and written as the socket drains; a
+//     handler that streams faster than the client reads waits once more than
+//     election.nio.write_queue_bytes are queued; a client that stops reading
+//     is dropped once nothing drains for election.nio.write_timeout_ms
+//
+// Settings: election.nio.loops, election.nio.max_connections (default 20000),
+// election.nio.buffer_bytes (16 KB), election.nio.max_pooled_buffers (4096),
+// election.nio.max_header_bytes (64 KB), election.nio.write_queue_bytes (1 MB),
+// election.nio.write_timeout_ms (30 s).
+// Timeouts and body limits are the shared ones in ServerLimits.
+public class NioHttpServer {
+    static final int LOOPS = AppConfig.getInt("election.nio.loops", Runtime.getRuntime().availableProcessors());
+    static final int MAX_CONNECTIONS = AppConfig.getInt("election.nio.max_connections", 20_000);
+    static final int MAX_HEADER_BYTES = AppConfig.getInt("election.nio.max_header_bytes", 64 * 1024);
+    static final long WRITE_QUEUE_BYTES = AppConfig.getLong("election.nio.write_queue_bytes", 1L << 20);
+    static final long WRITE_TIMEOUT_MS = AppConfig.getLong("election.nio.write_timeout_ms", 30_000L);
+
+    static final AtomicInteger openConnections = new AtomicInteger();
+    static final AtomicLong acceptedConnections = new AtomicLong();
+    static final AtomicLong rejectedConnections = new AtomicLong();
+    static final AtomicLong requests = new AtomicLong();
+    static final AtomicLong writeTimeouts = new AtomicLong();
+    static final AtomicInteger activeExchanges = new AtomicInteger();
+    private static volatile BufferPool statsPool;
+
+    final BufferPool pool = new BufferPool(
+            AppConfig.getInt("election.nio.buffer_bytes", 16 * 1024),
+            AppConfig.getInt("election.nio.max_pooled_buffers", 4096));
+    private final List<String> contextPaths = new ArrayList<>();
+    private final List<HttpHandler> contextHandlers = new ArrayList<>();
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private Executor executor;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public NioHttpServer(InetSocketAddress address, int backlog) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, backlog);
+        loops = new EventLoop[Math.max(1, LOOPS)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        statsPool = pool;
+    }
+
+    public void createContext(String path, HttpHandler handler) {
+        contextPaths.add(path);
+        contextHandlers.add(handler);
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptor = new Thread(this::acceptLoop, "nio-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    // Stops accepting, waits up to delaySeconds for running exchanges, then closes everything
+    public void stop(int delaySeconds) {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        long deadline = System.currentTimeMillis() + delaySeconds * 1000L;
+        while (activeExchanges.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (EventLoop loop : loops) {
+            loop.execute(loop::shutdown);
+        }
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                if (openConnections.incrementAndGet() > MAX_CONNECTIONS) {
+                    openConnections.decrementAndGet();
+                    rejectedConnections.incrementAndGet();
+                    channel.close();
+                    continue;
+                }
+                acceptedConnections.incrementAndGet();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                EventLoop loop = loops[next];
+                next = (next + 1) % loops.length;
+                loop.execute(() -> loop.register(channel));
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("⚠️ NIO accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Longest matching context path, like HttpServer
+    HttpHandler handlerFor(String path) {
+        HttpHandler best = null;
+        int bestLength = -1;
+        for (int i = 0; i < contextPaths.size(); i++) {
+            String context = contextPaths.get(i);
+            if (path.startsWith(context) && context.length() > bestLength) {
+                best = contextHandlers.get(i);
+                bestLength = context.length();
+            }
+        }
+        return best;
+    }
+
+    // Called on the loop once a request is complete; the handler runs on the worker pool
+    void dispatch(NioExchange exchange) {
+        requests.incrementAndGet();
+        activeExchanges.incrementAndGet();
+        Runnable task = () -> {
+            AsyncCompletion.begin();
+            try {
+                HttpHandler handler = handlerFor(exchange.getRequestURI().getPath());
+                if (handler == null) {
+                    byte[] body = "<h1>404 Not Found</h1>No context found for request".getBytes();
+                    exchange.getResponseHeaders().set("Content-Type", "text/html");
+                    exchange.sendResponseHeaders(404, body.length);
+                    exchange.getResponseBody().write(body);
+                } else {
+                    handler.handle(exchange);
+                }
+            } catch (Throwable t) {
+                exchange.fail(t);
+            } finally {
+                try {
+                    AsyncCompletion.whenDone(() -> {
+                        exchange.close();
+                        activeExchanges.decrementAndGet();
+                    });
+                } catch (IOException e) {
+                    // close() doesn't throw
+                }
+            }
+        };
+        // The request is already parsed here, so it can be queued by its class straight away
+        if (executor instanceof PriorityExecutor) {
+            ((PriorityExecutor) executor).execute(
+                    PriorityHandler.classify(exchange.getRequestMethod(), exchange.getRequestURI().getPath()), task);
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    static String statsJson() {
+        BufferPool pool = statsPool;
+        return "{\"open_connections\":" + openConnections.get()
+                + ",\"accepted_connections\":" + acceptedConnections.get()
+                + ",\"rejected_connections\":" + rejectedConnections.get()
+                + ",\"requests\":" + requests.get()
+                + ",\"active_exchanges\":" + activeExchanges.get()
+                + ",\"write_timeouts\":" + writeTimeouts.get()
+                + ",\"loops\":" + Math.max(1, LOOPS)
+                + ",\"buffers\":" + (pool == null ? "null" : pool.toJson()) + "}";
+    }
+
+    // One selector thread; owns the channels registered with it
+    final class EventLoop implements Runnable {
+        final Thread thread;
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final Set<NioConnection> connections = new HashSet<>();
+        private boolean open = true;
+
+        EventLoop(int index) throws IOException {
+            selector = Selector.open();
+            // Not a daemon, like the JDK server's dispatcher: the server keeps the JVM alive until stopped
+            thread = new Thread(this, "nio-loop-" + index);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        BufferPool pool() {
+            return pool;
+        }
+
+        NioHttpServer server() {
+            return NioHttpServer.this;
+        }
+
+        void register(SocketChannel channel) {
+            try {
+                NioConnection connection = new NioConnection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+            } catch (IOException e) {
+                openConnections.decrementAndGet();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // nothing to do
+                }
+            }
+        }
+
+        void closed(NioConnection connection) {
+            if (connections.remove(connection)) {
+                openConnections.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            long lastSweep = System.currentTimeMillis();
+            while (open) {
+                try {
+                    selector.select(1000);
+                } catch (IOException e) {
+                    System.out.println("⚠️ NIO select failed: " + e.getMessage());
+                }
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                if (!open) {
+                    break;
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        connection.close();
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= 1000) {
+                    lastSweep = now;
+                    for (NioConnection connection : new ArrayList<>(connections)) {
+                        connection.checkTimeouts(now);
+                    }
+                }
+            }
+        }
+
+        private void shutdown() {
+            open = false;
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import backend.scheduling.Priority;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Marks the request's Priority on the thread handling it, so the JDBC pool
+// (and the NIO server's worker pool, which classifies before dispatch) can
+// put result submissions ahead of everything else:
+//   INGEST  writes under election.priority.ingest_paths
+//           (default /seat_allocation,/parties_votes,/dist_election)
+//   ADMIN   any other write
+//   READ    GET, HEAD, OPTIONS
+public class PriorityHandler implements HttpHandler {
+    private static final String[] INGEST_PATHS = Arrays.stream(
+                    AppConfig.get("election.priority.ingest_paths", "/seat_allocation,/parties_votes,/dist_election").split(","))
+            .map(String::trim)
+            .filter(path -> !path.isEmpty())
+            .toArray(String[]::new);
+
+    private final HttpHandler next;
+
+    public PriorityHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Priority previous = Priority.current();
+        Priority.set(classify(exchange.getRequestMethod(), exchange.getRequestURI().getPath()));
+        try {
+            next.handle(exchange);
+        } finally {
+            if (previous == null) {
+                Priority.clear();
+            } else {
+                Priority.set(previous);
+            }
+        }
+    }
+
+    static Priority classify(String method, String path) {
+        if (RateLimitHandler.isRead(method)) {
+            return Priority.READ;
+        }
+        for (String prefix : INGEST_PATHS) {
+            if (path.startsWith(prefix)) {
+                return Priority.INGEST;
+            }
+        }
+        return Priority.ADMIN;
+    }
+}
@@ -0,0 +1,122 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token-bucket limits, checked before anything else touches the request:
+//   - per route (context path), for reads only, so a flood of heavy reads
+//     can't use up what the write endpoints need:
+//       election.ratelimit.routes = /parties_votes=100:200,/analytics=50
+//     (requests per second[:burst], burst defaults to the rate)
+//   - per client IP, all methods (not X-Client-Id: a client picks that itself,
+//     so a new one per request would dodge the limit):
+//       election.ratelimit.client_rps, election.ratelimit.client_burst (default 2x the rate)
+//     Buckets of the least recently seen clients are dropped beyond
+//     election.ratelimit.max_clients (default 10000).
+// Both are off unless configured. Over the limit the answer is 429 with Retry-After.
+public class RateLimitHandler implements HttpHandler {
+    private static final double CLIENT_RPS = Double.parseDouble(AppConfig.get("election.ratelimit.client_rps", "0"));
+    private static final double CLIENT_BURST = Double.parseDouble(
+            AppConfig.get("election.ratelimit.client_burst", String.valueOf(CLIENT_RPS * 2)));
+    private static final Map<String, double[]> ROUTES = parseRoutes(AppConfig.get("election.ratelimit.routes", ""));
+    private static final int MAX_CLIENTS = AppConfig.getInt("election.ratelimit.max_clients", 10_000);
+    // LRU by client IP
+    private static final Map<String, TokenBucket> clients = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+            return size() > MAX_CLIENTS;
+        }
+    };
+
+    static final AtomicLong limitedByRoute = new AtomicLong();
+    static final AtomicLong limitedByClient = new AtomicLong();
+
+    private final HttpHandler next;
+    private final TokenBucket route;
+
+    public RateLimitHandler(String path, HttpHandler next) {
+        this.next = next;
+        double[] limit = ROUTES.get(path);
+        this.route = limit == null ? null : new TokenBucket(limit[0], limit[1]);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (route != null && isRead(exchange.getRequestMethod()) && !route.tryAcquire()) {
+            limitedByRoute.incrementAndGet();
+            reject(exchange, 429, "Too many requests for this endpoint, try again shortly.");
+            return;
+        }
+        if (CLIENT_RPS > 0 && !clientBucket(exchange.getRemoteAddress().getAddress().getHostAddress()).tryAcquire()) {
+            limitedByClient.incrementAndGet();
+            reject(exchange, 429, "Too many requests, try again shortly.");
+            return;
+        }
+        next.handle(exchange);
+    }
+
+    static boolean isRead(String method) {
+        return method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS");
+    }
+
+    private static TokenBucket clientBucket(String ip) {
+        synchronized (clients) {
+            TokenBucket bucket = clients.get(ip);
+            if (bucket == null) {
+                bucket = new TokenBucket(CLIENT_RPS, CLIENT_BURST);
+                clients.put(ip, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    private static Map<String, double[]> parseRoutes(String value) {
+        Map<String, double[]> routes = new HashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                continue;
+            }
+            String[] numbers = parts[1].trim().split(":");
+            try {
+                double rate = Double.parseDouble(numbers[0]);
+                double burst = numbers.length > 1 ? Double.parseDouble(numbers[1]) : rate;
+                routes.put(parts[0].trim(), new double[]{rate, burst});
+            } catch (NumberFormatException e) {
+                System.out.println("⚠️ Ignoring rate limit \"" + entry.trim() + "\": use path=rate[:burst]");
+            }
+        }
+        return routes;
+    }
+
+    // Small fixed answer, sent without reading the body or touching the database
+    static void reject(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] json = ("{\"status\":\"error\",\"message\":\"" + message + "\"}").getBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(json);
+        }
+    }
+
+    public static String statsJson() {
+        return "{\"limited_by_route\":" + limitedByRoute.get()
+                + ",\"limited_by_client\":" + limitedByClient.get()
+                + ",\"tracked_clients\":" + trackedClients() + "}";
+    }
+
+    private static int trackedClients() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+}
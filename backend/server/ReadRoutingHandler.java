@@ -0,0 +1,37 @@
+package backend.server;
+
+import backend.db.ReadRouting;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+// Tells the data layer whether the current request may read from a replica.
+// Clients are told apart by an X-Client-Id header, or their IP address.
+public class ReadRoutingHandler implements HttpHandler {
+    private final HttpHandler next;
+
+    public ReadRoutingHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String clientKey = clientKey(exchange);
+        ReadRouting.beginRequest(method, clientKey);
+        try {
+            next.handle(exchange);
+        } finally {
+            AsyncCompletion.whenDone(() -> ReadRouting.endRequest(method, clientKey));
+        }
+    }
+
+    static String clientKey(HttpExchange exchange) {
+        String clientId = exchange.getRequestHeaders().getFirst("X-Client-Id");
+        if (clientId != null && !clientId.isBlank()) {
+            return clientId;
+        }
+        return exchange.getRemoteAddress().getAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,84 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import backend.db.JdbcExecutor;
+import backend.db.SlowQueryLog;
+import backend.scheduling.PriorityExecutor;
+import backend.tracing.Tracer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Connection / request limits for ElectionServer and the counters of what they rejected.
+// Settings (system property, env var or election.properties):
+//   election.server.backlog            TCP accept queue length            (default 1024)
+//   election.server.threads            worker threads running handlers    (default 32)
+//   election.server.reserved_ingest_threads / reserved_admin_threads  extra workers only for writes (default 2 / 1)
+//   election.server.max_connections    open connections, jdk backend (default 2000; nio: election.nio.max_connections)
+//   election.server.max_in_flight      outstanding requests, beyond it 503 (default: max_connections)
+//   election.server.idle_timeout_sec   keep-alive idle timeout            (default 30)
+//   election.server.max_idle_connections  idle keep-alive connections kept (default 500)
+//   election.server.header_timeout_sec time allowed to send request headers (default 10)
+//   election.server.body_timeout_ms    time allowed to send the request body (default 10000)
+//   election.server.max_body_bytes     largest accepted request body      (default 10 MB)
+//   election.server.backend            jdk (com.sun.net.httpserver) or nio (NioHttpServer)  (default jdk)
+public class ServerLimits {
+    public static final int BACKLOG = AppConfig.getInt("election.server.backlog", 1024);
+    public static final int THREADS = AppConfig.getInt("election.server.threads", 32);
+    public static final int RESERVED_INGEST_THREADS = AppConfig.getInt("election.server.reserved_ingest_threads", 2);
+    public static final int RESERVED_ADMIN_THREADS = AppConfig.getInt("election.server.reserved_admin_threads", 1);
+    public static final int MAX_CONNECTIONS = AppConfig.getInt("election.server.max_connections", 2000);
+    // Hard backstop on outstanding requests: a request counts from LimitsHandler until its response is
+    // done, including time queued on JdbcExecutor or waiting as a single-flight follower, so it must stay
+    // well above the worker count or those queues never fill. Load shedding below it is the adaptive
+    // limit's job (ConcurrencyLimitHandler, election.concurrency.max); keep this at least that high.
+    public static final int MAX_IN_FLIGHT = AppConfig.getInt("election.server.max_in_flight", MAX_CONNECTIONS);
+    public static final int IDLE_TIMEOUT_SEC = AppConfig.getInt("election.server.idle_timeout_sec", 30);
+    public static final int MAX_IDLE_CONNECTIONS = AppConfig.getInt("election.server.max_idle_connections", 500);
+    public static final int HEADER_TIMEOUT_SEC = AppConfig.getInt("election.server.header_timeout_sec", 10);
+    public static final long BODY_TIMEOUT_MS = AppConfig.getLong("election.server.body_timeout_ms", 10_000);
+    public static final long MAX_BODY_BYTES = AppConfig.getLong("election.server.max_body_bytes", 10L * 1024 * 1024);
+    public static final String BACKEND = AppConfig.get("election.server.backend", "jdk").toLowerCase();
+
+    // Rejection counters, shown on GET /server/stats
+    public static final AtomicLong rejectedOverCapacity = new AtomicLong();
+    public static final AtomicLong rejectedBodyTooLarge = new AtomicLong();
+    public static final AtomicLong bodyReadTimeouts = new AtomicLong();
+    public static final AtomicLong inFlight = new AtomicLong();
+    // The running server's worker pool, for the stats
+    static volatile PriorityExecutor workers;
+
+    // The JDK http server reads these once, when the first server is created
+    public static void applyJdkSettings() {
+        setIfAbsent("jdk.httpserver.maxConnections", MAX_CONNECTIONS);
+        setIfAbsent("sun.net.httpserver.idleInterval", IDLE_TIMEOUT_SEC);
+        setIfAbsent("sun.net.httpserver.maxIdleConnections", MAX_IDLE_CONNECTIONS);
+        setIfAbsent("sun.net.httpserver.maxReqTime", HEADER_TIMEOUT_SEC);
+        // check idle connections more often than the 10s default so the timeout is honoured closely
+        setIfAbsent("sun.net.httpserver.clockTick", Math.max(1000, Math.min(10_000, IDLE_TIMEOUT_SEC * 1000 / 4)));
+    }
+
+    private static void setIfAbsent(String key, long value) {
+        if (System.getProperty(key) == null && value > 0) {
+            System.setProperty(key, String.valueOf(value));
+        }
+    }
+
+    public static String toJson() {
+        return "{\"in_flight\":" + inFlight.get()
+                + ",\"rejected_over_capacity\":" + rejectedOverCapacity.get()
+                + ",\"rejected_body_too_large\":" + rejectedBodyTooLarge.get()
+                + ",\"body_read_timeouts\":" + bodyReadTimeouts.get()
+                + ",\"max_in_flight\":" + MAX_IN_FLIGHT
+                + ",\"max_connections\":" + MAX_CONNECTIONS
+                + ",\"threads\":" + THREADS
+                + ",\"backend\":\"" + BACKEND + "\""
+                + ",\"workers\":" + (workers == null ? "null" : workers.toJson())
+                + ",\"jdbc\":" + JdbcExecutor.statsJson()
+                + ",\"single_flight\":" + SingleFlightHandler.statsJson()
+                + ",\"rate_limits\":" + RateLimitHandler.statsJson()
+                + ",\"concurrency\":" + ConcurrencyLimitHandler.statsJson()
+                + ",\"tracing\":" + Tracer.statsJson()
+                + ",\"slow_queries\":" + SlowQueryLog.statsJson()
+                + (BACKEND.equals("nio") ? ",\"nio\":" + NioHttpServer.statsJson() : "") + "}";
+    }
+}
@@ -0,0 +1,287 @@
+package backend.server;
+
+import backend.config.AppConfig;
+import backend.db.ReadRouting;
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Request coalescing for reads: while a GET is being answered, identical GETs
+// (same path and query, same response encoding, same replica/primary routing)
+// don't run the handler again. They wait for the first one and get a copy of
+// its response, already encoded (compressed) once. When a district result
+// lands and every dashboard asks for the same totals, the database sees one
+// query instead of hundreds.
+//
+// Waiting requests hold no thread (they detach like an AsyncHandler). If the
+// first response can't be shared - the handler failed, or a streamed body
+// grew past election.http.singleflight.max_bytes - they run on their own.
+// Only requests that overlap are merged, nothing is cached afterwards.
+//
+// Some GETs here take their question in a JSON body (/seat_allocation/total
+// reads party_name and year from it), so a body is part of the key: it is read
+// up front and its SHA-256 goes into the key next to the path and query.
+public class SingleFlightHandler implements HttpHandler {
+    private static final boolean ENABLED = AppConfig.getBoolean("election.http.singleflight.enabled", true);
+    private static final int MAX_BYTES = AppConfig.getInt("election.http.singleflight.max_bytes", 4 * 1024 * 1024);
+    private static final Map<String, CompletableFuture<SharedResponse>> FLIGHTS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong leaders = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+    private static final AtomicLong ranAlone = new AtomicLong();
+
+    private final HttpHandler next;
+
+    public SingleFlightHandler(HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!ENABLED || !"GET".equals(exchange.getRequestMethod())) {
+            next.handle(exchange);
+            return;
+        }
+        String key = key(exchange, bodyDigest(exchange));
+        CompletableFuture<SharedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<SharedResponse> running = FLIGHTS.putIfAbsent(key, flight);
+        if (running != null) {
+            follow(exchange, running);
+            return;
+        }
+
+        leaders.incrementAndGet();
+        Recording recording = new Recording(exchange);
+        boolean handled = false;
+        try {
+            next.handle(recording);
+            handled = true;
+        } finally {
+            boolean ok = handled;
+            AsyncCompletion.whenDone(() -> {
+                try {
+                    if (ok) {
+                        recording.finish();
+                    }
+                } finally {
+                    // Unregister first, so a request arriving now starts a fresh flight
+                    FLIGHTS.remove(key, flight);
+                    flight.complete(ok ? recording.shared() : null);
+                }
+            });
+        }
+    }
+
+    private static String key(HttpExchange exchange, String bodyDigest) {
+        String encoding = CompressionHandler.encodingFor(exchange);
+        return (ReadRouting.isReadRequest() ? "r " : "w ") + (encoding == null ? "identity" : encoding)
+                + " " + exchange.getRequestURI().getRawPath()
+                + (exchange.getRequestURI().getRawQuery() == null ? "" : "?" + exchange.getRequestURI().getRawQuery())
+                + (bodyDigest == null ? "" : " body:" + bodyDigest);
+    }
+
+    // Reads a GET's body (put back for the handler) and returns its digest; null when there is none
+    private static String bodyDigest(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        boolean hasBody = exchange.getRequestHeaders().containsKey("Transfer-Encoding")
+                || (length != null && !length.trim().equals("0"));
+        if (!hasBody) {
+            return null;
+        }
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        exchange.setStreams(new ByteArrayInputStream(body), null);
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void follow(HttpExchange exchange, CompletableFuture<SharedResponse> running) {
+        AsyncCompletion pending = AsyncCompletion.detach();
+        Span span = Tracer.capture();
+        running.whenCompleteAsync((shared, error) -> {
+            Span previous = Tracer.restore(span);
+            try {
+                if (shared == null) {
+                    ranAlone.incrementAndGet();
+                    runAlone(exchange, pending);
+                    return;
+                }
+                coalesced.incrementAndGet();
+                try (Span write = Tracer.span("http.write")) {
+                    write.attr("coalesced", true).attr("bytes", shared.body.length);
+                    shared.writeTo(exchange);
+                } catch (IOException e) {
+                    exchange.close();
+                }
+            } finally {
+                Tracer.restore(previous);
+            }
+            pending.complete();
+        }, AsyncCompletion.executor());
+    }
+
+    // The shared answer is unusable: run the rest of the chain here, finishing this request's outer layers after it
+    private void runAlone(HttpExchange exchange, AsyncCompletion outer) {
+        AsyncCompletion.begin();
+        ReadRouting.beginRequest(exchange.getRequestMethod(), ReadRoutingHandler.clientKey(exchange));
+        try {
+            next.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Request failed: " + e);
+            exchange.close();
+        } finally {
+            ReadRouting.endRequest(exchange.getRequestMethod(), ReadRoutingHandler.clientKey(exchange));
+            try {
+                AsyncCompletion.whenDone(outer::complete);
+            } catch (IOException e) {
+                // complete() doesn't throw
+            }
+            AsyncCompletion.begin();
+        }
+    }
+
+    public static String statsJson() {
+        return "{\"enabled\":" + ENABLED
+                + ",\"in_flight\":" + FLIGHTS.size()
+                + ",\"leaders\":" + leaders.get()
+                + ",\"coalesced\":" + coalesced.get()
+                + ",\"ran_alone\":" + ranAlone.get() + "}";
+    }
+
+    // A finished response as the first request sent it
+    private static final class SharedResponse {
+        final int status;
+        final Headers headers;
+        final byte[] body;
+
+        SharedResponse(int status, Headers headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        void writeTo(HttpExchange exchange) throws IOException {
+            for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+                exchange.getResponseHeaders().put(e.getKey(), new ArrayList<>(e.getValue()));
+            }
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        }
+    }
+
+    // Sends the response on as usual and keeps a copy of it for the waiting requests
+    private static final class Recording extends BufferedExchange {
+        private int status = -1;
+        private Headers headers;
+        private byte[] body;
+        private ByteArrayOutputStream streamed;
+        private boolean streamClosed;
+
+        Recording(HttpExchange delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+            if (responseLength == -1) {
+                record(rCode);
+                body = new byte[0];
+            }
+            super.sendResponseHeaders(rCode, responseLength);
+        }
+
+        @Override
+        protected void writeResponse(int code, byte[] bytes) throws IOException {
+            record(code);
+            body = bytes;
+            super.writeResponse(code, bytes);
+        }
+
+        @Override
+        protected OutputStream startStreaming(int code) throws IOException {
+            record(code);
+            streamed = new ByteArrayOutputStream();
+            return new FilterOutputStream(super.startStreaming(code)) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    copy(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    copy(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    streamClosed = true;
+                }
+            };
+        }
+
+        private void copy(byte[] b, int off, int len) {
+            if (streamed != null && streamed.size() + len > MAX_BYTES) {
+                streamed = null; // too big to hold on to, the others run on their own
+            } else if (streamed != null) {
+                streamed.write(b, off, len);
+            }
+        }
+
+        // Headers as the handler set them, before the server adds its own
+        private void record(int code) {
+            status = code;
+            headers = new Headers();
+            for (Map.Entry<String, List<String>> e : getResponseHeaders().entrySet()) {
+                String name = e.getKey();
+                if (!name.equalsIgnoreCase("Date") && !name.equalsIgnoreCase("Content-Length")
+                        && !name.equalsIgnoreCase("Transfer-Encoding") && !name.equalsIgnoreCase("Connection")
+                        && !name.equalsIgnoreCase(TracingHandler.TRACE_ID_HEADER)) {
+                    headers.put(name, new ArrayList<>(e.getValue()));
+                }
+            }
+        }
+
+        SharedResponse shared() {
+            // A shed request (503) says nothing about the others, they get their own chance
+            if (status == -1 || status == 503) {
+                return null;
+            }
+            if (body == null) {
+                if (streamed == null || !streamClosed) {
+                    return null;
+                }
+                body = streamed.toByteArray();
+            }
+            return new SharedResponse(status, headers, body);
+        }
+    }
+}
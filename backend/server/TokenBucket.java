@@ -0,0 +1,30 @@
+package backend.server;
+
+// Requests per second with a burst allowance; refilled lazily on each call
+final class TokenBucket {
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    TokenBucket(double perSecond, double burst) {
+        this.ratePerNano = perSecond / 1e9;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+    }
+
+    synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,48 @@
+package backend.server;
+
+import backend.tracing.Tracer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// GET /server/traces?limit=50              => recent traces with a per-step breakdown
+// GET /server/traces?format=otlp&limit=500 => the same as an OTLP/JSON file for OpenTelemetry tools
+public class TracesHandler implements HttpHandler {
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            return;
+        }
+        String query = exchange.getRequestURI().getQuery();
+        int limit = 50;
+        boolean otlp = false;
+        if (query != null) {
+            for (String param : query.split("&")) {
+                String[] pair = param.split("=", 2);
+                if (pair.length == 2 && pair[0].equals("limit")) {
+                    try {
+                        limit = Math.max(1, Integer.parseInt(pair[1]));
+                    } catch (NumberFormatException e) {
+                        // keep the default
+                    }
+                } else if (pair.length == 2 && pair[0].equals("format")) {
+                    otlp = pair[1].equals("otlp");
+                }
+            }
+        }
+        String json = otlp ? Tracer.otlpJson(limit) : Tracer.recentJson(limit);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (otlp) {
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"traces.otlp.json\"");
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package backend.server;
+
+import backend.tracing.Span;
+import backend.tracing.Tracer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+// Starts the trace of a sampled request (see Tracer) and ends it once the
+// response is complete, async handlers included. Traced responses carry the
+// trace id in X-Trace-Id; a client can ask for a trace with "X-Trace: 1".
+public class TracingHandler implements HttpHandler {
+    static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private final String path;
+    private final HttpHandler next;
+
+    public TracingHandler(String path, HttpHandler next) {
+        this.path = path;
+        this.next = next;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        boolean forced = "1".equals(exchange.getRequestHeaders().getFirst("X-Trace"));
+        Span root = Tracer.startRequest(exchange.getRequestMethod() + " " + path, forced);
+        if (root == null) {
+            next.handle(exchange);
+            return;
+        }
+        String method = exchange.getRequestMethod();
+        root.attr("http.method", method)
+                .attr("http.target", exchange.getRequestURI().getRawPath()
+                        + (exchange.getRequestURI().getRawQuery() == null ? "" : "?" + exchange.getRequestURI().getRawQuery()))
+                .attr("priority", PriorityHandler.classify(method, exchange.getRequestURI().getPath()));
+        exchange.getResponseHeaders().set(TRACE_ID_HEADER, root.traceId());
+        try {
+            next.handle(exchange);
+        } finally {
+            Tracer.restore(null);
+            AsyncCompletion.whenDone(() -> {
+                root.attr("http.status", exchange.getResponseCode());
+                Tracer.finish(root);
+            });
+        }
+    }
+
+    // The handler itself; its time minus the spans inside it is building the response
+    static HttpHandler timed(HttpHandler handler) {
+        return exchange -> {
+            Span span = Tracer.span("handler"); // closed by hand: nothing in the block uses it
+            try {
+                handler.handle(exchange);
+            } finally {
+                span.close();
+            }
+        };
+    }
+}
@@ -8,6 +8,14 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ElectionService {
 
@@ -55,148 +63,339 @@ public class ElectionService {
         }
     }
 
-    public void saveResults(
+    public int saveResults(
             String district, int seatCount, int year,
             KeyValue[] politicalParty, int[] finalSeats, int[] validVotesPerParty,
             // int totalVotes,int rectedVotes,
             int totalValidVotes, int disqualifyPartyCount, int disqualifyVotes, int threshold5Percent,
             int[] bonusRoundSeats, int[] firstRoundSeats, int[] secondRoundSeats
             
+    ) {
+        return saveResults(null, district, seatCount, year, politicalParty, finalSeats, validVotesPerParty,
+                totalValidVotes, disqualifyPartyCount, disqualifyVotes, threshold5Percent,
+                bonusRoundSeats, firstRoundSeats, secondRoundSeats);
+    }
+
+    // Idempotent save keyed by (district, year).
+    // - A submission whose idempotency key was already applied is a no-op
+    //   (the key is optional; without one, an identical re-submission still
+    //   writes nothing because of the diff below).
+    // - If the district already has results for the year, only rows whose values
+    //   changed are updated (missing parties inserted, dropped parties removed).
+    // Returns the number of rows written, 0 when nothing changed.
+    public int saveResults(
+            String idempotencyKey, String district, int seatCount, int year,
+            KeyValue[] politicalParty, int[] finalSeats, int[] validVotesPerParty,
+            int totalValidVotes, int disqualifyPartyCount, int disqualifyVotes, int threshold5Percent,
+            int[] bonusRoundSeats, int[] firstRoundSeats, int[] secondRoundSeats
     ) {
         if (politicalParty == null || finalSeats == null || validVotesPerParty == null ||
                 politicalParty.length != finalSeats.length ||
                 politicalParty.length != validVotesPerParty.length) {
             throw new IllegalArgumentException("Invalid input arrays");
         }
+        boolean hasKey = idempotencyKey != null && !idempotencyKey.isBlank();
 
-        try (Connection conn = DatabaseConnector.getConnection()) {
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
             conn.setAutoCommit(false);
+            try {
+                // 0. Retry of a submission we already applied?
+                if (hasKey && isApplied(conn, idempotencyKey)) {
+                    conn.rollback();
+                    System.out.println("ℹ️ Results for " + district + " " + year + " already applied, nothing to do.");
+                    return 0;
+                }
 
-            // 1. Get or insert election
-            int electionId = -1;
-            String selectElection = "SELECT election_id FROM election WHERE year = ?";
-            try (PreparedStatement ps = conn.prepareStatement(selectElection)) {
-                ps.setInt(1, year);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        electionId = rs.getInt("election_id");
-                    }
+                if (ResultSnapshotService.lockYear(conn, year)) {
+                    conn.rollback();
+                    System.err.println("❌ Election " + year + " is finalized, results for " + district + " not saved.");
+                    return -1;
                 }
-            }
-            if (electionId == -1) {
-                String insertElection = "INSERT INTO election (year) VALUES (?)";
-                try (PreparedStatement ps = conn.prepareStatement(insertElection, PreparedStatement.RETURN_GENERATED_KEYS)) {
+
+                int written = 0;
+
+                // 1. Get or insert election
+                int electionId = -1;
+                String selectElection = "SELECT election_id FROM election WHERE year = ?";
+                try (PreparedStatement ps = conn.prepareStatement(selectElection)) {
                     ps.setInt(1, year);
-                    ps.executeUpdate();
-                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                    try (ResultSet rs = ps.executeQuery()) {
                         if (rs.next()) {
-                            electionId = rs.getInt(1);
+                            electionId = rs.getInt("election_id");
                         }
                     }
                 }
-            }
-
-            // 2. Get district_id
-            int districtId = -1;
-            String selectDistrict = "SELECT district_id FROM district WHERE LOWER(district_name) = LOWER(?)";
-            try (PreparedStatement ps = conn.prepareStatement(selectDistrict)) {
-                ps.setString(1, district);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        districtId = rs.getInt("district_id");
-                    } else {
-                        throw new SQLException("District not found: " + district);
+                if (electionId == -1) {
+                    String insertElection = "INSERT INTO election (year) VALUES (?)";
+                    try (PreparedStatement ps = conn.prepareStatement(insertElection, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                        ps.setInt(1, year);
+                        ps.executeUpdate();
+                        written++;
+                        try (ResultSet rs = ps.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                electionId = rs.getInt(1);
+                            }
+                        }
                     }
                 }
-            }
 
-            // 3. Insert into district_election
-            int districtElectionId = -1;
-            String insertDistrictElection = """
-                INSERT INTO district_election (
-                    total_valid_votes_for_seat, disqualify_votes, disqualify_party_count, threshold_5_percent,
-                    district_id, election_id
-                ) VALUES (?, ?, ?, ?, ?, ?)
-            """;
-            try (PreparedStatement ps = conn.prepareStatement(insertDistrictElection, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                ps.setInt(1, totalValidVotes);
-                ps.setInt(2, disqualifyVotes);
-                ps.setInt(3, disqualifyPartyCount);
-                ps.setInt(4, threshold5Percent);
-                ps.setInt(5, districtId);
-                ps.setInt(6, electionId);
-                ps.executeUpdate();
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        districtElectionId = rs.getInt(1);
+                // 2. Get district_id (and the name as stored, which the trend index is keyed on)
+                int districtId = -1;
+                String districtName = district;
+                String selectDistrict = "SELECT district_id, district_name FROM district WHERE LOWER(district_name) = LOWER(?)";
+                try (PreparedStatement ps = conn.prepareStatement(selectDistrict)) {
+                    ps.setString(1, district);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            districtId = rs.getInt("district_id");
+                            districtName = rs.getString("district_name");
+                        } else {
+                            throw new SQLException("District not found: " + district);
+                        }
                     }
                 }
-            }
 
-            // 4. Insert parties if not exist, and get their IDs
-            int[] partyIds = new int[politicalParty.length];
-            for (int i = 0; i < politicalParty.length; i++) {
-                String selectParty = "SELECT party_id FROM party WHERE party_name = ?";
-                try (PreparedStatement ps = conn.prepareStatement(selectParty)) {
-                    ps.setString(1, politicalParty[i].key);
+                // 3. Insert or update district_election for (district, year)
+                int districtElectionId = -1;
+                try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT district_election_id, total_valid_votes_for_seat, disqualify_votes,
+                           disqualify_party_count, threshold_5_percent
+                    FROM district_election
+                    WHERE district_id = ? AND election_id = ?
+                    ORDER BY district_election_id
+                """)) {
+                    ps.setInt(1, districtId);
+                    ps.setInt(2, electionId);
                     try (ResultSet rs = ps.executeQuery()) {
                         if (rs.next()) {
-                            partyIds[i] = rs.getInt("party_id");
-                        } else {
-                            String insertParty = "INSERT INTO party (party_name) VALUES (?)";
-                            try (PreparedStatement psInsert = conn.prepareStatement(insertParty, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                                psInsert.setString(1, politicalParty[i].key);
-                                psInsert.executeUpdate();
-                                try (ResultSet rsInsert = psInsert.getGeneratedKeys()) {
-                                    if (rsInsert.next()) {
-                                        partyIds[i] = rsInsert.getInt(1);
+                            districtElectionId = rs.getInt("district_election_id");
+                            if (rs.getInt("total_valid_votes_for_seat") != totalValidVotes
+                                    || rs.getInt("disqualify_votes") != disqualifyVotes
+                                    || rs.getInt("disqualify_party_count") != disqualifyPartyCount
+                                    || rs.getInt("threshold_5_percent") != threshold5Percent) {
+                                try (PreparedStatement update = conn.prepareStatement("""
+                                    UPDATE district_election
+                                    SET total_valid_votes_for_seat = ?, disqualify_votes = ?,
+                                        disqualify_party_count = ?, threshold_5_percent = ?
+                                    WHERE district_election_id = ?
+                                """)) {
+                                    update.setInt(1, totalValidVotes);
+                                    update.setInt(2, disqualifyVotes);
+                                    update.setInt(3, disqualifyPartyCount);
+                                    update.setInt(4, threshold5Percent);
+                                    update.setInt(5, districtElectionId);
+                                    written += update.executeUpdate();
+                                }
+                            }
+                        }
+                    }
+                }
+                if (districtElectionId == -1) {
+                    String insertDistrictElection = """
+                        INSERT INTO district_election (
+                            total_valid_votes_for_seat, disqualify_votes, disqualify_party_count, threshold_5_percent,
+                            district_id, election_id
+                        ) VALUES (?, ?, ?, ?, ?, ?)
+                    """;
+                    try (PreparedStatement ps = conn.prepareStatement(insertDistrictElection, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                        ps.setInt(1, totalValidVotes);
+                        ps.setInt(2, disqualifyVotes);
+                        ps.setInt(3, disqualifyPartyCount);
+                        ps.setInt(4, threshold5Percent);
+                        ps.setInt(5, districtId);
+                        ps.setInt(6, electionId);
+                        ps.executeUpdate();
+                        written++;
+                        try (ResultSet rs = ps.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                districtElectionId = rs.getInt(1);
+                            }
+                        }
+                    }
+                }
+
+                // 4. Insert parties if not exist, and get their IDs and stored names
+                // (the lookup ignores case on MySQL, so "abc" finds the existing "ABC")
+                int[] partyIds = new int[politicalParty.length];
+                String[] partyNames = new String[politicalParty.length];
+                for (int i = 0; i < politicalParty.length; i++) {
+                    String selectParty = "SELECT party_id, party_name FROM party WHERE party_name = ?";
+                    try (PreparedStatement ps = conn.prepareStatement(selectParty)) {
+                        ps.setString(1, politicalParty[i].key);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (rs.next()) {
+                                partyIds[i] = rs.getInt("party_id");
+                                partyNames[i] = rs.getString("party_name");
+                            } else {
+                                partyNames[i] = politicalParty[i].key;
+                                String insertParty = "INSERT INTO party (party_name) VALUES (?)";
+                                try (PreparedStatement psInsert = conn.prepareStatement(insertParty, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                                    psInsert.setString(1, politicalParty[i].key);
+                                    psInsert.executeUpdate();
+                                    written++;
+                                    try (ResultSet rsInsert = psInsert.getGeneratedKeys()) {
+                                        if (rsInsert.next()) {
+                                            partyIds[i] = rsInsert.getInt(1);
+                                        }
                                     }
                                 }
                             }
                         }
                     }
                 }
-            }
 
-            // 5. Insert party_votes
-            String insertPartyVotes = """
-                INSERT INTO party_votes (votes, district_election_id, party_id)
-                VALUES (?, ?, ?)
-            """;
-            try (PreparedStatement ps = conn.prepareStatement(insertPartyVotes)) {
+                // 5. party_votes: diff against stored rows
+                int[][] newVotes = new int[politicalParty.length][];
                 for (int i = 0; i < politicalParty.length; i++) {
-                    ps.setInt(1, validVotesPerParty[i]);
-                    ps.setInt(2, districtElectionId);
-                    ps.setInt(3, partyIds[i]);
-                    ps.addBatch();
+                    newVotes[i] = new int[] {validVotesPerParty[i]};
                 }
-                ps.executeBatch();
-            }
+                written += syncRows(conn, districtElectionId, partyIds, newVotes,
+                        "party_votes", "party_votes_id", new String[] {"votes"});
 
-            // 6. Insert seat_allocation
-            String insertSeatAllocation = """
-                INSERT INTO seat_allocation (
-                    bonus_round, first_round, second_round, final_allocation,
-                    district_election_id, party_id
-                ) VALUES (?, ?, ?, ?, ?, ?)
-            """;
-            try (PreparedStatement ps = conn.prepareStatement(insertSeatAllocation)) {
+                // 6. seat_allocation: diff against stored rows
+                int[][] newSeats = new int[politicalParty.length][];
                 for (int i = 0; i < politicalParty.length; i++) {
-                    ps.setInt(1, bonusRoundSeats[i]); // bonus_round (set as needed)
-                    ps.setInt(2, firstRoundSeats[i]); // first_round (set as needed)
-                    ps.setInt(3, secondRoundSeats[i]); // second_round (set as needed)
-                    ps.setInt(4, finalSeats[i]);
-                    ps.setInt(5, districtElectionId);
-                    ps.setInt(6, partyIds[i]);
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-            }
+                    newSeats[i] = new int[] {bonusRoundSeats[i], firstRoundSeats[i], secondRoundSeats[i], finalSeats[i]};
+                }
+                written += syncRows(conn, districtElectionId, partyIds, newSeats,
+                        "seat_allocation", "seat_allocation_id",
+                        new String[] {"bonus_round", "first_round", "second_round", "final_allocation"});
+
+                // 7. Remember the key so a retry of this submission is a no-op
+                if (hasKey) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT INTO result_submission (idempotency_key, district_election_id) VALUES (?, ?)")) {
+                        ps.setString(1, idempotencyKey);
+                        ps.setInt(2, districtElectionId);
+                        ps.executeUpdate();
+                    }
+                }
 
-            conn.commit();
-            System.out.println("✅ Election results saved successfully.");
+                conn.commit();
+                if (written == 0) {
+                    System.out.println("ℹ️ Results for " + district + " " + year + " unchanged.");
+                } else {
+                    TrendIndex.onResultsSaved(year, districtName, partyNames, validVotesPerParty, finalSeats);
+                    System.out.println("✅ Election results saved successfully (" + written + " rows written).");
+                }
+                return written;
+            } catch (SQLException e) {
+                conn.rollback();
+                // A concurrent retry of the same submission committed first (its key or district_election row)
+                if (hasKey && isConstraintViolation(e) && isApplied(conn, idempotencyKey)) {
+                    conn.rollback();
+                    System.out.println("ℹ️ Results for " + district + " " + year + " already applied, nothing to do.");
+                    return 0;
+                }
+                throw e;
+            }
         } catch (SQLException e) {
             System.err.println("❌ Error saving election results: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static boolean isApplied(Connection conn, String idempotencyKey) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT district_election_id FROM result_submission WHERE idempotency_key = ?")) {
+            ps.setString(1, idempotencyKey);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // SQLState class 23 = integrity constraint violation (duplicate key, unique constraint)
+    private static boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
+    // Brings the per-party rows of one district_election in line with the new values.
+    // Unchanged rows are left alone, changed rows are UPDATEd, new parties INSERTed,
+    // and parties no longer submitted (or duplicate rows from older saves) deleted.
+    static int syncRows(Connection conn, int districtElectionId, int[] partyIds, int[][] values,
+                         String table, String idColumn, String[] columns) throws SQLException {
+        String columnList = String.join(", ", columns);
+        Map<Integer, int[]> stored = new HashMap<>();      // party_id -> [row id, values...]
+        List<Integer> toDelete = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + idColumn + ", party_id, " + columnList + " FROM " + table +
+                " WHERE district_election_id = ? ORDER BY " + idColumn)) {
+            ps.setInt(1, districtElectionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int[] row = new int[columns.length + 1];
+                    row[0] = rs.getInt(1);
+                    for (int c = 0; c < columns.length; c++) {
+                        row[c + 1] = rs.getInt(c + 3);
+                    }
+                    if (stored.putIfAbsent(rs.getInt(2), row) != null) {
+                        toDelete.add(row[0]);
+                    }
+                }
+            }
+        }
+
+        StringBuilder setClause = new StringBuilder();
+        for (String column : columns) {
+            if (setClause.length() > 0) setClause.append(", ");
+            setClause.append(column).append(" = ?");
+        }
+        String placeholders = "?, ".repeat(columns.length);
+
+        int written = 0;
+        try (PreparedStatement update = conn.prepareStatement(
+                     "UPDATE " + table + " SET " + setClause + " WHERE " + idColumn + " = ?");
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO " + table + " (" + columnList + ", district_election_id, party_id) " +
+                     "VALUES (" + placeholders + "?, ?)")) {
+            boolean hasUpdates = false;
+            boolean hasInserts = false;
+            Set<Integer> submitted = new HashSet<>();
+            for (int i = 0; i < partyIds.length; i++) {
+                submitted.add(partyIds[i]);
+                int[] row = stored.get(partyIds[i]);
+                if (row == null) {
+                    for (int c = 0; c < columns.length; c++) {
+                        insert.setInt(c + 1, values[i][c]);
+                    }
+                    insert.setInt(columns.length + 1, districtElectionId);
+                    insert.setInt(columns.length + 2, partyIds[i]);
+                    insert.addBatch();
+                    hasInserts = true;
+                    written++;
+                } else if (!Arrays.equals(row, 1, row.length, values[i], 0, columns.length)) {
+                    for (int c = 0; c < columns.length; c++) {
+                        update.setInt(c + 1, values[i][c]);
+                    }
+                    update.setInt(columns.length + 1, row[0]);
+                    update.addBatch();
+                    hasUpdates = true;
+                    written++;
+                }
+            }
+            if (hasUpdates) update.executeBatch();
+            if (hasInserts) insert.executeBatch();
+
+            for (Map.Entry<Integer, int[]> e : stored.entrySet()) {
+                if (!submitted.contains(e.getKey())) {
+                    toDelete.add(e.getValue()[0]);
+                }
+            }
+        }
+
+        if (!toDelete.isEmpty()) {
+            try (PreparedStatement delete = conn.prepareStatement(
+                    "DELETE FROM " + table + " WHERE " + idColumn + " = ?")) {
+                for (int id : toDelete) {
+                    delete.setInt(1, id);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                written += toDelete.size();
+            }
         }
+        return written;
     }
-}
\ No newline at end of file
+}
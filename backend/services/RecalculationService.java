@@ -0,0 +1,255 @@
+package backend.services;
+
+import backend.config.AppConfig;
+import backend.db.DatabaseConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Recomputes the seat allocation of every district of a year from the stored
+// party_votes, using the current district seat_count and the SeatCalculator
+// rules. Needed after a rule change or a seat_count correction, when the
+// stored seat_allocation rows no longer match.
+//
+// Districts are calculated in parallel; the results are then written in
+// transactions of BATCH_DISTRICTS districts, touching only rows that changed.
+public class RecalculationService {
+    private static final int THREADS = AppConfig.getInt("election.recalc.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final int BATCH_DISTRICTS = AppConfig.getInt("election.recalc.batch_districts", 25);
+
+    // Latest job per year
+    private static final Map<Integer, Job> JOBS = new ConcurrentHashMap<>();
+    private static final ExecutorService RUNNER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "recalculation");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static class Job {
+        public final int year;
+        public volatile String state = "queued";   // queued, loading, calculating, writing, done, failed
+        public volatile int districtsTotal;
+        public final AtomicInteger districtsCalculated = new AtomicInteger();
+        public final AtomicInteger districtsWritten = new AtomicInteger();
+        public final AtomicInteger districtsChanged = new AtomicInteger();
+        public final AtomicInteger rowsWritten = new AtomicInteger();
+        public volatile String error;
+        public final long startedAt = System.currentTimeMillis();
+        public volatile long finishedAt;
+
+        Job(int year) {
+            this.year = year;
+        }
+
+        public boolean isRunning() {
+            return finishedAt == 0;
+        }
+
+        public String toJson() {
+            long elapsed = (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt;
+            return "{\"year\":" + year
+                    + ",\"state\":\"" + state + "\""
+                    + ",\"districts_total\":" + districtsTotal
+                    + ",\"districts_calculated\":" + districtsCalculated.get()
+                    + ",\"districts_written\":" + districtsWritten.get()
+                    + ",\"districts_changed\":" + districtsChanged.get()
+                    + ",\"rows_written\":" + rowsWritten.get()
+                    + ",\"elapsed_ms\":" + elapsed
+                    + (error == null ? "" : ",\"error\":\"" + error.replace("\"", "'") + "\"")
+                    + "}";
+        }
+    }
+
+    // One district_election as read from the DB, and its recalculated allocation
+    private static class DistrictInput {
+        int districtElectionId;
+        String districtName;
+        int seatCount;
+        int totalValidVotes;
+        List<Integer> partyIds = new ArrayList<>();
+        List<Integer> votes = new ArrayList<>();
+        SeatCalculator.Allocation allocation;
+    }
+
+    public static Job getJob(int year) {
+        return JOBS.get(year);
+    }
+
+    // Starts a background job; IllegalStateException if one is already running for the year
+    public static synchronized Job start(int year) {
+        Job current = JOBS.get(year);
+        if (current != null && current.isRunning()) {
+            throw new IllegalStateException("A recalculation for " + year + " is already running.");
+        }
+        Job job = new Job(year);
+        JOBS.put(year, job);
+        RUNNER.submit(() -> run(job));
+        return job;
+    }
+
+    // Runs in the calling thread (used by the command line tool)
+    public static Job runNow(int year) {
+        Job job = new Job(year);
+        JOBS.put(year, job);
+        run(job);
+        return job;
+    }
+
+    private static void run(Job job) {
+        try {
+            job.state = "loading";
+            List<DistrictInput> districts = load(job.year);
+            job.districtsTotal = districts.size();
+
+            job.state = "calculating";
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(THREADS, districts.size())));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (DistrictInput d : districts) {
+                    futures.add(pool.submit(() -> {
+                        int[] votes = d.votes.stream().mapToInt(Integer::intValue).toArray();
+                        d.allocation = SeatCalculator.allocate(d.seatCount, d.totalValidVotes, votes);
+                        job.districtsCalculated.incrementAndGet();
+                    }));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            job.state = "writing";
+            for (int from = 0; from < districts.size(); from += BATCH_DISTRICTS) {
+                write(job, districts.subList(from, Math.min(districts.size(), from + BATCH_DISTRICTS)));
+            }
+            if (job.rowsWritten.get() > 0) {
+                TrendIndex.invalidate();
+            }
+            job.state = "done";
+            System.out.println("✅ Recalculated " + job.year + ": " + job.districtsChanged.get() + " of "
+                    + job.districtsTotal + " districts changed, " + job.rowsWritten.get() + " rows written.");
+        } catch (Exception e) {
+            job.state = "failed";
+            job.error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            System.err.println("❌ Recalculation of " + job.year + " failed: " + job.error);
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+        }
+    }
+
+    private static List<DistrictInput> load(int year) throws SQLException {
+        Map<Integer, DistrictInput> byId = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            if (ResultSnapshotService.isFinalized(conn, year)) {
+                throw new IllegalStateException("Election " + year + " is finalized and can't be recalculated.");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT de.district_election_id, d.district_name, d.seat_count, de.total_valid_votes_for_seat
+                    FROM district_election de
+                    JOIN district d ON de.district_id = d.district_id
+                    JOIN election e ON de.election_id = e.election_id
+                    WHERE e.year = ?
+                    ORDER BY de.district_election_id
+                    """)) {
+                ps.setInt(1, year);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        DistrictInput d = new DistrictInput();
+                        d.districtElectionId = rs.getInt(1);
+                        d.districtName = rs.getString(2);
+                        d.seatCount = rs.getInt(3);
+                        d.totalValidVotes = rs.getInt(4);
+                        byId.put(d.districtElectionId, d);
+                    }
+                }
+            }
+            if (byId.isEmpty()) {
+                throw new IllegalArgumentException("No results for year " + year + ".");
+            }
+            // Submission order (lowest row id first) decides ties, as it did when the results were entered
+            try (PreparedStatement ps = conn.prepareStatement("""
+                    SELECT pv.district_election_id, pv.party_id, SUM(pv.votes)
+                    FROM party_votes pv
+                    JOIN district_election de ON pv.district_election_id = de.district_election_id
+                    JOIN election e ON de.election_id = e.election_id
+                    WHERE e.year = ?
+                    GROUP BY pv.district_election_id, pv.party_id
+                    ORDER BY pv.district_election_id, MIN(pv.party_votes_id)
+                    """)) {
+                ps.setInt(1, year);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        DistrictInput d = byId.get(rs.getInt(1));
+                        d.partyIds.add(rs.getInt(2));
+                        d.votes.add(rs.getInt(3));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static void write(Job job, List<DistrictInput> batch) throws SQLException {
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Checked again per batch: the year may have been finalized since load()
+                ResultSnapshotService.requireOpenYear(conn, job.year);
+                int rows = 0;
+                int changed = 0;
+                try (PreparedStatement update = conn.prepareStatement("""
+                        UPDATE district_election
+                        SET disqualify_votes = ?, disqualify_party_count = ?, threshold_5_percent = ?
+                        WHERE district_election_id = ?
+                          AND (disqualify_votes <> ? OR disqualify_party_count <> ? OR threshold_5_percent <> ?)
+                        """)) {
+                    for (DistrictInput d : batch) {
+                        SeatCalculator.Allocation a = d.allocation;
+                        update.setInt(1, a.disqualifyVotes);
+                        update.setInt(2, a.disqualifyPartyCount);
+                        update.setInt(3, a.threshold);
+                        update.setInt(4, d.districtElectionId);
+                        update.setInt(5, a.disqualifyVotes);
+                        update.setInt(6, a.disqualifyPartyCount);
+                        update.setInt(7, a.threshold);
+                        int districtRows = update.executeUpdate();
+
+                        int[] partyIds = d.partyIds.stream().mapToInt(Integer::intValue).toArray();
+                        int[][] seats = new int[partyIds.length][];
+                        for (int i = 0; i < partyIds.length; i++) {
+                            seats[i] = new int[] {a.bonusRoundSeats[i], a.firstRoundSeats[i],
+                                    a.secondRoundSeats[i], a.finalSeats[i]};
+                        }
+                        districtRows += ElectionService.syncRows(conn, d.districtElectionId, partyIds, seats,
+                                "seat_allocation", "seat_allocation_id",
+                                new String[] {"bonus_round", "first_round", "second_round", "final_allocation"});
+                        if (districtRows > 0) {
+                            changed++;
+                            rows += districtRows;
+                        }
+                    }
+                }
+                conn.commit();
+                job.rowsWritten.addAndGet(rows);
+                job.districtsChanged.addAndGet(changed);
+                job.districtsWritten.addAndGet(batch.size());
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package backend.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Read-only view over a finalized year's snapshot file.
+//
+// File layout (big-endian):
+//   int    magic 'ELSN'
+//   int    format version
+//   int    year
+//   long   finalized at (epoch millis)
+//   int    length + bytes   /dist_election/all-by-year/{year} body (text)
+//   int    length + bytes   /party/year/{year} body (JSON)
+//   int    party count, then per party: short name length + UTF-8 name, int total seats
+//   long   CRC32 of everything above
+//
+// The two list views are stored already rendered and are written straight
+// from the mapped file; only the small seat table is copied onto the heap.
+public class ResultSnapshot {
+    static final int MAGIC = 0x454C534E; // "ELSN"
+    static final int VERSION = 1;
+
+    private final int year;
+    private final long finalizedAt;
+    private final ByteBuffer districtView;
+    private final ByteBuffer partyView;
+    private final Map<String, Integer> seatsByParty;
+    private final long sizeBytes;
+
+    private ResultSnapshot(int year, long finalizedAt, ByteBuffer districtView, ByteBuffer partyView,
+                           Map<String, Integer> seatsByParty, long sizeBytes) {
+        this.year = year;
+        this.finalizedAt = finalizedAt;
+        this.districtView = districtView;
+        this.partyView = partyView;
+        this.seatsByParty = seatsByParty;
+        this.sizeBytes = sizeBytes;
+    }
+
+    public static ResultSnapshot load(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        int size = map.limit();
+        if (size < 28 || map.getInt(0) != MAGIC) {
+            throw new IOException("Not a result snapshot: " + file);
+        }
+        if (map.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + map.getInt(4) + " in " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(map.duplicate().limit(size - 8));
+        if (crc.getValue() != map.getLong(size - 8)) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+
+        ByteBuffer in = map.duplicate();
+        in.position(8);
+        int year = in.getInt();
+        long finalizedAt = in.getLong();
+        ByteBuffer districtView = slice(in);
+        ByteBuffer partyView = slice(in);
+        int parties = in.getInt();
+        Map<String, Integer> seats = new HashMap<>(parties * 2);
+        for (int i = 0; i < parties; i++) {
+            byte[] name = new byte[in.getShort() & 0xFFFF];
+            in.get(name);
+            seats.merge(seatKey(new String(name, StandardCharsets.UTF_8)), in.getInt(), Integer::sum);
+        }
+        return new ResultSnapshot(year, finalizedAt, districtView, partyView, seats, size);
+    }
+
+    private static ByteBuffer slice(ByteBuffer in) {
+        int len = in.getInt();
+        ByteBuffer view = in.slice().limit(len);
+        in.position(in.position() + len);
+        return view;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public long getFinalizedAt() {
+        return finalizedAt;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public int districtViewLength() {
+        return districtView.limit();
+    }
+
+    public int partyViewLength() {
+        return partyView.limit();
+    }
+
+    public void writeDistrictView(OutputStream os) throws IOException {
+        write(districtView, os);
+    }
+
+    public void writePartyView(OutputStream os) throws IOException {
+        write(partyView, os);
+    }
+
+    // Same answer the SUM() query gives: 0 for a party without seats that year
+    public int totalSeats(String partyName) {
+        return seatsByParty.getOrDefault(seatKey(partyName), 0);
+    }
+
+    // The live query's party_name = ? ignores case (MySQL collation), so the seat table does too
+    private static String seatKey(String partyName) {
+        return partyName.toLowerCase(Locale.ROOT);
+    }
+
+    private static void write(ByteBuffer view, OutputStream os) throws IOException {
+        // duplicate() so concurrent requests don't share a position
+        Channels.newChannel(os).write(view.duplicate());
+    }
+}
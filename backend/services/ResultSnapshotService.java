@@ -0,0 +1,353 @@
+package backend.services;
+
+import backend.archive.ElectionArchiveStore;
+import backend.archive.VersionedFiles;
+import backend.config.AppConfig;
+import backend.db.DatabaseConnector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+// Finalizing a year freezes its results: the result views are rendered once
+// into a snapshot file (see ResultSnapshot) and the year is recorded in
+// election_finalized, after which every writer of results refuses to touch it
+// (see lockYear).
+// Read endpoints for a finalized year are served from the mapped snapshot
+// without going to the database.
+public class ResultSnapshotService {
+    private static final Path DIR = Paths.get(AppConfig.get("election.snapshot.dir", "snapshots"));
+    // How long "no snapshot for this year" is remembered before the disk is checked again
+    private static final long MISS_RECHECK_MS = AppConfig.getLong("election.snapshot.recheck_ms", 30_000);
+
+    private static final Map<Integer, ResultSnapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+    private static final Map<Integer, Long> MISSES = new ConcurrentHashMap<>();
+
+    public static class FinalizeResult {
+        public final ResultSnapshot snapshot;
+        public final boolean alreadyFinalized;
+
+        FinalizeResult(ResultSnapshot snapshot, boolean alreadyFinalized) {
+            this.snapshot = snapshot;
+            this.alreadyFinalized = alreadyFinalized;
+        }
+    }
+
+    // Snapshot for a finalized year, or null if the year is still open
+    public static ResultSnapshot get(int year) {
+        ResultSnapshot snapshot = SNAPSHOTS.get(year);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Long missedAt = MISSES.get(year);
+        long now = System.currentTimeMillis();
+        if (missedAt != null && now - missedAt < MISS_RECHECK_MS) {
+            return null;
+        }
+        Path file = fileForQuietly(year);
+        if (file != null) {
+            // A file left over from another database (e.g. a reset H2 instance) must not be served
+            try (Connection conn = DatabaseConnector.getConnection()) {
+                if (isFinalized(conn, year)) {
+                    snapshot = ResultSnapshot.load(file);
+                    SNAPSHOTS.put(year, snapshot);
+                    MISSES.remove(year);
+                    return snapshot;
+                }
+            } catch (IOException | SQLException e) {
+                System.err.println("❌ Ignoring snapshot for " + year + ": " + e.getMessage());
+            }
+        }
+        MISSES.put(year, now);
+        return null;
+    }
+
+    // Checked inside write transactions, so it goes to the database rather than the file cache
+    public static boolean isFinalized(Connection conn, int year) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM election_finalized WHERE year = ?")) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Every writer of a year's results calls one of these inside its own transaction
+    // (auto-commit off), before writing. They lock the year's election row, the row
+    // finalizeYear locks, so a finalize can't commit between the check and the write;
+    // the lock is held until the writer commits.
+    // Returns whether the year is finalized.
+    public static boolean lockYear(Connection conn, int year) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT election_id FROM election WHERE year = ? FOR UPDATE")) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false; // no election yet, nothing to finalize either
+                }
+            }
+        }
+        return isFinalized(conn, year);
+    }
+
+    // Throws IllegalStateException (answered as 409) for a finalized year
+    public static void requireOpenYear(Connection conn, int year) throws SQLException {
+        if (lockYear(conn, year)) {
+            throw new IllegalStateException("Election " + year + " is finalized, its results can't be changed.");
+        }
+    }
+
+    // Same for a write that names a district_election row; false when that row doesn't exist
+    public static boolean requireOpenDistrictElection(Connection conn, int districtElectionId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT e.year FROM district_election de
+                JOIN election e ON de.election_id = e.election_id
+                WHERE de.district_election_id = ?
+                """)) {
+            ps.setInt(1, districtElectionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                requireOpenYear(conn, rs.getInt(1));
+                return true;
+            }
+        }
+    }
+
+    // Same for a write that names an election by id; false when there is no such election
+    public static boolean requireOpenElection(Connection conn, int electionId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT year FROM election WHERE election_id = ?")) {
+            ps.setInt(1, electionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                requireOpenYear(conn, rs.getInt(1));
+                return true;
+            }
+        }
+    }
+
+    // For rows hanging off a district_election (seat_allocation, party_votes); false when the row doesn't exist
+    public static boolean requireOpenRow(Connection conn, String table, String idColumn, int id) throws SQLException {
+        int districtElectionId;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT district_election_id FROM " + table + " WHERE " + idColumn + " = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                districtElectionId = rs.getInt(1);
+            }
+        }
+        return requireOpenDistrictElection(conn, districtElectionId);
+    }
+
+    // Freezes the year and writes its snapshot. Finalizing an already finalized
+    // year only rewrites a missing or unreadable snapshot file.
+    // Throws IllegalArgumentException when there is no election for the year.
+    public FinalizeResult finalizeYear(int year) throws SQLException, IOException {
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Lock the election row so a concurrent saveResults can't slip in between render and freeze
+                try (PreparedStatement ps = conn.prepareStatement("SELECT election_id FROM election WHERE year = ? FOR UPDATE")) {
+                    ps.setInt(1, year);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new IllegalArgumentException("Election for year " + year + " not found.");
+                        }
+                    }
+                }
+                boolean already = isFinalized(conn, year);
+                ResultSnapshot existing = already ? loadQuietly(year) : null;
+                if (existing != null) {
+                    conn.rollback();
+                    return new FinalizeResult(existing, true);
+                }
+
+                long finalizedAt = System.currentTimeMillis();
+                byte[] bytes = render(conn, year, finalizedAt);
+                Path file = writeVersion(year, bytes);
+                if (!already) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT INTO election_finalized (year, snapshot_bytes) VALUES (?, ?)")) {
+                        ps.setInt(1, year);
+                        ps.setLong(2, bytes.length);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+
+                ResultSnapshot snapshot = ResultSnapshot.load(file);
+                SNAPSHOTS.put(year, snapshot);
+                MISSES.remove(year);
+                VersionedFiles.deleteOlder(DIR, "election-" + year, ".snap", file);
+                System.out.println("✅ Election " + year + " finalized, snapshot " + file + " (" + bytes.length + " bytes).");
+                // A finalized year never changes again, so it can go into the long-term archive too
+                try {
+                    ElectionArchiveStore.archive(year);
+                } catch (IllegalArgumentException | SQLException | IOException e) {
+                    System.err.println("⚠️ Year " + year + " finalized but not archived: " + e.getMessage());
+                }
+                return new FinalizeResult(snapshot, already);
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static ResultSnapshot loadQuietly(int year) {
+        ResultSnapshot snapshot = SNAPSHOTS.get(year);
+        Path file = snapshot == null ? fileForQuietly(year) : null;
+        if (file != null) {
+            try {
+                snapshot = ResultSnapshot.load(file);
+                SNAPSHOTS.put(year, snapshot);
+            } catch (IOException e) {
+                System.err.println("⚠️ Snapshot for " + year + " unreadable, rebuilding: " + e.getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    // Current snapshot file for a year, null if there is none (or the directory can't be read)
+    private static Path fileForQuietly(int year) {
+        try {
+            return VersionedFiles.latest(DIR, "election-" + year, ".snap");
+        } catch (IOException e) {
+            System.err.println("⚠️ Can't list snapshots: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Written to a temp file and renamed, so readers never see half a snapshot.
+    // Always a new version (VersionedFiles): the old one may still be mapped.
+    private static Path writeVersion(int year, byte[] bytes) throws IOException {
+        Files.createDirectories(DIR);
+        Path file = VersionedFiles.next(DIR, "election-" + year, ".snap");
+        Path tmp = DIR.resolve(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.wrap(bytes));
+            ch.force(true);
+        }
+        return Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Produces the same bodies the DB-backed handlers return for this year
+    private static byte[] render(Connection conn, int year, long finalizedAt) throws SQLException, IOException {
+        StringBuilder districts = new StringBuilder();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT de.district_election_id, d.district_name, e.year,
+                       de.total_valid_votes_for_seat, de.disqualify_votes, de.disqualify_party_count, de.threshold_5_percent
+                FROM district_election de
+                JOIN district d ON de.district_id = d.district_id
+                JOIN election e ON de.election_id = e.election_id
+                WHERE e.year = ?
+                ORDER BY d.district_name
+                """)) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    districts.append("ID: ").append(rs.getInt("district_election_id"))
+                            .append(", District: ").append(rs.getString("district_name"))
+                            .append(", Year: ").append(rs.getInt("year"))
+                            .append(", Valid Votes: ").append(rs.getInt("total_valid_votes_for_seat"))
+                            .append(", Disqualify Votes: ").append(rs.getInt("disqualify_votes"))
+                            .append(", Disqualify Party Count: ").append(rs.getInt("disqualify_party_count"))
+                            .append(", Threshold 5%: ").append(rs.getInt("threshold_5_percent"))
+                            .append("\n");
+                }
+            }
+        }
+
+        StringBuilder parties = new StringBuilder("[");
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT DISTINCT p.party_id, p.party_name
+                FROM party p
+                JOIN party_votes pv ON p.party_id = pv.party_id
+                JOIN district_election de ON pv.district_election_id = de.district_election_id
+                JOIN election e ON de.election_id = e.election_id
+                WHERE e.year = ?
+                ORDER BY p.party_id
+                """)) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                boolean first = true;
+                while (rs.next()) {
+                    if (!first) parties.append(",");
+                    parties.append(String.format("{\"party_id\":%d,\"party_name\":\"%s\"}",
+                            rs.getInt("party_id"),
+                            rs.getString("party_name").replace("\"", "\\\"")));
+                    first = false;
+                }
+            }
+        }
+        parties.append("]");
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(ResultSnapshot.MAGIC);
+        out.writeInt(ResultSnapshot.VERSION);
+        out.writeInt(year);
+        out.writeLong(finalizedAt);
+        writeBlock(out, districts.toString().getBytes(StandardCharsets.UTF_8));
+        writeBlock(out, parties.toString().getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream seatBuf = new ByteArrayOutputStream();
+        DataOutputStream seatOut = new DataOutputStream(seatBuf);
+        int seatRows = 0;
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT p.party_name, SUM(sa.final_allocation) AS total_seats
+                FROM seat_allocation sa
+                JOIN party p ON sa.party_id = p.party_id
+                JOIN district_election de ON sa.district_election_id = de.district_election_id
+                JOIN election e ON de.election_id = e.election_id
+                WHERE e.year = ?
+                GROUP BY p.party_name
+                """)) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    byte[] name = rs.getString("party_name").getBytes(StandardCharsets.UTF_8);
+                    seatOut.writeShort(name.length);
+                    seatOut.write(name);
+                    seatOut.writeInt(rs.getInt("total_seats"));
+                    seatRows++;
+                }
+            }
+        }
+        out.writeInt(seatRows);
+        seatBuf.writeTo(out);
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
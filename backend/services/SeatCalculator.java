@@ -0,0 +1,94 @@
+package backend.services;
+
+import backend.apportionment.VoteMath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The district seat rules used by ElectionApp, kept in one place so the
+// console flow and the recalculation job produce the same numbers:
+//   - parties below 5% of the valid votes are disqualified
+//   - one bonus seat goes to the party with the most votes
+//   - first round: qualified votes / seats gives the votes per seat, each
+//     qualified party gets votes / votesPerSeat seats
+//   - second round: the seats left (minus the bonus seat) go one each to the
+//     qualified parties with the largest remainders
+public class SeatCalculator {
+
+    public static class Allocation {
+        public int threshold;
+        public int disqualifyPartyCount;
+        public int disqualifyVotes;
+        public int qualifyVotes;
+        public int votesPerSeat;
+        public int bonusIndex;
+        public int[] bonusRoundSeats;
+        public int[] firstRoundSeats;
+        public int[] secondRoundSeats;
+        public int[] finalSeats;
+    }
+
+    public static Allocation allocate(int seatCount, int totalValidVotes, int[] votes) {
+        return allocate(seatCount, totalValidVotes, votes, 5);
+    }
+
+    // Same rules with a different disqualification threshold (percent of valid votes)
+    public static Allocation allocate(int seatCount, int totalValidVotes, int[] votes, int thresholdPercent) {
+        int n = votes.length;
+        Allocation a = new Allocation();
+        // Integer arithmetic only (see VoteMath); the float version could round differently for large totals
+        a.threshold = VoteMath.thresholdVotesInt(totalValidVotes, thresholdPercent);
+        a.disqualifyPartyCount = VoteMath.countBelow(votes, a.threshold);
+        a.disqualifyVotes = Math.toIntExact(VoteMath.sumBelow(votes, a.threshold));
+        a.qualifyVotes = Math.toIntExact((long) totalValidVotes - a.disqualifyVotes);
+        a.votesPerSeat = seatCount > 0 ? a.qualifyVotes / seatCount : 0;
+
+        // Bonus seat: first party with the most votes
+        a.bonusRoundSeats = new int[n];
+        a.bonusIndex = 0;
+        for (int i = 1; i < n; i++) {
+            if (votes[i] > votes[a.bonusIndex]) {
+                a.bonusIndex = i;
+            }
+        }
+        if (n > 0 && seatCount > 0) {
+            a.bonusRoundSeats[a.bonusIndex] = 1;
+        }
+
+        a.firstRoundSeats = new int[n];
+        int allocated = 0;
+        for (int i = 0; i < n; i++) {
+            if (votes[i] >= a.threshold && a.votesPerSeat > 0) {
+                a.firstRoundSeats[i] = votes[i] / a.votesPerSeat;
+                allocated += a.firstRoundSeats[i];
+            }
+        }
+
+        a.secondRoundSeats = new int[n];
+        int remainingSeats = seatCount - allocated - 1; // -1 for bonus seat
+        if (remainingSeats > 0) {
+            List<Integer> qualified = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (votes[i] >= a.threshold) {
+                    qualified.add(i);
+                }
+            }
+            int perSeat = a.votesPerSeat;
+            // Stable sort, so equal remainders keep the submission order
+            qualified.sort((x, y) -> Integer.compare(remainder(votes[y], perSeat), remainder(votes[x], perSeat)));
+            for (int i = 0; i < remainingSeats && i < qualified.size(); i++) {
+                a.secondRoundSeats[qualified.get(i)]++;
+            }
+        }
+
+        a.finalSeats = new int[n];
+        for (int i = 0; i < n; i++) {
+            a.finalSeats[i] = a.firstRoundSeats[i] + a.secondRoundSeats[i] + a.bonusRoundSeats[i];
+        }
+        return a;
+    }
+
+    private static int remainder(int votes, int votesPerSeat) {
+        return votesPerSeat > 0 ? votes % votesPerSeat : votes;
+    }
+}
@@ -0,0 +1,109 @@
+package backend.services;
+
+import backend.apportionment.VoteMath;
+import backend.config.AppConfig;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Vote swing and seat change between two election years, per district and
+// nationally, computed from the TrendIndex aggregates (no SQL per request).
+// Districts are processed in parallel; finished answers are cached per
+// (from, to) pair until the index changes.
+public class SwingService {
+    private static final int CACHE_SIZE = AppConfig.getInt("election.analytics.swing_cache_size", 64);
+
+    private static class Cached {
+        final long version;
+        final String json;
+
+        Cached(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    // LRU over year pairs
+    private static final Map<Long, Cached> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<Long, Cached>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Cached> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    // null when either year has no results
+    public String swingJson(int from, int to) throws SQLException {
+        long key = ((long) from << 32) | (to & 0xFFFFFFFFL);
+        long version = TrendIndex.version();
+        Cached cached = CACHE.get(key);
+        if (cached != null && cached.version == version) {
+            return cached.json;
+        }
+
+        TreeMap<String, Map<String, long[]>> before = TrendIndex.yearView(from);
+        TreeMap<String, Map<String, long[]>> after = TrendIndex.yearView(to);
+        if (before == null || after == null) {
+            return null;
+        }
+
+        TreeSet<String> districts = new TreeSet<>(before.keySet());
+        districts.addAll(after.keySet());
+        // Districts are independent; joining an ordered stream keeps them sorted
+        String districtJson = districts.parallelStream()
+                .map(d -> "{\"district\":\"" + d.replace("\"", "\\\"") + "\",\"parties\":"
+                        + partiesJson(before.getOrDefault(d, Map.of()), after.getOrDefault(d, Map.of())) + "}")
+                .collect(Collectors.joining(","));
+
+        String json = "{\"from\":" + from + ",\"to\":" + to
+                + ",\"national\":" + partiesJson(national(before), national(after))
+                + ",\"districts\":[" + districtJson + "]}";
+        CACHE.put(key, new Cached(version, json));
+        return json;
+    }
+
+    private static Map<String, long[]> national(TreeMap<String, Map<String, long[]>> year) {
+        Map<String, long[]> totals = new TreeMap<>();
+        for (Map<String, long[]> parties : year.values()) {
+            for (Map.Entry<String, long[]> e : parties.entrySet()) {
+                long[] t = totals.computeIfAbsent(e.getKey(), k -> new long[2]);
+                t[0] += e.getValue()[0];
+                t[1] += e.getValue()[1];
+            }
+        }
+        return totals;
+    }
+
+    // One entry per party present in either year: shares in %, swing in percentage points
+    private static String partiesJson(Map<String, long[]> before, Map<String, long[]> after) {
+        long totalBefore = 0;
+        long totalAfter = 0;
+        for (long[] v : before.values()) totalBefore += v[0];
+        for (long[] v : after.values()) totalAfter += v[0];
+
+        TreeSet<String> parties = new TreeSet<>(before.keySet());
+        parties.addAll(after.keySet());
+        StringBuilder json = new StringBuilder("[");
+        for (String party : parties) {
+            long[] b = before.getOrDefault(party, new long[2]);
+            long[] a = after.getOrDefault(party, new long[2]);
+            if (json.length() > 1) json.append(",");
+            json.append("{\"party\":\"").append(party.replace("\"", "\\\""))
+                .append("\",\"votes_from\":").append(b[0])
+                .append(",\"votes_to\":").append(a[0])
+                .append(",\"share_from\":").append(TrendIndex.share(b[0], totalBefore))
+                .append(",\"share_to\":").append(TrendIndex.share(a[0], totalAfter))
+                .append(",\"swing\":").append(VoteMath.formatHundredths(VoteMath.swingHundredths(b[0], totalBefore, a[0], totalAfter)))
+                .append(",\"seats_from\":").append(b[1])
+                .append(",\"seats_to\":").append(a[1])
+                .append(",\"seat_change\":").append(a[1] - b[1])
+                .append("}");
+        }
+        return json.append("]").toString();
+    }
+}
@@ -0,0 +1,238 @@
+package backend.services;
+
+import backend.apportionment.VoteMath;
+import backend.db.DatabaseConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory time series of votes and seats per (year, district, party), plus
+// running national totals per party and year, for the /analytics/trend endpoint.
+//
+// Loaded from the database on first use. saveResults updates it in place for
+// the district it just wrote; other writers (CRUD endpoints, bulk ingest, year
+// import) call invalidate() and the next query reloads.
+public class TrendIndex {
+
+    private static class DistrictData {
+        // party name -> {votes, seats}
+        final Map<String, long[]> parties = new HashMap<>();
+        long totalVotes;
+        int totalSeats;
+    }
+
+    private static class YearData {
+        final TreeMap<String, DistrictData> districts = new TreeMap<>();
+        long totalVotes;
+        int totalSeats;
+    }
+
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+    private static final TreeMap<Integer, YearData> YEARS = new TreeMap<>();
+    // party name -> year -> {votes, seats}, kept in step with YEARS
+    private static final Map<String, TreeMap<Integer, long[]>> SERIES = new HashMap<>();
+    private static boolean loaded;
+    // Bumped on every change, lets derived caches (SwingService) tell whether they are stale
+    private static volatile long version;
+
+    // Called by ElectionService after it committed a district's results.
+    // The submission replaces whatever the district had for that year.
+    public static void onResultsSaved(int year, String district, String[] parties, int[] votes, int[] seats) {
+        LOCK.writeLock().lock();
+        try {
+            if (!loaded) {
+                return; // nothing built yet, the first query will load everything
+            }
+            YearData y = YEARS.computeIfAbsent(year, k -> new YearData());
+            DistrictData old = y.districts.remove(district);
+            if (old != null) {
+                for (Map.Entry<String, long[]> e : old.parties.entrySet()) {
+                    addToSeries(e.getKey(), year, -e.getValue()[0], -e.getValue()[1]);
+                }
+                y.totalVotes -= old.totalVotes;
+                y.totalSeats -= old.totalSeats;
+            }
+            DistrictData d = new DistrictData();
+            for (int i = 0; i < parties.length; i++) {
+                add(y, d, parties[i], year, votes[i], seats[i]);
+            }
+            y.districts.put(district, d);
+            version++;
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    public static void invalidate() {
+        LOCK.writeLock().lock();
+        try {
+            loaded = false;
+            YEARS.clear();
+            SERIES.clear();
+            version++;
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    // JSON for /analytics/trend: per year national and per-district votes, share and seats
+    public static String trendJson(String party, int from, int to) throws SQLException {
+        ensureLoaded();
+        LOCK.readLock().lock();
+        try {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"party\":\"").append(party.replace("\"", "\\\"")).append("\",\"years\":[");
+            TreeMap<Integer, long[]> series = SERIES.getOrDefault(party, new TreeMap<>());
+            NavigableMap<Integer, YearData> range = YEARS.subMap(from, true, to, true);
+            boolean firstYear = true;
+            for (Map.Entry<Integer, YearData> ye : range.entrySet()) {
+                YearData y = ye.getValue();
+                long[] national = series.getOrDefault(ye.getKey(), new long[2]);
+                if (!firstYear) json.append(",");
+                firstYear = false;
+                json.append("{\"year\":").append(ye.getKey())
+                    .append(",\"votes\":").append(national[0])
+                    .append(",\"vote_share\":").append(share(national[0], y.totalVotes))
+                    .append(",\"seats\":").append(national[1])
+                    .append(",\"total_seats\":").append(y.totalSeats)
+                    .append(",\"districts\":[");
+                boolean firstDistrict = true;
+                for (Map.Entry<String, DistrictData> de : y.districts.entrySet()) {
+                    long[] v = de.getValue().parties.get(party);
+                    if (v == null) {
+                        continue;
+                    }
+                    if (!firstDistrict) json.append(",");
+                    firstDistrict = false;
+                    json.append("{\"district\":\"").append(de.getKey().replace("\"", "\\\""))
+                        .append("\",\"votes\":").append(v[0])
+                        .append(",\"vote_share\":").append(share(v[0], de.getValue().totalVotes))
+                        .append(",\"seats\":").append(v[1])
+                        .append("}");
+                }
+                json.append("]}");
+            }
+            json.append("]}");
+            return json.toString();
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    public static long version() {
+        return version;
+    }
+
+    // Copy of one year's figures: district -> party -> {votes, seats}, null if the year has no results
+    public static TreeMap<String, Map<String, long[]>> yearView(int year) throws SQLException {
+        ensureLoaded();
+        LOCK.readLock().lock();
+        try {
+            YearData y = YEARS.get(year);
+            if (y == null) {
+                return null;
+            }
+            TreeMap<String, Map<String, long[]>> view = new TreeMap<>();
+            for (Map.Entry<String, DistrictData> e : y.districts.entrySet()) {
+                Map<String, long[]> parties = new HashMap<>();
+                for (Map.Entry<String, long[]> p : e.getValue().parties.entrySet()) {
+                    parties.put(p.getKey(), p.getValue().clone());
+                }
+                view.put(e.getKey(), parties);
+            }
+            return view;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    // Exact percentage with two decimals, see VoteMath.percentHundredths
+    static String share(long votes, long total) {
+        return VoteMath.formatHundredths(VoteMath.percentHundredths(votes, total));
+    }
+
+    private static void ensureLoaded() throws SQLException {
+        LOCK.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        LOCK.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            YEARS.clear();
+            SERIES.clear();
+            // Always the primary: a GET may trigger the build, and a lagging replica would be cached until the next invalidate
+            try (Connection conn = DatabaseConnector.getWriteConnection()) {
+                load(conn, """
+                        SELECT e.year, d.district_name, p.party_name, SUM(pv.votes)
+                        FROM party_votes pv
+                        JOIN party p ON pv.party_id = p.party_id
+                        JOIN district_election de ON pv.district_election_id = de.district_election_id
+                        JOIN district d ON de.district_id = d.district_id
+                        JOIN election e ON de.election_id = e.election_id
+                        GROUP BY e.year, d.district_name, p.party_name
+                        """, true);
+                load(conn, """
+                        SELECT e.year, d.district_name, p.party_name, SUM(sa.final_allocation)
+                        FROM seat_allocation sa
+                        JOIN party p ON sa.party_id = p.party_id
+                        JOIN district_election de ON sa.district_election_id = de.district_election_id
+                        JOIN district d ON de.district_id = d.district_id
+                        JOIN election e ON de.election_id = e.election_id
+                        GROUP BY e.year, d.district_name, p.party_name
+                        """, false);
+            }
+            loaded = true;
+            System.out.println("ℹ️ Trend index built for " + YEARS.size() + " years in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    private static void load(Connection conn, String sql, boolean votes) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int year = rs.getInt(1);
+                String district = rs.getString(2);
+                YearData y = YEARS.computeIfAbsent(year, k -> new YearData());
+                DistrictData d = y.districts.computeIfAbsent(district, k -> new DistrictData());
+                long value = rs.getLong(4);
+                add(y, d, rs.getString(3), year, votes ? value : 0, votes ? 0 : Math.toIntExact(value));
+            }
+        }
+    }
+
+    private static void add(YearData y, DistrictData d, String party, int year, long votes, int seats) {
+        long[] v = d.parties.computeIfAbsent(party, k -> new long[2]);
+        v[0] += votes;
+        v[1] += seats;
+        d.totalVotes += votes;
+        d.totalSeats += seats;
+        y.totalVotes += votes;
+        y.totalSeats += seats;
+        addToSeries(party, year, votes, seats);
+    }
+
+    private static void addToSeries(String party, int year, long votes, long seats) {
+        TreeMap<Integer, long[]> series = SERIES.computeIfAbsent(party, k -> new TreeMap<>());
+        long[] v = series.computeIfAbsent(year, k -> new long[2]);
+        v[0] += votes;
+        v[1] += seats;
+    }
+}
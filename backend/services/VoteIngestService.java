@@ -0,0 +1,302 @@
+package backend.services;
+
+import backend.config.AppConfig;
+import backend.db.DatabaseConnector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Bulk loading of party_votes rows from counting centres.
+// Input is read line by line (CSV "district_election_id,party_id,votes" or
+// NDJSON {"district_election_id":1,"party_id":2,"votes":3}), checked against
+// the known district_election / party IDs, and written with multi-row INSERTs,
+// committing every COMMIT_EVERY rows. Rows for a finalized year are rejected;
+// each chunk locks the years it writes (ResultSnapshotService.lockYear) until
+// its commit. If a chunk fails, the Result says how far the input was
+// committed so the client can resend it with resumeAfterLine.
+public class VoteIngestService {
+    private static final int ROWS_PER_STATEMENT = AppConfig.getInt("election.ingest.rows_per_statement", 500);
+    private static final int COMMIT_EVERY = AppConfig.getInt("election.ingest.commit_every", 10_000);
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final long ID_CACHE_TTL_MS = 60_000;
+
+    // IDs that exist in the DB; refreshed when stale or when an unknown ID shows up
+    private static volatile Set<Integer> districtElectionIds = new HashSet<>();
+    private static volatile Set<Integer> partyIds = new HashSet<>();
+    private static volatile long idsLoadedAt;
+
+    public static class Result {
+        public long inserted;               // committed rows
+        public long rejected;
+        public long committedThroughLine;   // every input line up to here is committed or rejected
+        public long elapsedMs;
+        public String error;                // set when a chunk failed and was rolled back
+        public final List<String> errors = new ArrayList<>();
+
+        public String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"status\":\"").append(error != null ? "error" : rejected == 0 ? "success" : "partial")
+              .append("\",");
+            if (error != null) {
+                sb.append("\"message\":\"").append(error.replace("\"", "'")).append("\",");
+            }
+            sb.append("\"inserted\":").append(inserted)
+              .append(",\"committed_through_line\":").append(committedThroughLine)
+              .append(",\"rejected\":").append(rejected)
+              .append(",\"elapsed_ms\":").append(elapsedMs)
+              .append(",\"rows_per_sec\":").append(elapsedMs == 0 ? inserted : inserted * 1000 / elapsedMs)
+              .append(",\"errors\":[");
+            for (int i = 0; i < errors.size(); i++) {
+                if (i > 0) sb.append(",");
+                sb.append("\"").append(errors.get(i).replace("\"", "'")).append("\"");
+            }
+            sb.append("]}");
+            return sb.toString();
+        }
+    }
+
+    public Result ingest(BufferedReader reader, boolean csv) throws IOException, SQLException {
+        return ingest(reader, csv, 0);
+    }
+
+    // Lines up to resumeAfterLine (a committed_through_line from an earlier
+    // failed attempt) are skipped; line numbers stay those of the whole input.
+    public Result ingest(BufferedReader reader, boolean csv, long resumeAfterLine) throws IOException, SQLException {
+        Result result = new Result();
+        long start = System.currentTimeMillis();
+        ensureIdsLoaded(false);
+
+        // district_election_id -> open for writing, for the chunk being written (the locks end with its commit)
+        Map<Integer, Boolean> open = new HashMap<>();
+        int[] batch = new int[ROWS_PER_STATEMENT * 3];
+        int batchRows = 0;
+        long uncommitted = 0;
+
+        long lineNo = 0;
+        result.committedThroughLine = resumeAfterLine;
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement full = conn.prepareStatement(insertSql(ROWS_PER_STATEMENT))) {
+                String line;
+                int[] row = new int[3];
+                while ((line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (lineNo <= resumeAfterLine) {
+                        continue;
+                    }
+                    line = line.trim();
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    String error = csv ? parseCsv(line, row) : parseJson(line, row);
+                    if (error == null) {
+                        error = validate(row);
+                    }
+                    if (error == null && !isOpen(conn, open, row[0])) {
+                        error = "district_election_id " + row[0] + " belongs to a finalized election";
+                    }
+                    if (error != null) {
+                        // A CSV header line is not an error
+                        if (!(csv && lineNo == 1 && !Character.isDigit(line.charAt(0)))) {
+                            reject(result, lineNo, error);
+                        }
+                        continue;
+                    }
+
+                    int base = batchRows * 3;
+                    batch[base] = row[2];       // votes
+                    batch[base + 1] = row[0];   // district_election_id
+                    batch[base + 2] = row[1];   // party_id
+                    if (++batchRows == ROWS_PER_STATEMENT) {
+                        bind(full, batch, batchRows);
+                        full.executeUpdate();
+                        uncommitted += batchRows;
+                        batchRows = 0;
+                        if (uncommitted >= COMMIT_EVERY) {
+                            conn.commit();
+                            result.inserted += uncommitted;
+                            result.committedThroughLine = lineNo;
+                            uncommitted = 0;
+                            open.clear();
+                        }
+                    }
+                }
+                if (batchRows > 0) {
+                    try (PreparedStatement tail = conn.prepareStatement(insertSql(batchRows))) {
+                        bind(tail, batch, batchRows);
+                        tail.executeUpdate();
+                        uncommitted += batchRows;
+                    }
+                }
+                conn.commit();
+                result.inserted += uncommitted;
+                result.committedThroughLine = lineNo;
+            } catch (SQLException | IOException e) {
+                // Only the current chunk is lost; earlier ones stay committed
+                conn.rollback();
+                result.error = e.getMessage();
+            }
+        } finally {
+            // Earlier chunks may be committed even if a later one failed
+            if (result.inserted > 0) {
+                TrendIndex.invalidate();
+            }
+        }
+        result.elapsedMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    // Locks the row's year for this transaction; false when it is finalized
+    private static boolean isOpen(Connection conn, Map<Integer, Boolean> open, int districtElectionId) throws SQLException {
+        Boolean known = open.get(districtElectionId);
+        if (known == null) {
+            try {
+                ResultSnapshotService.requireOpenDistrictElection(conn, districtElectionId);
+                known = true;
+            } catch (IllegalStateException e) {
+                known = false;
+            }
+            open.put(districtElectionId, known);
+        }
+        return known;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sb = new StringBuilder("INSERT INTO party_votes (votes, district_election_id, party_id) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(",");
+            sb.append("(?, ?, ?)");
+        }
+        return sb.toString();
+    }
+
+    private static void bind(PreparedStatement ps, int[] batch, int rows) throws SQLException {
+        for (int i = 0; i < rows * 3; i++) {
+            ps.setInt(i + 1, batch[i]);
+        }
+    }
+
+    private static void reject(Result result, long lineNo, String error) {
+        result.rejected++;
+        if (result.errors.size() < MAX_REPORTED_ERRORS) {
+            result.errors.add("line " + lineNo + ": " + error);
+        }
+    }
+
+    private String validate(int[] row) throws SQLException {
+        if (row[2] < 0) {
+            return "votes cannot be negative";
+        }
+        if (!districtElectionIds.contains(row[0]) || !partyIds.contains(row[1])) {
+            // Maybe created after we loaded the IDs
+            ensureIdsLoaded(true);
+            if (!districtElectionIds.contains(row[0])) {
+                return "unknown district_election_id " + row[0];
+            }
+            if (!partyIds.contains(row[1])) {
+                return "unknown party_id " + row[1];
+            }
+        }
+        return null;
+    }
+
+    private static synchronized void ensureIdsLoaded(boolean onMiss) throws SQLException {
+        long now = System.currentTimeMillis();
+        // On a miss, reload at most once a second so a file full of bad IDs can't hammer the DB
+        long maxAge = onMiss ? 1000 : ID_CACHE_TTL_MS;
+        if (now - idsLoadedAt < maxAge) {
+            return;
+        }
+        Set<Integer> de = new HashSet<>();
+        Set<Integer> parties = new HashSet<>();
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT district_election_id FROM district_election");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) de.add(rs.getInt(1));
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT party_id FROM party");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) parties.add(rs.getInt(1));
+            }
+        }
+        districtElectionIds = de;
+        partyIds = parties;
+        idsLoadedAt = now;
+    }
+
+    // district_election_id,party_id,votes
+    static String parseCsv(String line, int[] row) {
+        String[] parts = line.split(",");
+        if (parts.length != 3) {
+            return "expected 3 columns: district_election_id,party_id,votes";
+        }
+        try {
+            for (int i = 0; i < 3; i++) {
+                row[i] = Integer.parseInt(parts[i].trim());
+            }
+            return null;
+        } catch (NumberFormatException e) {
+            return "not a number: " + e.getMessage();
+        }
+    }
+
+    // {"district_election_id":1,"party_id":2,"votes":3} in any key order
+    static String parseJson(String line, int[] row) {
+        long de = jsonInt(line, "\"district_election_id\"");
+        long party = jsonInt(line, "\"party_id\"");
+        long votes = jsonInt(line, "\"votes\"");
+        if (de == Long.MIN_VALUE || party == Long.MIN_VALUE || votes == Long.MIN_VALUE) {
+            return "missing or invalid district_election_id, party_id or votes";
+        }
+        if (de > Integer.MAX_VALUE || party > Integer.MAX_VALUE || votes > Integer.MAX_VALUE) {
+            return "number out of range";
+        }
+        row[0] = (int) de;
+        row[1] = (int) party;
+        row[2] = (int) votes;
+        return null;
+    }
+
+    // Hand-rolled instead of a regex per line; returns Long.MIN_VALUE when absent
+    private static long jsonInt(String json, String quotedKey) {
+        int i = json.indexOf(quotedKey);
+        if (i < 0) {
+            return Long.MIN_VALUE;
+        }
+        i += quotedKey.length();
+        while (i < json.length() && (json.charAt(i) == ' ' || json.charAt(i) == ':')) {
+            i++;
+        }
+        boolean negative = i < json.length() && json.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int start = i;
+        long value = 0;
+        while (i < json.length() && Character.isDigit(json.charAt(i)) && i - start < 18) {
+            value = value * 10 + (json.charAt(i) - '0');
+            i++;
+        }
+        if (i == start) {
+            return Long.MIN_VALUE;
+        }
+        // Whole numbers only: 1.5, 1e3 or a 19th digit make the value invalid rather than truncated
+        while (i < json.length() && json.charAt(i) == ' ') {
+            i++;
+        }
+        if (i < json.length() && json.charAt(i) != ',' && json.charAt(i) != '}') {
+            return Long.MIN_VALUE;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,603 @@
+package backend.services;
+
+import backend.db.DatabaseConnector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Export / import of everything belonging to one election year.
+//
+// NDJSON: one object per line, {"table":"party_votes","party_votes_id":1,...}
+// CSV:    a "@table,col1,col2" line starts each table, followed by its rows
+//
+// Tables are written parents first (province, district, election, party,
+// district_election, party_votes, seat_allocation), so import can run in one
+// pass. Import matches reference rows by name/year and remaps all IDs, so a
+// year can be moved between databases whose IDs don't line up.
+public class YearTransferService {
+    private static final int BATCH_SIZE = 1000;
+
+    public enum Format { CSV, NDJSON }
+
+    // table -> columns, in export order
+    private static final Map<String, String[]> TABLES = new LinkedHashMap<>();
+    static {
+        TABLES.put("province", new String[] {"province_id", "province_name"});
+        TABLES.put("district", new String[] {"district_id", "province_id", "district_name", "seat_count"});
+        TABLES.put("election", new String[] {"election_id", "year"});
+        TABLES.put("party", new String[] {"party_id", "party_name"});
+        TABLES.put("district_election", new String[] {"district_election_id", "district_id", "election_id",
+                "total_valid_votes_for_seat", "disqualify_votes", "disqualify_party_count", "threshold_5_percent"});
+        TABLES.put("party_votes", new String[] {"party_votes_id", "district_election_id", "party_id", "votes"});
+        TABLES.put("seat_allocation", new String[] {"seat_allocation_id", "district_election_id", "party_id",
+                "bonus_round", "first_round", "second_round", "final_allocation"});
+    }
+
+    // Row filter per table; ? is the year
+    private static final Map<String, String> EXPORT_WHERE = new HashMap<>();
+    static {
+        EXPORT_WHERE.put("election", " WHERE year = ?");
+        EXPORT_WHERE.put("party", " WHERE party_id IN (SELECT pv.party_id FROM party_votes pv"
+                + " JOIN district_election de ON pv.district_election_id = de.district_election_id"
+                + " JOIN election e ON de.election_id = e.election_id WHERE e.year = ?"
+                + " UNION SELECT sa.party_id FROM seat_allocation sa"
+                + " JOIN district_election de ON sa.district_election_id = de.district_election_id"
+                + " JOIN election e ON de.election_id = e.election_id WHERE e.year = ?)");
+        EXPORT_WHERE.put("district_election", " WHERE election_id IN (SELECT election_id FROM election WHERE year = ?)");
+        EXPORT_WHERE.put("party_votes", " WHERE district_election_id IN (SELECT de.district_election_id"
+                + " FROM district_election de JOIN election e ON de.election_id = e.election_id WHERE e.year = ?)");
+        EXPORT_WHERE.put("seat_allocation", " WHERE district_election_id IN (SELECT de.district_election_id"
+                + " FROM district_election de JOIN election e ON de.election_id = e.election_id WHERE e.year = ?)");
+    }
+
+    public static class ImportResult {
+        public final Map<String, Integer> rows = new LinkedHashMap<>();
+        public long elapsedMs;
+
+        public String toJson() {
+            StringBuilder sb = new StringBuilder("{\"status\":\"success\",\"elapsed_ms\":").append(elapsedMs).append(",\"rows\":{");
+            boolean first = true;
+            for (Map.Entry<String, Integer> e : rows.entrySet()) {
+                if (!first) sb.append(",");
+                sb.append("\"").append(e.getKey()).append("\":").append(e.getValue());
+                first = false;
+            }
+            return sb.append("}}").toString();
+        }
+    }
+
+    // ---------------------------------------------------------------- export
+
+    public boolean yearExists(int year) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM election WHERE year = ?")) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Streams all rows of the year to out; returns the number of rows written
+    public long exportYear(int year, Format format, Writer out) throws SQLException, IOException {
+        long total = 0;
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            for (Map.Entry<String, String[]> table : TABLES.entrySet()) {
+                String name = table.getKey();
+                String[] columns = table.getValue();
+                String where = EXPORT_WHERE.getOrDefault(name, "");
+                String sql = "SELECT " + String.join(", ", columns) + " FROM " + name + where
+                        + " ORDER BY " + columns[0];
+
+                if (format == Format.CSV) {
+                    out.write("@" + name + "," + String.join(",", columns) + "\n");
+                }
+                try (PreparedStatement stmt = DatabaseConnector.prepareStreaming(conn, sql)) {
+                    int params = where.length() - where.replace("?", "").length();
+                    for (int p = 1; p <= params; p++) {
+                        stmt.setInt(p, year);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        ResultSetMetaData meta = rs.getMetaData();
+                        while (rs.next()) {
+                            if (format == Format.CSV) {
+                                writeCsvRow(out, rs, meta, columns.length);
+                            } else {
+                                writeJsonRow(out, name, rs, meta, columns);
+                            }
+                            total++;
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+        return total;
+    }
+
+    private static boolean isText(ResultSetMetaData meta, int column) throws SQLException {
+        int type = meta.getColumnType(column);
+        return type == java.sql.Types.VARCHAR || type == java.sql.Types.CHAR
+                || type == java.sql.Types.LONGVARCHAR || type == java.sql.Types.NVARCHAR;
+    }
+
+    private static void writeCsvRow(Writer out, ResultSet rs, ResultSetMetaData meta, int count) throws SQLException, IOException {
+        for (int c = 1; c <= count; c++) {
+            if (c > 1) out.write(',');
+            String value = rs.getString(c);
+            if (value == null) {
+                continue;
+            }
+            if (isText(meta, c) && (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r"))) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write('\n');
+    }
+
+    private static void writeJsonRow(Writer out, String table, ResultSet rs, ResultSetMetaData meta, String[] columns) throws SQLException, IOException {
+        out.write("{\"table\":\"");
+        out.write(table);
+        out.write('"');
+        for (int c = 1; c <= columns.length; c++) {
+            out.write(",\"");
+            out.write(columns[c - 1]);
+            out.write("\":");
+            String value = rs.getString(c);
+            if (value == null) {
+                out.write("null");
+            } else if (isText(meta, c)) {
+                out.write('"');
+                writeJsonString(out, value);
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("}\n");
+    }
+
+    // Escapes quotes, backslashes and every control character, so one row stays on one line
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (ch < 0x20) {
+                        out.write(String.format("\\u%04x", (int) ch));
+                    } else {
+                        out.write(ch);
+                    }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- import
+
+    // Loads one year in a single transaction. If the year already has results,
+    // replace=true deletes them first, otherwise IllegalStateException is thrown.
+    public ImportResult importYear(BufferedReader in, Format format, boolean replace) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+        try (Connection conn = DatabaseConnector.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Importer importer = new Importer(conn, replace, result);
+                String line;
+                String currentTable = null;
+                String[] currentColumns = null;
+                while ((line = format == Format.CSV ? readCsvRecord(in) : in.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Map<String, String> row;
+                    String table;
+                    if (format == Format.CSV) {
+                        if (line.startsWith("@")) {
+                            List<String> header = parseCsvLine(line.substring(1));
+                            currentTable = header.get(0);
+                            currentColumns = header.subList(1, header.size()).toArray(new String[0]);
+                            continue;
+                        }
+                        if (currentTable == null) {
+                            throw new IllegalArgumentException("CSV data before the first @table line");
+                        }
+                        List<String> values = parseCsvLine(line);
+                        row = new HashMap<>();
+                        for (int i = 0; i < currentColumns.length && i < values.size(); i++) {
+                            row.put(currentColumns[i], values.get(i));
+                        }
+                        table = currentTable;
+                    } else {
+                        row = parseJsonLine(line);
+                        table = row.get("table");
+                    }
+                    importer.accept(table, row);
+                }
+                importer.flush();
+                conn.commit();
+                TrendIndex.invalidate();
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        result.elapsedMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    // Keeps the old-id -> new-id maps while rows stream in
+    private static class Importer {
+        private final Connection conn;
+        private final boolean replace;
+        private final ImportResult result;
+        private final Map<String, Map<Integer, Integer>> idMaps = new HashMap<>();
+        private PreparedStatement votesBatch;
+        private PreparedStatement seatsBatch;
+        private int votesPending;
+        private int seatsPending;
+
+        Importer(Connection conn, boolean replace, ImportResult result) {
+            this.conn = conn;
+            this.replace = replace;
+            this.result = result;
+        }
+
+        void accept(String table, Map<String, String> row) throws SQLException {
+            if (table == null || !TABLES.containsKey(table)) {
+                throw new IllegalArgumentException("Unknown table: " + table);
+            }
+            switch (table) {
+                case "province":
+                    remember(table, row.get("province_id"), findOrInsert(
+                            "SELECT province_id FROM province WHERE province_name = ?",
+                            "INSERT INTO province (province_name) VALUES (?)", row.get("province_name")));
+                    break;
+                case "district":
+                    remember(table, row.get("district_id"), findOrInsertDistrict(row));
+                    break;
+                case "election":
+                    remember(table, row.get("election_id"), findOrInsertElection(requiredInt(row, "year")));
+                    break;
+                case "party":
+                    remember(table, row.get("party_id"), findOrInsert(
+                            "SELECT party_id FROM party WHERE party_name = ?",
+                            "INSERT INTO party (party_name) VALUES (?)", row.get("party_name")));
+                    break;
+                case "district_election":
+                    remember(table, row.get("district_election_id"), insertDistrictElection(row));
+                    break;
+                case "party_votes":
+                    if (votesBatch == null) {
+                        votesBatch = conn.prepareStatement(
+                                "INSERT INTO party_votes (votes, district_election_id, party_id) VALUES (?, ?, ?)");
+                    }
+                    votesBatch.setInt(1, requiredInt(row, "votes"));
+                    setNullableInt(votesBatch, 2, mapped("district_election", row.get("district_election_id")));
+                    setNullableInt(votesBatch, 3, mapped("party", row.get("party_id")));
+                    votesBatch.addBatch();
+                    count(table);
+                    if (++votesPending == BATCH_SIZE) {
+                        votesBatch.executeBatch();
+                        votesPending = 0;
+                    }
+                    break;
+                case "seat_allocation":
+                    if (seatsBatch == null) {
+                        seatsBatch = conn.prepareStatement(
+                                "INSERT INTO seat_allocation (bonus_round, first_round, second_round, final_allocation, "
+                                + "district_election_id, party_id) VALUES (?, ?, ?, ?, ?, ?)");
+                    }
+                    setNullableInt(seatsBatch, 1, intOrNull(row.get("bonus_round")));
+                    setNullableInt(seatsBatch, 2, intOrNull(row.get("first_round")));
+                    setNullableInt(seatsBatch, 3, intOrNull(row.get("second_round")));
+                    seatsBatch.setInt(4, requiredInt(row, "final_allocation"));
+                    setNullableInt(seatsBatch, 5, mapped("district_election", row.get("district_election_id")));
+                    setNullableInt(seatsBatch, 6, mapped("party", row.get("party_id")));
+                    seatsBatch.addBatch();
+                    count(table);
+                    if (++seatsPending == BATCH_SIZE) {
+                        seatsBatch.executeBatch();
+                        seatsPending = 0;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void flush() throws SQLException {
+            if (votesBatch != null) {
+                if (votesPending > 0) votesBatch.executeBatch();
+                votesBatch.close();
+            }
+            if (seatsBatch != null) {
+                if (seatsPending > 0) seatsBatch.executeBatch();
+                seatsBatch.close();
+            }
+        }
+
+        private void remember(String table, String oldId, int newId) {
+            Integer id = intOrNull(oldId);
+            if (id != null) { // a row without an id can't be referenced
+                idMaps.computeIfAbsent(table, k -> new HashMap<>()).put(id, newId);
+            }
+            count(table);
+        }
+
+        private void count(String table) {
+            result.rows.merge(table, 1, Integer::sum);
+        }
+
+        // null for an empty (CSV) or null (NDJSON) reference, stored as SQL NULL
+        private Integer mapped(String table, String oldId) {
+            Integer old = intOrNull(oldId);
+            if (old == null) {
+                return null;
+            }
+            Integer id = idMaps.getOrDefault(table, Map.of()).get(old);
+            if (id == null) {
+                throw new IllegalArgumentException(table + " id " + oldId + " is referenced before it was imported");
+            }
+            return id;
+        }
+
+        private int findOrInsert(String select, String insert, String name) throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement(select)) {
+                ps.setString(1, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, name);
+                ps.executeUpdate();
+                return generatedKey(ps);
+            }
+        }
+
+        private int findOrInsertDistrict(Map<String, String> row) throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT district_id FROM district WHERE district_name = ?")) {
+                ps.setString(1, row.get("district_name"));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO district (province_id, district_name, seat_count) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                setNullableInt(ps, 1, mapped("province", row.get("province_id")));
+                ps.setString(2, row.get("district_name"));
+                ps.setInt(3, requiredInt(row, "seat_count"));
+                ps.executeUpdate();
+                return generatedKey(ps);
+            }
+        }
+
+        private int findOrInsertElection(int year) throws SQLException {
+            if (ResultSnapshotService.lockYear(conn, year)) {
+                throw new IllegalStateException("Year " + year + " is finalized and can't be imported over.");
+            }
+            int electionId = -1;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT election_id FROM election WHERE year = ?")) {
+                ps.setInt(1, year);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        electionId = rs.getInt(1);
+                    }
+                }
+            }
+            if (electionId == -1) {
+                try (PreparedStatement ps = conn.prepareStatement("INSERT INTO election (year) VALUES (?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, year);
+                    ps.executeUpdate();
+                    return generatedKey(ps);
+                }
+            }
+
+            int existing = 0;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM district_election WHERE election_id = ?")) {
+                ps.setInt(1, electionId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) existing = rs.getInt(1);
+                }
+            }
+            if (existing > 0) {
+                if (!replace) {
+                    throw new IllegalStateException("Year " + year + " already has results; import with replace=true to overwrite.");
+                }
+                String sub = "(SELECT district_election_id FROM district_election WHERE election_id = ?)";
+                for (String sql : new String[] {
+                        "DELETE FROM result_submission WHERE district_election_id IN " + sub,
+                        "DELETE FROM party_votes WHERE district_election_id IN " + sub,
+                        "DELETE FROM seat_allocation WHERE district_election_id IN " + sub,
+                        "DELETE FROM district_election WHERE election_id = ?"}) {
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        ps.setInt(1, electionId);
+                        ps.executeUpdate();
+                    }
+                }
+            }
+            return electionId;
+        }
+
+        private int insertDistrictElection(Map<String, String> row) throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO district_election (total_valid_votes_for_seat, disqualify_votes, disqualify_party_count, "
+                    + "threshold_5_percent, district_id, election_id) VALUES (?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, requiredInt(row, "total_valid_votes_for_seat"));
+                ps.setInt(2, requiredInt(row, "disqualify_votes"));
+                ps.setInt(3, requiredInt(row, "disqualify_party_count"));
+                ps.setInt(4, requiredInt(row, "threshold_5_percent"));
+                setNullableInt(ps, 5, mapped("district", row.get("district_id")));
+                setNullableInt(ps, 6, mapped("election", row.get("election_id")));
+                ps.executeUpdate();
+                return generatedKey(ps);
+            }
+        }
+
+        private static int generatedKey(PreparedStatement ps) throws SQLException {
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+            throw new SQLException("Insert did not return a generated key");
+        }
+
+        // Empty (CSV) and null (NDJSON) both mean SQL NULL
+        private static Integer intOrNull(String value) {
+            return value == null || value.isEmpty() ? null : Integer.valueOf(value.trim());
+        }
+
+        private static int requiredInt(Map<String, String> row, String column) {
+            Integer value = intOrNull(row.get(column));
+            if (value == null) {
+                throw new IllegalArgumentException(column + " is required");
+            }
+            return value;
+        }
+
+        private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+            if (value == null) {
+                ps.setNull(index, java.sql.Types.INTEGER);
+            } else {
+                ps.setInt(index, value);
+            }
+        }
+    }
+
+    // One CSV record: normally a line, but a quoted value may contain line breaks.
+    // Returns null at the end of input.
+    static String readCsvRecord(BufferedReader in) throws IOException {
+        StringBuilder record = new StringBuilder();
+        boolean quoted = false;
+        int ch;
+        while ((ch = in.read()) != -1) {
+            if (ch == '"') {
+                quoted = !quoted; // a "" escape toggles twice
+            } else if (!quoted && ch == '\n') {
+                break;
+            }
+            record.append((char) ch);
+        }
+        if (ch == -1 && record.length() == 0) {
+            return null;
+        }
+        int end = record.length();
+        if (end > 0 && record.charAt(end - 1) == '\r') {
+            record.setLength(end - 1);
+        }
+        return record.toString();
+    }
+
+    // Splits one CSV line, handling "quoted, values" and "" escapes
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // Flat JSON object with string / number / null values -> map of strings
+    static Map<String, String> parseJsonLine(String line) {
+        Map<String, String> map = new HashMap<>();
+        int i = line.indexOf('{') + 1;
+        int n = line.length();
+        while (i < n) {
+            int keyStart = line.indexOf('"', i);
+            if (keyStart < 0) break;
+            int keyEnd = line.indexOf('"', keyStart + 1);
+            String key = line.substring(keyStart + 1, keyEnd);
+            i = line.indexOf(':', keyEnd) + 1;
+            while (i < n && line.charAt(i) == ' ') i++;
+            String value;
+            if (i < n && line.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (i < n && line.charAt(i) != '"') {
+                    char ch = line.charAt(i);
+                    if (ch == '\\' && i + 1 < n) {
+                        char next = line.charAt(++i);
+                        switch (next) {
+                            case 'n': sb.append('\n'); break;
+                            case 'r': sb.append('\r'); break;
+                            case 't': sb.append('\t'); break;
+                            case 'b': sb.append('\b'); break;
+                            case 'f': sb.append('\f'); break;
+                            case 'u':
+                                sb.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                                i += 4;
+                                break;
+                            default: sb.append(next);
+                        }
+                    } else {
+                        sb.append(ch);
+                    }
+                    i++;
+                }
+                value = sb.toString();
+                i++;
+            } else {
+                int end = i;
+                while (end < n && line.charAt(end) != ',' && line.charAt(end) != '}') end++;
+                value = line.substring(i, end).trim();
+                if (value.equals("null")) value = null;
+                i = end;
+            }
+            map.put(key, value);
+            i = line.indexOf(',', i);
+            if (i < 0) break;
+            i++;
+        }
+        return map;
+    }
+}
@@ -0,0 +1,123 @@
+package backend.simulation;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Direct (off-heap) buffers with an explicit lifetime: everything allocated from
+// an arena is freed together when it is closed, instead of whenever the GC gets
+// round to the buffer objects. Big simulation matrices therefore never sit in the
+// Java heap, and closing the arena gives the memory back straight away.
+//
+// Allocations are capped by a byte budget so one run can't take all the
+// direct memory of the API server. Not thread safe; one arena per run.
+public final class OffHeapArena implements AutoCloseable {
+    private static final AtomicLong LIVE_BYTES = new AtomicLong();
+    private static final AtomicLong PEAK_BYTES = new AtomicLong();
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // No explicit free: buffers are released when they are garbage collected
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final long budgetBytes;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private long allocatedBytes;
+    private boolean closed;
+
+    public OffHeapArena(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public IntBuffer allocateInts(long count) {
+        return allocate(count, Integer.BYTES).asIntBuffer();
+    }
+
+    public FloatBuffer allocateFloats(long count) {
+        return allocate(count, Float.BYTES).asFloatBuffer();
+    }
+
+    private ByteBuffer allocate(long count, int width) {
+        checkOpen();
+        long bytes = count * width;
+        if (count < 0 || bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Buffer of " + count + " values is too large for one segment.");
+        }
+        if (allocatedBytes + bytes > budgetBytes) {
+            throw new IllegalArgumentException("Simulation needs more than the " + (budgetBytes >> 20)
+                    + " MB off-heap budget.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        buffers.add(buffer);
+        allocatedBytes += bytes;
+        PEAK_BYTES.accumulateAndGet(LIVE_BYTES.addAndGet(bytes), Math::max);
+        return buffer;
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    // Views handed out must not be touched after this; ScenarioMatrix checks isOpen()
+    public void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Off-heap arena already closed.");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ByteBuffer buffer : buffers) {
+            free(buffer);
+        }
+        buffers.clear();
+        LIVE_BYTES.addAndGet(-allocatedBytes);
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // Left to the GC
+        }
+    }
+
+    // Off-heap bytes held by all open arenas, and the most there has been at once
+    public static long liveBytes() {
+        return LIVE_BYTES.get();
+    }
+
+    public static long peakBytes() {
+        return PEAK_BYTES.get();
+    }
+}
@@ -0,0 +1,88 @@
+package backend.simulation;
+
+import java.nio.IntBuffer;
+import java.util.List;
+
+// Votes and resulting seats for scenario x district x party, held off-heap in an
+// OffHeapArena. Each district has its own pair of int blocks laid out party-major
+// (votes[party * scenarios + scenario]), the same layout BatchKernel works on, so
+// a chunk of scenarios for one party is a single bulk copy.
+//
+// Every access checks the arena is still open: the memory is gone after close().
+public class ScenarioMatrix {
+
+    public static class District {
+        public final String name;
+        public final int seats;
+        public final String[] parties;
+        // index of each party in the run's national party list
+        public final int[] nationalIndex;
+        public final int[] baseVotes;
+
+        public District(String name, int seats, String[] parties, int[] nationalIndex, int[] baseVotes) {
+            this.name = name;
+            this.seats = seats;
+            this.parties = parties;
+            this.nationalIndex = nationalIndex;
+            this.baseVotes = baseVotes;
+        }
+    }
+
+    private final OffHeapArena arena;
+    private final int scenarios;
+    private final List<District> districts;
+    private final IntBuffer[] votes;
+    private final IntBuffer[] seats;
+
+    public ScenarioMatrix(OffHeapArena arena, int scenarios, List<District> districts) {
+        this.arena = arena;
+        this.scenarios = scenarios;
+        this.districts = districts;
+        this.votes = new IntBuffer[districts.size()];
+        this.seats = new IntBuffer[districts.size()];
+        for (int d = 0; d < districts.size(); d++) {
+            long cells = (long) districts.get(d).parties.length * scenarios;
+            votes[d] = arena.allocateInts(cells);
+            seats[d] = arena.allocateInts(cells);
+        }
+    }
+
+    public int scenarios() {
+        return scenarios;
+    }
+
+    public List<District> districts() {
+        return districts;
+    }
+
+    // Copies `length` scenarios of one party, starting at `from`, to or from dst[offset..]
+    public void readVotes(int district, int party, int from, int[] dst, int offset, int length) {
+        arena.checkOpen();
+        votes[district].get(party * scenarios + from, dst, offset, length);
+    }
+
+    public void writeVotes(int district, int party, int from, int[] src, int offset, int length) {
+        arena.checkOpen();
+        votes[district].put(party * scenarios + from, src, offset, length);
+    }
+
+    public void readSeats(int district, int party, int from, int[] dst, int offset, int length) {
+        arena.checkOpen();
+        seats[district].get(party * scenarios + from, dst, offset, length);
+    }
+
+    public void writeSeats(int district, int party, int from, int[] src, int offset, int length) {
+        arena.checkOpen();
+        seats[district].put(party * scenarios + from, src, offset, length);
+    }
+
+    public int votes(int district, int party, int scenario) {
+        arena.checkOpen();
+        return votes[district].get(party * scenarios + scenario);
+    }
+
+    public int seats(int district, int party, int scenario) {
+        arena.checkOpen();
+        return seats[district].get(party * scenarios + scenario);
+    }
+}
@@ -0,0 +1,328 @@
+package backend.simulation;
+
+import backend.apportionment.BatchKernel;
+import backend.apportionment.BatchKernels;
+import backend.apportionment.VoteMath;
+import backend.config.AppConfig;
+import backend.db.DatabaseConnector;
+import backend.db.JdbcExecutor;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+// Monte Carlo reruns of the seat rules for one year: every scenario perturbs the
+// stored district votes (a national swing per party shared by all districts plus
+// local noise), then the seats are worked out with the same rules as
+// SeatCalculator, a chunk of scenarios at a time through the BatchKernel.
+//
+// The scenario matrices (votes, seats, national seat totals, swings) live in an
+// OffHeapArena that is freed when the run ends, so a large batch doesn't grow the
+// API server's heap or cause GC pauses for normal requests. Only chunk-sized
+// scratch arrays are on the heap.
+public class ScenarioSimulator {
+    private static final int MAX_SCENARIOS = AppConfig.getInt("election.sim.max_scenarios", 1_000_000);
+    private static final long BUDGET_BYTES = AppConfig.getLong("election.sim.max_bytes", 512L << 20);
+    private static final int CHUNK = AppConfig.getInt("election.sim.chunk", 4096);
+    private static final Semaphore RUNNING = new Semaphore(AppConfig.getInt("election.sim.concurrent", 1));
+
+    public static long budgetBytes() {
+        return BUDGET_BYTES;
+    }
+
+    // JSON summary of the run, or null when the year has no results
+    public static String run(int year, int scenarios, double noise, long seed) throws SQLException {
+        if (scenarios < 1 || scenarios > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("scenarios must be between 1 and " + MAX_SCENARIOS);
+        }
+        if (!(noise >= 0 && noise <= 1)) {
+            throw new IllegalArgumentException("noise must be between 0 and 1");
+        }
+        List<String> nationalParties = new ArrayList<>();
+        List<ScenarioMatrix.District> districts = loadOnJdbcPool(year, nationalParties);
+        if (districts.isEmpty()) {
+            return null;
+        }
+        if (!RUNNING.tryAcquire()) {
+            throw new IllegalStateException("Another simulation is running, try again later.");
+        }
+        long start = System.currentTimeMillis();
+        try (OffHeapArena arena = new OffHeapArena(BUDGET_BYTES)) {
+            ScenarioMatrix matrix = new ScenarioMatrix(arena, scenarios, districts);
+            int parties = nationalParties.size();
+            FloatBuffer swing = arena.allocateFloats((long) parties * scenarios);
+            IntBuffer nationalSeats = arena.allocateInts((long) parties * scenarios);
+
+            Random random = new Random(seed);
+            for (int i = 0; i < parties * scenarios; i++) {
+                swing.put(i, (float) random.nextGaussian());
+            }
+            BatchKernel kernel = BatchKernels.get();
+            for (int d = 0; d < districts.size(); d++) {
+                runDistrict(matrix, d, kernel, swing, nationalSeats, noise, new Random(seed * 31 + d + 1));
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            return summary(year, matrix, nationalParties, nationalSeats, noise, seed, kernel.name(),
+                    arena.allocatedBytes(), elapsed);
+        } finally {
+            RUNNING.release();
+        }
+    }
+
+    private static void runDistrict(ScenarioMatrix matrix, int d, BatchKernel kernel, FloatBuffer swing,
+                                    IntBuffer nationalSeats, double noise, Random random) {
+        ScenarioMatrix.District district = matrix.districts().get(d);
+        int scenarios = matrix.scenarios();
+        int n = district.parties.length;
+        // Keeps a scenario's total within an int, like a real district total
+        long cap = Integer.MAX_VALUE / Math.max(1, n);
+        Chunk c = null;
+        for (int from = 0; from < scenarios; from += CHUNK) {
+            int length = Math.min(CHUNK, scenarios - from);
+            if (c == null || c.length != length) {
+                c = new Chunk(n, length);
+            }
+            Arrays.fill(c.totals, 0);
+            Arrays.fill(c.seats, district.seats);
+            for (int p = 0; p < n; p++) {
+                int national = district.nationalIndex[p] * scenarios + from;
+                for (int k = 0; k < length; k++) {
+                    double factor = (1 + noise * swing.get(national + k)) * (1 + noise / 2 * random.nextGaussian());
+                    int v = (int) Math.min(cap, Math.max(0, Math.round(district.baseVotes[p] * factor)));
+                    c.votes[p * length + k] = v;
+                    c.totals[k] += v;
+                }
+                matrix.writeVotes(d, p, from, c.votes, p * length, length);
+            }
+
+            kernel.firstRound(c.votes, n, c.totals, c.seats, 5, c.thresholds, c.votesPerSeat, c.quota, c.remainder);
+            for (int k = 0; k < length; k++) {
+                finishScenario(c, n, length, k, district.seats);
+            }
+
+            for (int p = 0; p < n; p++) {
+                matrix.writeSeats(d, p, from, c.won, p * length, length);
+                int national = district.nationalIndex[p] * scenarios + from;
+                for (int k = 0; k < length; k++) {
+                    nationalSeats.put(national + k, nationalSeats.get(national + k) + c.won[p * length + k]);
+                }
+            }
+        }
+    }
+
+    // Bonus seat and second round for scenario k of a chunk, same rules as SeatCalculator
+    private static void finishScenario(Chunk c, int n, int length, int k, int seatCount) {
+        int bonus = 0;
+        int allocated = 0;
+        for (int p = 0; p < n; p++) {
+            int i = p * length + k;
+            if (c.votes[i] > c.votes[bonus * length + k]) {
+                bonus = p;
+            }
+            c.won[i] = c.quota[i];
+            allocated += c.quota[i];
+            c.picked[p] = false;
+        }
+        if (n > 0 && seatCount > 0) {
+            c.won[bonus * length + k]++;
+        }
+        // One seat each to the largest remainders of qualified parties, ties to the party listed first
+        for (int left = seatCount - allocated - 1; left > 0; left--) {
+            int best = -1;
+            for (int p = 0; p < n; p++) {
+                int r = c.remainder[p * length + k];
+                if (r >= 0 && !c.picked[p] && (best < 0 || r > c.remainder[best * length + k])) {
+                    best = p;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            c.picked[best] = true;
+            c.won[best * length + k]++;
+        }
+    }
+
+    // Heap scratch for one chunk of scenarios of one district
+    private static class Chunk {
+        final int length;
+        final int[] votes;
+        final int[] quota;
+        final int[] remainder;
+        final int[] won;
+        final int[] totals;
+        final int[] seats;
+        final int[] thresholds;
+        final int[] votesPerSeat;
+        final boolean[] picked;
+
+        Chunk(int parties, int length) {
+            this.length = length;
+            votes = new int[parties * length];
+            quota = new int[parties * length];
+            remainder = new int[parties * length];
+            won = new int[parties * length];
+            totals = new int[length];
+            seats = new int[length];
+            thresholds = new int[length];
+            votesPerSeat = new int[length];
+            picked = new boolean[parties];
+        }
+    }
+
+    private static String summary(int year, ScenarioMatrix matrix, List<String> nationalParties, IntBuffer nationalSeats,
+                                  double noise, long seed, String kernel, long bytes, long elapsed) {
+        int scenarios = matrix.scenarios();
+        int totalSeats = 0;
+        for (ScenarioMatrix.District d : matrix.districts()) {
+            totalSeats += d.seats;
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\"year\":").append(year)
+            .append(",\"scenarios\":").append(scenarios)
+            .append(",\"noise\":").append(noise)
+            .append(",\"seed\":").append(seed)
+            .append(",\"kernel\":\"").append(kernel)
+            .append("\",\"off_heap_bytes\":").append(bytes)
+            .append(",\"elapsed_ms\":").append(elapsed)
+            .append(",\"total_seats\":").append(totalSeats)
+            .append(",\"national\":[");
+        int[] histogram = new int[totalSeats + 1];
+        for (int p = 0; p < nationalParties.size(); p++) {
+            Arrays.fill(histogram, 0);
+            long sum = 0;
+            for (int s = 0; s < scenarios; s++) {
+                int seats = nationalSeats.get(p * scenarios + s);
+                histogram[Math.min(seats, totalSeats)]++;
+                sum += seats;
+            }
+            int majority = 0;
+            for (int seats = totalSeats / 2 + 1; seats <= totalSeats; seats++) {
+                majority += histogram[seats];
+            }
+            if (p > 0) json.append(",");
+            json.append("{\"party\":\"").append(nationalParties.get(p).replace("\"", "\\\""))
+                .append("\",\"mean_seats\":").append(VoteMath.formatHundredths(VoteMath.percentHundredths(sum, 100L * scenarios)))
+                .append(",\"min\":").append(percentile(histogram, scenarios, 0))
+                .append(",\"p5\":").append(percentile(histogram, scenarios, 5))
+                .append(",\"median\":").append(percentile(histogram, scenarios, 50))
+                .append(",\"p95\":").append(percentile(histogram, scenarios, 95))
+                .append(",\"max\":").append(percentile(histogram, scenarios, 100))
+                .append(",\"majority_probability\":").append(VoteMath.formatHundredths(VoteMath.percentHundredths(majority, scenarios)))
+                .append("}");
+        }
+        json.append("],\"districts\":[");
+        int[] seats = new int[Math.min(CHUNK, scenarios)];
+        for (int d = 0; d < matrix.districts().size(); d++) {
+            ScenarioMatrix.District district = matrix.districts().get(d);
+            if (d > 0) json.append(",");
+            json.append("{\"district\":\"").append(district.name.replace("\"", "\\\""))
+                .append("\",\"seats\":").append(district.seats)
+                .append(",\"mean_seats\":{");
+            for (int p = 0; p < district.parties.length; p++) {
+                long sum = 0;
+                for (int from = 0; from < scenarios; from += seats.length) {
+                    int length = Math.min(seats.length, scenarios - from);
+                    matrix.readSeats(d, p, from, seats, 0, length);
+                    for (int k = 0; k < length; k++) {
+                        sum += seats[k];
+                    }
+                }
+                if (p > 0) json.append(",");
+                json.append("\"").append(district.parties[p].replace("\"", "\\\"")).append("\":")
+                    .append(VoteMath.formatHundredths(VoteMath.percentHundredths(sum, 100L * scenarios)));
+            }
+            json.append("}}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    // Smallest seat count with at least pct% of the scenarios at or below it (nearest rank)
+    private static int percentile(int[] histogram, int scenarios, int pct) {
+        long rank = Math.max(1, (pct * (long) scenarios + 99) / 100);
+        long seen = 0;
+        for (int seats = 0; seats < histogram.length; seats++) {
+            seen += histogram[seats];
+            if (seen >= rank) {
+                return seats;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    // Only the query runs on the JDBC pool, so it counts against its cap; the
+    // simulation itself stays on the calling thread. A full JDBC queue surfaces
+    // as RejectedExecutionException.
+    private static List<ScenarioMatrix.District> loadOnJdbcPool(int year, List<String> nationalParties) throws SQLException {
+        try {
+            return JdbcExecutor.supply(() -> loadBase(year, nationalParties)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Stored votes per district for the year, parties in submission order
+    private static List<ScenarioMatrix.District> loadBase(int year, List<String> nationalParties) throws SQLException {
+        Map<String, Integer> partyIndex = new LinkedHashMap<>();
+        Map<String, List<Object[]>> rowsByDistrict = new LinkedHashMap<>();
+        Map<String, Integer> seatsByDistrict = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement ps = conn.prepareStatement("""
+                     SELECT d.district_name, d.seat_count, p.party_name, SUM(pv.votes)
+                     FROM party_votes pv
+                     JOIN party p ON pv.party_id = p.party_id
+                     JOIN district_election de ON pv.district_election_id = de.district_election_id
+                     JOIN district d ON de.district_id = d.district_id
+                     JOIN election e ON de.election_id = e.election_id
+                     WHERE e.year = ?
+                     GROUP BY d.district_name, d.seat_count, p.party_name
+                     ORDER BY d.district_name, MIN(pv.party_votes_id)
+                     """)) {
+            ps.setInt(1, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String district = rs.getString(1);
+                    String party = rs.getString(3);
+                    seatsByDistrict.put(district, rs.getInt(2));
+                    partyIndex.computeIfAbsent(party, k -> partyIndex.size());
+                    rowsByDistrict.computeIfAbsent(district, k -> new ArrayList<>())
+                            .add(new Object[]{party, Math.toIntExact(rs.getLong(4))});
+                }
+            }
+        }
+        nationalParties.addAll(partyIndex.keySet());
+
+        List<ScenarioMatrix.District> districts = new ArrayList<>();
+        for (Map.Entry<String, List<Object[]>> e : rowsByDistrict.entrySet()) {
+            List<Object[]> rows = e.getValue();
+            String[] parties = new String[rows.size()];
+            int[] index = new int[rows.size()];
+            int[] votes = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                parties[i] = (String) rows.get(i)[0];
+                index[i] = partyIndex.get(parties[i]);
+                votes[i] = (Integer) rows.get(i)[1];
+            }
+            districts.add(new ScenarioMatrix.District(e.getKey(), seatsByDistrict.get(e.getKey()), parties, index, votes));
+        }
+        return districts;
+    }
+}
@@ -0,0 +1,64 @@
+package backend.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One timed step of a traced request. Opened with Tracer.span(name) in a
+// try-with-resources block; closing it records it in its trace. When the
+// request isn't sampled Tracer hands out NOOP, which records nothing.
+public final class Span implements AutoCloseable {
+    public static final Span NOOP = new Span(null, 0, 0, "noop", 0, null);
+
+    final Trace trace;
+    final long id;
+    final long parentId;
+    final String name;
+    final long start;
+    long end;
+    private final Span previous;
+    private List<String> attributes;
+
+    Span(Trace trace, long id, long parentId, String name, long start, Span previous) {
+        this.trace = trace;
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.start = start;
+        this.previous = previous;
+    }
+
+    public String traceId() {
+        return trace == null ? null : trace.traceId;
+    }
+
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    public Span attr(String key, Object value) {
+        if (trace != null) {
+            synchronized (this) {
+                if (attributes == null) {
+                    attributes = new ArrayList<>(4);
+                }
+                attributes.add(key);
+                attributes.add(String.valueOf(value));
+            }
+        }
+        return this;
+    }
+
+    synchronized List<String> attributes() {
+        return attributes == null ? List.of() : new ArrayList<>(attributes);
+    }
+
+    @Override
+    public void close() {
+        if (trace == null) {
+            return;
+        }
+        end = System.nanoTime();
+        Tracer.closed(this, previous);
+        trace.add(this);
+    }
+}
@@ -0,0 +1,37 @@
+package backend.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// All spans of one sampled request
+final class Trace {
+    final String traceId;
+    final long startNanos = System.nanoTime();
+    final long startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+    private final AtomicLong nextSpanId = new AtomicLong(1);
+    private final List<Span> spans = new ArrayList<>();
+    Span root;
+
+    Trace() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        traceId = String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    long nextSpanId() {
+        return nextSpanId.getAndIncrement();
+    }
+
+    synchronized void add(Span span) {
+        spans.add(span);
+    }
+
+    synchronized List<Span> spans() {
+        return new ArrayList<>(spans);
+    }
+
+    long epochNanos(long nanoTime) {
+        return startEpochNanos + (nanoTime - startNanos);
+    }
+}
@@ -0,0 +1,164 @@
+package backend.tracing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// JDBC wrappers for traced requests only (untraced connections are never
+// wrapped). Every execute* call becomes a db.execute span with its SQL; time
+// spent in ResultSet.next() is summed into one db.rows span per statement, so
+// a 10 000-row result doesn't produce 10 000 spans.
+final class TracedJdbc {
+    private static final int MAX_SQL = 300;
+
+    private TracedJdbc() {
+    }
+
+    static Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String shorten(String sql) {
+        String flat = sql.replaceAll("\\s+", " ").trim();
+        return flat.length() <= MAX_SQL ? flat : flat.substring(0, MAX_SQL) + "...";
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("unwrap") && args != null && args[0] == Connection.class) {
+                return conn;
+            }
+            Object result = TracedJdbc.invoke(conn, method, args);
+            if (result instanceof Statement) {
+                // prepareStatement(sql, ...) knows its SQL up front, createStatement() gets it per execute
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> type = method.getReturnType().isInterface() ? method.getReturnType() : Statement.class;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private RowsTimer rows;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                Object result;
+                try (Span span = Tracer.span("db.execute")) {
+                    if (text != null) {
+                        span.attr("sql", shorten(text));
+                    }
+                    result = TracedJdbc.invoke(statement, method, args);
+                    if (result instanceof Integer || result instanceof Long) {
+                        span.attr("updated", result);
+                    }
+                }
+                return result instanceof ResultSet ? rows((ResultSet) result) : result;
+            }
+            if (name.equals("getResultSet")) {
+                Object result = TracedJdbc.invoke(statement, method, args);
+                return result instanceof ResultSet ? rows((ResultSet) result) : result;
+            }
+            if (name.equals("close") && rows != null) {
+                rows.flush();
+            }
+            return TracedJdbc.invoke(statement, method, args);
+        }
+
+        private ResultSet rows(ResultSet rs) {
+            if (rows != null) {
+                rows.flush();
+            }
+            rows = new RowsTimer(Tracer.capture());
+            return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new ResultSetHandler(rs, rows));
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet rs;
+        private final RowsTimer timer;
+
+        ResultSetHandler(ResultSet rs, RowsTimer timer) {
+            this.rs = rs;
+            this.timer = timer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("next")) {
+                long start = System.nanoTime();
+                Object result = TracedJdbc.invoke(rs, method, args);
+                timer.add(start, System.nanoTime(), Boolean.TRUE.equals(result));
+                return result;
+            }
+            if (method.getName().equals("close")) {
+                timer.flush();
+            }
+            return TracedJdbc.invoke(rs, method, args);
+        }
+    }
+
+    // Time spent fetching rows, recorded as one span from the first next() on
+    private static final class RowsTimer {
+        private final Span parent;
+        private long first = -1;
+        private long spent;
+        private long count;
+        private boolean flushed;
+
+        RowsTimer(Span parent) {
+            this.parent = parent;
+        }
+
+        void add(long start, long end, boolean row) {
+            if (first < 0) {
+                first = start;
+            }
+            spent += end - start;
+            if (row) {
+                count++;
+            }
+        }
+
+        void flush() {
+            if (flushed || first < 0) {
+                return;
+            }
+            flushed = true;
+            Tracer.record(parent, "db.rows", first, first + spent, "rows", count);
+        }
+    }
+}
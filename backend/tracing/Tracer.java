@@ -0,0 +1,254 @@
+package backend.tracing;
+
+import backend.config.AppConfig;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-request tracing: where the time of a response goes (waiting for a JDBC
+// thread, opening the connection, running the statement, reading rows,
+// building the body, compressing, writing to the socket).
+//
+// Only a sample of requests is traced, election.trace.sample_rate (default
+// 0.01), plus any request sent with "X-Trace: 1". For the others every span
+// call is one ThreadLocal lookup that returns Span.NOOP, and connections are
+// not wrapped, which keeps the cost well under 1%. Finished traces go into a
+// ring buffer of election.trace.buffer entries (default 1000), exported by
+// GET /server/traces as JSON or, with ?format=otlp, as OTLP/JSON that
+// OpenTelemetry tools can load.
+//
+// The current span is per thread; JdbcExecutor and the async completions
+// carry it over with capture()/restore().
+public final class Tracer {
+    private static final double SAMPLE_RATE = Double.parseDouble(AppConfig.get("election.trace.sample_rate", "0.01"));
+    private static final int BUFFER = Math.max(1, AppConfig.getInt("election.trace.buffer", 1000));
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static final Trace[] ring = new Trace[BUFFER];
+    private static final AtomicLong written = new AtomicLong();
+    private static final AtomicLong requests = new AtomicLong();
+
+    private Tracer() {
+    }
+
+    // Root span of a request, or null when this one isn't sampled
+    public static Span startRequest(String name, boolean force) {
+        requests.incrementAndGet();
+        if (!force && (SAMPLE_RATE <= 0 || ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE)) {
+            return null;
+        }
+        Trace trace = new Trace();
+        Span root = new Span(trace, trace.nextSpanId(), 0, name, trace.startNanos, null);
+        trace.root = root;
+        CURRENT.set(root);
+        return root;
+    }
+
+    // Ends the request and keeps its trace
+    public static void finish(Span root) {
+        root.end = System.nanoTime();
+        root.trace.add(root);
+        int slot = (int) (written.getAndIncrement() % BUFFER);
+        synchronized (ring) {
+            ring[slot] = root.trace;
+        }
+    }
+
+    public static Span span(String name) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        Span span = new Span(parent.trace, parent.trace.nextSpanId(), parent.id, name, System.nanoTime(), parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    // A span timed by the caller (e.g. queue wait measured on another thread)
+    public static void record(Span parent, String name, long start, long end, Object... attributes) {
+        if (parent == null || !parent.isRecording()) {
+            return;
+        }
+        Span span = new Span(parent.trace, parent.trace.nextSpanId(), parent.id, name, start, null);
+        span.end = end;
+        for (int i = 0; i + 1 < attributes.length; i += 2) {
+            span.attr(String.valueOf(attributes[i]), attributes[i + 1]);
+        }
+        parent.trace.add(span);
+    }
+
+    public static boolean isTracing() {
+        return CURRENT.get() != null;
+    }
+
+    // For handing the request's context to another thread
+    public static Span capture() {
+        return CURRENT.get();
+    }
+
+    // Makes span current on this thread; returns what was current before
+    public static Span restore(Span span) {
+        Span previous = CURRENT.get();
+        if (span == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(span);
+        }
+        return previous;
+    }
+
+    static void closed(Span span, Span previous) {
+        if (CURRENT.get() == span) {
+            restore(previous);
+        }
+    }
+
+    // Statement and row timing for a connection opened while tracing
+    public static Connection trace(Connection conn) {
+        Span current = CURRENT.get();
+        return current == null ? conn : TracedJdbc.wrap(conn);
+    }
+
+    private static List<Trace> recent(int limit) {
+        List<Trace> traces = new ArrayList<>();
+        synchronized (ring) {
+            long total = written.get();
+            for (long i = total - 1; i >= 0 && i >= total - BUFFER && traces.size() < limit; i--) {
+                Trace trace = ring[(int) (i % BUFFER)];
+                if (trace != null) {
+                    traces.add(trace);
+                }
+            }
+        }
+        return traces;
+    }
+
+    // Most recent first, with time per step and the handler's own time (building the response)
+    public static String recentJson(int limit) {
+        StringBuilder json = new StringBuilder("[");
+        for (Trace trace : recent(limit)) {
+            List<Span> spans = trace.spans();
+            Span root = trace.root;
+            Map<String, Long> byName = new LinkedHashMap<>();
+            long handlerSelf = 0;
+            for (Span span : spans) {
+                if (span != root) {
+                    byName.merge(span.name, span.end - span.start, Long::sum);
+                }
+                if (span.name.equals("handler")) {
+                    long children = 0;
+                    for (Span child : spans) {
+                        if (child.parentId == span.id) {
+                            children += child.end - child.start;
+                        }
+                    }
+                    handlerSelf += Math.max(0, span.end - span.start - children);
+                }
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"trace_id\":\"").append(trace.traceId).append('"')
+                    .append(",\"name\":\"").append(escape(root.name)).append('"')
+                    .append(",\"start_epoch_ms\":").append(trace.startEpochNanos / 1_000_000)
+                    .append(",\"duration_ms\":").append(ms(root.end - root.start))
+                    .append(",\"attributes\":").append(attributesJson(root))
+                    .append(",\"breakdown_ms\":{");
+            boolean first = true;
+            for (Map.Entry<String, Long> e : byName.entrySet()) {
+                json.append(first ? "" : ",").append('"').append(escape(e.getKey())).append("\":").append(ms(e.getValue()));
+                first = false;
+            }
+            json.append("},\"serialize_ms\":").append(ms(handlerSelf)).append(",\"spans\":[");
+            first = true;
+            for (Span span : spans) {
+                json.append(first ? "" : ",")
+                        .append("{\"id\":").append(span.id)
+                        .append(",\"parent\":").append(span.parentId)
+                        .append(",\"name\":\"").append(escape(span.name)).append('"')
+                        .append(",\"start_ms\":").append(ms(span.start - trace.startNanos))
+                        .append(",\"duration_ms\":").append(ms(span.end - span.start))
+                        .append(",\"attributes\":").append(attributesJson(span)).append('}');
+                first = false;
+            }
+            json.append("]}");
+        }
+        return json.append(']').toString();
+    }
+
+    // OTLP/JSON (ExportTraceServiceRequest), loadable by OpenTelemetry collectors and viewers
+    public static String otlpJson(int limit) {
+        StringBuilder json = new StringBuilder("{\"resourceSpans\":[{\"resource\":{\"attributes\":[")
+                .append("{\"key\":\"service.name\",\"value\":{\"stringValue\":\"election-server\"}}]},")
+                .append("\"scopeSpans\":[{\"scope\":{\"name\":\"backend.tracing\"},\"spans\":[");
+        boolean first = true;
+        for (Trace trace : recent(limit)) {
+            for (Span span : trace.spans()) {
+                json.append(first ? "" : ",")
+                        .append("{\"traceId\":\"").append(trace.traceId).append('"')
+                        .append(",\"spanId\":\"").append(String.format("%016x", span.id)).append('"');
+                if (span.parentId != 0) {
+                    json.append(",\"parentSpanId\":\"").append(String.format("%016x", span.parentId)).append('"');
+                }
+                // kind: 2 = server (the request), 3 = client (database calls), 1 = internal
+                int kind = span == trace.root ? 2 : span.name.startsWith("db.") ? 3 : 1;
+                json.append(",\"name\":\"").append(escape(span.name)).append('"')
+                        .append(",\"kind\":").append(kind)
+                        .append(",\"startTimeUnixNano\":\"").append(trace.epochNanos(span.start)).append('"')
+                        .append(",\"endTimeUnixNano\":\"").append(trace.epochNanos(span.end)).append('"')
+                        .append(",\"attributes\":[");
+                List<String> attributes = span.attributes();
+                for (int i = 0; i + 1 < attributes.size(); i += 2) {
+                    json.append(i == 0 ? "" : ",")
+                            .append("{\"key\":\"").append(escape(attributes.get(i)))
+                            .append("\",\"value\":{\"stringValue\":\"").append(escape(attributes.get(i + 1))).append("\"}}");
+                }
+                json.append("]}");
+                first = false;
+            }
+        }
+        return json.append("]}]}]}").toString();
+    }
+
+    public static String statsJson() {
+        return "{\"sample_rate\":" + SAMPLE_RATE
+                + ",\"requests\":" + requests.get()
+                + ",\"traced\":" + written.get()
+                + ",\"buffer\":" + BUFFER + "}";
+    }
+
+    private static String attributesJson(Span span) {
+        List<String> attributes = span.attributes();
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i + 1 < attributes.size(); i += 2) {
+            json.append(i == 0 ? "" : ",").append('"').append(escape(attributes.get(i))).append("\":\"")
+                    .append(escape(attributes.get(i + 1))).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String escape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}